@@ -0,0 +1,95 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.spicelabs.cli.bench.RecordingGenerator;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Event dispatch alone, on events already read into memory: {@link JfrEventExtractor.Accumulators#accept},
+ * which resolves each event type to a handler once, against the dispatch it replaced, which looked
+ * the handler up by the event type's name on every event and fell back to the probe prefix.
+ *
+ * <p>In {@code io.spicelabs.cli}, not the {@code bench} package, for the extractor's
+ * package-private internals. The recording is a {@link RecordingGenerator.Shape#PROBE_HEAVY} one,
+ * generated and read once per trial; each invocation dispatches all of it into fresh accumulators.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar DispatchBenchmark
+ * java -jar target/benchmarks.jar DispatchBenchmark -p events=1000000 -jvmArgsAppend -Xmx8g
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class DispatchBenchmark {
+
+    /** Events in the recording, all held in memory during the trial. */
+    @Param({"200000"})
+    int events;
+
+    private List<RecordedEvent> recorded;
+
+    @Setup(Level.Trial)
+    public void generate() throws Exception {
+        Path dir = Files.createTempDirectory("spice-bench-");
+        try {
+            Path recording = RecordingGenerator.generate(dir, RecordingGenerator.Shape.PROBE_HEAVY, events, 1, 42).get(0);
+            recorded = RecordingFile.readAllEvents(recording);
+        } finally {
+            RecordingGenerator.deleteRecursively(dir);
+        }
+    }
+
+    @Benchmark
+    public JfrEventExtractor.Accumulators handlerTable() {
+        JfrEventExtractor.Accumulators acc = new JfrEventExtractor.Accumulators(null);
+        for (RecordedEvent event : recorded) {
+            acc.accept(event);
+        }
+        return acc;
+    }
+
+    @Benchmark
+    public JfrEventExtractor.Accumulators nameDispatch() {
+        JfrEventExtractor.Accumulators acc = new JfrEventExtractor.Accumulators(null);
+        Map<String, BiConsumer<JfrEventExtractor.Accumulators, RecordedEvent>> handlers =
+                JfrEventExtractor.Accumulators.HANDLERS;
+        for (RecordedEvent event : recorded) {
+            String eventType = event.getEventType().getName();
+            BiConsumer<JfrEventExtractor.Accumulators, RecordedEvent> handler = handlers.get(eventType);
+            if (handler != null) {
+                handler.accept(acc, event);
+            } else if (eventType.startsWith(JfrEventExtractor.PROBE_EVENT_PREFIX)) {
+                acc.onProbeEvent(event);
+            }
+        }
+        return acc;
+    }
+}
@@ -0,0 +1,88 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.spicelabs.cli.JfrEventExtractor.RawSurveyData;
+import io.spicelabs.cli.bench.RecordingGenerator;
+
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * One recording, parsed by the event-stream engine with its per-event-type subscriptions
+ * ({@code subscriptions}) and by the {@link RecordingFile} loop it replaced, which materializes
+ * every event before dispatching on its name ({@code recordingFile}). Both end in the same survey.
+ * The gap is widest on a {@link RecordingGenerator.Shape#NOISY} recording, where most events are
+ * ones the survey ignores.
+ *
+ * <p>In {@code io.spicelabs.cli}, not the {@code bench} package, for the extractor's
+ * package-private accumulators. One parse thread, so only the engines differ.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar EngineBenchmark
+ * java -jar target/benchmarks.jar EngineBenchmark -p shape=PROBE_HEAVY -p events=2000000
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class EngineBenchmark {
+
+    @Param({"NOISY", "PROBE_HEAVY"})
+    RecordingGenerator.Shape shape;
+
+    @Param({"400000"})
+    int events;
+
+    private Path dir;
+    private Path recording;
+
+    @Setup(Level.Trial)
+    public void generate() throws Exception {
+        dir = Files.createTempDirectory("spice-bench-");
+        recording = RecordingGenerator.generate(dir, shape, events, 1, 42).get(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws Exception {
+        RecordingGenerator.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public RawSurveyData subscriptions() throws Exception {
+        return JfrEventExtractor.extract("bench", List.of(recording));
+    }
+
+    @Benchmark
+    public RawSurveyData recordingFile() throws Exception {
+        JfrEventExtractor.Accumulators acc = new JfrEventExtractor.Accumulators(null);
+        try (RecordingFile rf = new RecordingFile(recording)) {
+            while (rf.hasMoreEvents()) {
+                acc.accept(rf.readEvent());
+            }
+        }
+        return JfrEventExtractor.fromAccumulators("bench", List.of(recording.getFileName().toString()), acc);
+    }
+}
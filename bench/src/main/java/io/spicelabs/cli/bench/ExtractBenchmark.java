@@ -0,0 +1,81 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli.bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.spicelabs.cli.JfrEventExtractor;
+import io.spicelabs.cli.JfrEventExtractor.RawSurveyData;
+
+/**
+ * {@link JfrEventExtractor#extract} end to end, from recordings on disk to the survey, over
+ * recordings written by {@link RecordingGenerator}. The same events can be split over one
+ * recording or many, to compare one huge file with many small ones. Recordings are generated
+ * once per trial, outside the measurement.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar ExtractBenchmark
+ * java -jar target/benchmarks.jar ExtractBenchmark -p shape=PROBE_HEAVY -p events=20000000 -p files=1
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ExtractBenchmark {
+
+    @Param({"PROBE_HEAVY", "TLS_HEAVY", "CLASS_LOAD_HEAVY"})
+    RecordingGenerator.Shape shape;
+
+    /** Events across all recordings. */
+    @Param({"1000000"})
+    int events;
+
+    /** Recordings the events are split over. */
+    @Param({"1", "32"})
+    int files;
+
+    @Param({"1", "4"})
+    int parseThreads;
+
+    private Path dir;
+    private List<Path> recordings;
+    private JfrEventExtractor.ParseOptions options;
+
+    @Setup(Level.Trial)
+    public void generate() throws Exception {
+        dir = Files.createTempDirectory("spice-bench-");
+        recordings = RecordingGenerator.generate(dir, shape, events, files, 42);
+        options = JfrEventExtractor.ParseOptions.builder().parseThreads(parseThreads).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws Exception {
+        RecordingGenerator.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public RawSurveyData extract() throws Exception {
+        return JfrEventExtractor.extract("bench", recordings, null, null, options);
+    }
+}
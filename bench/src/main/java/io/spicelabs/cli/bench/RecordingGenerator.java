@@ -0,0 +1,424 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+
+/**
+ * Writes JFR recordings shaped like the ones a runtime survey collects, without the ancho agent:
+ * the {@code spice.probe.*} and {@code spice.ClassLoaded} events it emits, and the JDK security
+ * events ({@code jdk.SecurityProviderService}, {@code jdk.TLSHandshake},
+ * {@code jdk.X509Certificate}) re-declared as custom events with the JDK's names and the fields
+ * the extractor reads, plus, for {@link Shape#NOISY}, an event it ignores. The output is
+ * deterministic for a given shape, size and seed.
+ *
+ * <p>Probe and provider events carry real stack traces: they are committed on a pool of
+ * request-handler threads, from a handful of call sites, each reached through call chains of
+ * varying depth — so, as in a server, a few sites account for most events and each site has
+ * many distinct stacks.
+ *
+ * <p>Also runnable on its own, to keep recordings around:
+ * {@code java -cp target/benchmarks.jar io.spicelabs.cli.bench.RecordingGenerator <dir> <shape> <events> [files]}
+ */
+public final class RecordingGenerator {
+
+    /** The mix of events in a recording, as fractions; certificates make up the rest. */
+    public enum Shape {
+        /** Mostly crypto probe hits, as from a service encrypting every request. */
+        PROBE_HEAVY(0.90, 0.03, 0.05, 0.01, 0),
+        /** Mostly TLS handshakes and the certificates they present, as from an outbound-heavy client. */
+        TLS_HEAVY(0.05, 0.02, 0.08, 0.65, 0),
+        /** Mostly class loads, as from the start-up of a large application. */
+        CLASS_LOAD_HEAVY(0.04, 0.90, 0.04, 0.01, 0),
+        /** Mostly events the survey ignores, as from a recording with other JFR settings enabled too. */
+        NOISY(0.002, 0.005, 0.002, 0.0005, 0.99);
+
+        final double probes;
+        final double classLoads;
+        final double providerServices;
+        final double handshakes;
+        final double noise;
+
+        Shape(double probes, double classLoads, double providerServices, double handshakes, double noise) {
+            this.probes = probes;
+            this.classLoads = classLoads;
+            this.providerServices = providerServices;
+            this.handshakes = handshakes;
+            this.noise = noise;
+        }
+    }
+
+    // ── Events ──────────────────────────────────────────────────────────
+
+    @Name("spice.probe.javax.crypto.Cipher.getInstance")
+    @Label("Cipher.getInstance")
+    @StackTrace(true)
+    static final class CipherProbe extends Event {
+        String classGitoid;
+        String callerGitoids;
+    }
+
+    @Name("spice.probe.java.security.MessageDigest.getInstance")
+    @Label("MessageDigest.getInstance")
+    @StackTrace(true)
+    static final class DigestProbe extends Event {
+        String classGitoid;
+        String callerGitoids;
+    }
+
+    @Name("spice.probe.java.security.Signature.getInstance")
+    @Label("Signature.getInstance")
+    @StackTrace(true)
+    static final class SignatureProbe extends Event {
+        String classGitoid;
+        String callerGitoids;
+    }
+
+    @Name("spice.probe.javax.crypto.KeyGenerator.getInstance")
+    @Label("KeyGenerator.getInstance")
+    @StackTrace(true)
+    static final class KeyGeneratorProbe extends Event {
+        String classGitoid;
+        String callerGitoids;
+    }
+
+    @Name("spice.ClassLoaded")
+    @StackTrace(false)
+    static final class ClassLoaded extends Event {
+        String className;
+        String classGitoid;
+        String classSha256;
+        String codeSource;
+        String jarGitoid;
+        String jarSha256;
+    }
+
+    @Name("jdk.SecurityProviderService")
+    @StackTrace(true)
+    static final class ProviderService extends Event {
+        String type;
+        String algorithm;
+        String provider;
+    }
+
+    @Name("jdk.TLSHandshake")
+    @StackTrace(false)
+    static final class TlsHandshake extends Event {
+        String peerHost;
+        int peerPort;
+        String protocolVersion;
+        String cipherSuite;
+        long certificateId;
+    }
+
+    @Name("jdk.X509Certificate")
+    @StackTrace(false)
+    static final class Certificate extends Event {
+        String algorithm;
+        String serialNumber;
+        String subject;
+        String issuer;
+        String keyType;
+        int keyLength;
+        long certificateId;
+        long validFrom;
+        long validUntil;
+    }
+
+    /** An event no survey reads, with a stack trace, as most of a noisy recording's are. */
+    @Name("bench.Noise")
+    @StackTrace(true)
+    static final class Noise extends Event {
+        String text;
+        long value;
+        int index;
+    }
+
+    private static final List<Class<? extends Event>> EVENT_CLASSES = List.of(
+            CipherProbe.class, DigestProbe.class, SignatureProbe.class, KeyGeneratorProbe.class,
+            ClassLoaded.class, ProviderService.class, TlsHandshake.class, Certificate.class, Noise.class);
+
+    // ── Vocabulary ──────────────────────────────────────────────────────
+
+    private static final int THREADS = 8;
+    private static final int MAX_CALL_DEPTH = 12;
+    private static final int CALLER_CLASSES = 64;
+    private static final int PEERS = 200;
+    private static final int ISSUED_CERTIFICATES = 50;
+
+    private static final String[][] PROVIDER_SERVICES = {
+            {"Cipher", "AES/GCM/NoPadding", "SunJCE"}, {"Cipher", "RSA/ECB/PKCS1Padding", "SunJCE"},
+            {"MessageDigest", "SHA-256", "SUN"}, {"MessageDigest", "SHA-1", "SUN"},
+            {"Signature", "SHA256withECDSA", "SunEC"}, {"Signature", "SHA256withRSA", "SunRsaSign"},
+            {"KeyPairGenerator", "EC", "SunEC"}, {"KeyAgreement", "X25519", "SunEC"},
+            {"Mac", "HmacSHA256", "SunJCE"}, {"SecureRandom", "DRBG", "SUN"}};
+    private static final String[] PROTOCOLS = {"TLSv1.3", "TLSv1.3", "TLSv1.3", "TLSv1.2"};
+    private static final String[] CIPHER_SUITES = {"TLS_AES_128_GCM_SHA256", "TLS_AES_256_GCM_SHA384",
+            "TLS_CHACHA20_POLY1305_SHA256", "TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256"};
+    private static final String[] KEY_TYPES = {"RSA", "EC", "RSA"};
+    private static final int[] KEY_LENGTHS = {2048, 256, 4096};
+
+    // Application call sites a probe fires from; each lambda is its own method and line.
+    private static final List<Consumer<Event>> CALL_SITES = List.of(
+            Event::commit,
+            event -> event.commit(),
+            event -> { event.commit(); },
+            event -> {
+                event.commit();
+            },
+            event -> {
+                Event e = event;
+                e.commit();
+            },
+            event -> {
+                if (event != null) {
+                    event.commit();
+                }
+            });
+
+    private RecordingGenerator() {}
+
+    /**
+     * Write {@code events} events of {@code shape}, split evenly over {@code files} recordings in
+     * {@code dir}, and return the recordings in order.
+     */
+    public static List<Path> generate(Path dir, Shape shape, int events, int files, long seed) throws Exception {
+        if (events < 1 || files < 1) {
+            throw new IllegalArgumentException("events and files must be at least 1, got: " + events + ", " + files);
+        }
+        Files.createDirectories(dir);
+        List<Path> recordings = new ArrayList<>(files);
+        for (int f = 0; f < files; f++) {
+            int fileEvents = events / files + (f < events % files ? 1 : 0);
+            Path file = dir.resolve(String.format(Locale.ROOT, "recording-%04d.jfr", f));
+            writeRecording(file, f, shape, fileEvents, new SplittableRandom(seed + f));
+            recordings.add(file);
+        }
+        return recordings;
+    }
+
+    /** Write recording number {@code index}; its classes are its own, as each run loads new ones. */
+    private static void writeRecording(Path file, int index, Shape shape, int events, SplittableRandom random)
+            throws Exception {
+        try (Recording recording = new Recording()) {
+            for (Class<? extends Event> eventClass : EVENT_CLASSES) {
+                recording.enable(eventClass);
+            }
+            recording.start();
+            // Every thread gets a share, and its own random stream so the output doesn't depend on scheduling.
+            List<Thread> threads = new ArrayList<>(THREADS);
+            List<SplittableRandom> randoms = new ArrayList<>(THREADS);
+            for (int t = 0; t < THREADS; t++) {
+                randoms.add(random.split());
+            }
+            for (int t = 0; t < THREADS; t++) {
+                int share = events / THREADS + (t < events % THREADS ? 1 : 0);
+                SplittableRandom threadRandom = randoms.get(t);
+                String classPrefix = index + "-" + t + "-";
+                Thread thread = new Thread(() -> emit(shape, share, classPrefix, threadRandom),
+                        "http-nio-8080-exec-" + (t + 1));
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            recording.stop();
+            recording.dump(file);
+        }
+    }
+
+    private static void emit(Shape shape, int events, String classPrefix, SplittableRandom random) {
+        int classes = 0;
+        double probes = shape.probes;
+        double classLoads = probes + shape.classLoads;
+        double providerServices = classLoads + shape.providerServices;
+        double handshakes = providerServices + shape.handshakes;
+        double noise = handshakes + shape.noise;
+        for (int i = 0; i < events; i++) {
+            double pick = random.nextDouble();
+            if (pick < probes) {
+                fromCallSite(probe(random), random);
+            } else if (pick < classLoads) {
+                classLoaded(classPrefix, classes++).commit();
+            } else if (pick < providerServices) {
+                String[] service = PROVIDER_SERVICES[skewed(random, PROVIDER_SERVICES.length)];
+                ProviderService event = new ProviderService();
+                event.type = service[0];
+                event.algorithm = service[1];
+                event.provider = service[2];
+                fromCallSite(event, random);
+            } else if (pick < handshakes) {
+                handshake(random).commit();
+            } else if (pick < noise) {
+                Noise event = new Noise();
+                event.text = "noise-" + (i % 1000);
+                event.value = i * 31L;
+                event.index = i;
+                fromCallSite(event, random);
+            } else {
+                certificate(random.nextInt(ISSUED_CERTIFICATES)).commit();
+            }
+        }
+    }
+
+    private static Event probe(SplittableRandom random) {
+        int kind = skewed(random, 4);
+        String classGitoid = gitoid("probe-" + kind);
+        String callerGitoids = gitoid("caller-" + skewed(random, CALLER_CLASSES)) + "\n"
+                + gitoid("caller-" + skewed(random, CALLER_CLASSES));
+        return switch (kind) {
+            case 0 -> {
+                CipherProbe e = new CipherProbe();
+                e.classGitoid = classGitoid;
+                e.callerGitoids = callerGitoids;
+                yield e;
+            }
+            case 1 -> {
+                DigestProbe e = new DigestProbe();
+                e.classGitoid = classGitoid;
+                e.callerGitoids = callerGitoids;
+                yield e;
+            }
+            case 2 -> {
+                SignatureProbe e = new SignatureProbe();
+                e.classGitoid = classGitoid;
+                e.callerGitoids = callerGitoids;
+                yield e;
+            }
+            default -> {
+                KeyGeneratorProbe e = new KeyGeneratorProbe();
+                e.classGitoid = classGitoid;
+                e.callerGitoids = callerGitoids;
+                yield e;
+            }
+        };
+    }
+
+    private static ClassLoaded classLoaded(String prefix, int n) {
+        ClassLoaded event = new ClassLoaded();
+        String id = prefix + n;
+        int jar = n / 500;
+        event.className = "com.example.module" + (n % 97) + ".Generated_" + id.replace('-', '_');
+        event.classGitoid = gitoid("class-" + id);
+        event.classSha256 = sha("class-" + id);
+        event.codeSource = "file:/opt/app/lib/library-" + jar + ".jar";
+        event.jarGitoid = gitoid("jar-" + jar);
+        event.jarSha256 = sha("jar-" + jar);
+        return event;
+    }
+
+    private static TlsHandshake handshake(SplittableRandom random) {
+        int peer = skewed(random, PEERS);
+        TlsHandshake event = new TlsHandshake();
+        event.peerHost = "service-" + peer + ".internal.example.com";
+        event.peerPort = peer % 10 == 0 ? 8443 : 443;
+        event.protocolVersion = PROTOCOLS[peer % PROTOCOLS.length];
+        event.cipherSuite = CIPHER_SUITES[peer % CIPHER_SUITES.length];
+        event.certificateId = peer % ISSUED_CERTIFICATES;
+        return event;
+    }
+
+    private static Certificate certificate(int id) {
+        Certificate event = new Certificate();
+        event.algorithm = id % 3 == 1 ? "SHA256withECDSA" : "SHA256withRSA";
+        event.serialNumber = Integer.toHexString(0x1000 + id);
+        event.subject = "CN=service-" + id + ".internal.example.com, O=Example";
+        event.issuer = "CN=Example Issuing CA " + (id % 3) + ", O=Example";
+        event.keyType = KEY_TYPES[id % KEY_TYPES.length];
+        event.keyLength = KEY_LENGTHS[id % KEY_LENGTHS.length];
+        event.certificateId = id;
+        event.validFrom = 1_735_689_600_000L;
+        event.validUntil = 1_767_225_600_000L;
+        return event;
+    }
+
+    /** Commit {@code event} from one of the call sites, some calls deep. */
+    private static void fromCallSite(Event event, SplittableRandom random) {
+        descend(random.nextInt(MAX_CALL_DEPTH), CALL_SITES.get(skewed(random, CALL_SITES.size())), event);
+    }
+
+    private static void descend(int depth, Consumer<Event> callSite, Event event) {
+        if (depth == 0) {
+            callSite.accept(event);
+        } else {
+            descend(depth - 1, callSite, event);
+        }
+    }
+
+    /** A random index below {@code n}, low ones far likelier, as hit counts are in practice. */
+    private static int skewed(SplittableRandom random, int n) {
+        double u = random.nextDouble();
+        return (int) (n * u * u * u);
+    }
+
+    private static String gitoid(String name) {
+        return "gitoid:blob:sha256:" + sha(name);
+    }
+
+    /** A real sha256, of {@code name}: digests must be as uniform as the agent's. */
+    private static String sha(String name) {
+        try {
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(name.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is always available", e);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: RecordingGenerator <dir> <" + String.join("|", shapeNames())
+                    + "> <events> [files]");
+            System.exit(1);
+        }
+        Path dir = Path.of(args[0]);
+        Shape shape = Shape.valueOf(args[1].toUpperCase(Locale.ROOT));
+        int events = Integer.parseInt(args[2]);
+        int files = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        long size = 0;
+        for (Path recording : generate(dir, shape, events, files, 42)) {
+            size += Files.size(recording);
+        }
+        System.out.printf(Locale.ROOT, "Wrote %d %s events in %d recording(s), %.1f MB, to %s%n",
+                events, shape, files, size / 1e6, dir);
+    }
+
+    private static List<String> shapeNames() {
+        List<String> names = new ArrayList<>();
+        for (Shape shape : Shape.values()) {
+            names.add(shape.name().toLowerCase(Locale.ROOT));
+        }
+        return names;
+    }
+
+    public static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (var paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -531,6 +531,16 @@ O spice/survey/runtime --output value path create=self
 O spice/survey/runtime --log-level value
 O spice/survey/runtime --chunk-size value
 O spice/survey/runtime --anchor value path create=parent
+O spice/survey/runtime --anchor-cache value
+O spice/survey/runtime --jdk-version value
+O spice/survey/runtime --parse-threads value
+O spice/survey/runtime --stream flag
+O spice/survey/runtime --max-call-sites value
+O spice/survey/runtime --upload-format value
+O spice/survey/runtime --app-exclude value
+O spice/survey/runtime --app-include value
+O spice/survey/runtime --stats flag
+O spice/survey/runtime --parse-memory-budget value
 O spice/survey/runtime -h flag
 O spice/survey/runtime --help flag
 O spice/survey/runtime -V flag
@@ -700,6 +710,8 @@ if ($isRuntimeSurvey) {
   $rtNoUpload = $false
   $rtNativeOnly = $false
   $rtKeepRecording = $false
+  $rtParseArgs = @()
+  $rtCollectFlags = @('--parse-threads', '--max-call-sites', '--upload-format', '--app-include', '--app-exclude', '--parse-memory-budget', '--anchor-cache')
   $rtPastSep = $false
   $rtPrev = ""
   $rtPos = 0
@@ -732,10 +744,14 @@ if ($isRuntimeSurvey) {
 
     # Handle value-consuming flags
     if ($rtPrev) {
+      # Parse tuning and the upload format apply where the recordings are parsed: RuntimeCollect, below.
+      if ($rtCollectFlags -contains $rtPrev) { $rtParseArgs += @($rtPrev, $arg) }
       $rtCliArgs += $rtPrev; $rtCliArgs += $arg; $rtPrev = ""; continue
     }
 
     if ($arg -like '-*') {
+      if ($arg -like '--*=*' -and $rtCollectFlags -contains $arg.Split('=', 2)[0]) { $rtParseArgs += $arg }
+      if ($arg -eq '--stats') { $rtParseArgs += $arg }
       if ($arg -eq '--no-upload') { $rtNoUpload = $true }
       if ($arg -eq '--native-only') { $rtNativeOnly = $true }
       if ($arg -eq '--keep-recording') { $rtKeepRecording = $true }
@@ -860,6 +876,20 @@ if ($isRuntimeSurvey) {
   Write-Host "Analyzing recordings..."
   $rtCollectArgs = @($rtSubject, $rtWorkdirDocker)
   if ($rtNoUpload) { $rtCollectArgs += '--no-upload' }
+  if ($rtKeepRecording) { $rtCollectArgs += '--keep-recording' }
+  $rtCollectArgs += $rtParseArgs
+
+  # Each recording's parse is cached across runs, but this container is thrown away: keep the
+  # cache on the host and mount it.
+  $rtCacheMounts = @()
+  $rtParseCache = Join-Path (Join-Path $HOME '.spicelabs') 'runtime-cache'
+  New-Item -ItemType Directory -Path $rtParseCache -Force -ErrorAction SilentlyContinue | Out-Null
+  if (Test-Path $rtParseCache) {
+    $rtParseCacheHost = Get-AbsolutePath $rtParseCache
+    $rtParseCacheDocker = Convert-ToDockerPath $rtParseCacheHost
+    $rtCacheMounts += @('-v', "${rtParseCacheHost}:${rtParseCacheDocker}")
+    $rtCollectArgs += @('--parse-cache-dir', $rtParseCacheDocker)
+  }
 
   $rtAnchorMount = @()
   if ($rtAnchor) {
@@ -867,6 +897,15 @@ if ($isRuntimeSurvey) {
     $rtAnchorDocker = Mount-Path $rtAnchor 'parent' $true
     $rtAnchorMount = $script:MfVolumes
     $rtCollectArgs += @('--anchor', $rtAnchorDocker)
+    # The anchor's digests are cached across runs (CI shards share one anchor) on the host too.
+    $rtDigestCache = Join-Path (Join-Path $HOME '.spicelabs') 'digest-cache'
+    New-Item -ItemType Directory -Path $rtDigestCache -Force -ErrorAction SilentlyContinue | Out-Null
+    if (Test-Path $rtDigestCache) {
+      $rtDigestCacheHost = Get-AbsolutePath $rtDigestCache
+      $rtDigestCacheDocker = Convert-ToDockerPath $rtDigestCacheHost
+      $rtCacheMounts += @('-v', "${rtDigestCacheHost}:${rtDigestCacheDocker}")
+      $rtCollectArgs += @('--anchor-cache-dir', $rtDigestCacheDocker)
+    }
   }
 
   $p4Args = @('run', '--rm', '--entrypoint', 'java')
@@ -874,6 +913,7 @@ if ($isRuntimeSurvey) {
   $p4Args += @('--network', 'host')
   $p4Args += @($pullFlag)
   $p4Args += @('-v', "${rtWorkdirHost}:${rtWorkdirDocker}")
+  $p4Args += $rtCacheMounts
   $p4Args += $rtAnchorMount
   $p4Args += @('-e', "SPICE_PASS=$spicePass")
   $p4Args += @("$imageRef")
@@ -4,18 +4,21 @@
 package io.spicelabs.cli;
 
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import io.spicelabs.goatrodeo.ProgressListener;
 
 /**
- * Translates goat-rodeo's {@code (current, total)} ticks into RUNNING progress publishes
- * against the ANALYZE sub-job daikon minted at {@code initSurvey}, so the dashboard's
- * phase strip moves during long surveys.
+ * Translates goat-rodeo's {@code (current, total)} ticks, or a runtime survey's JFR parse
+ * {@link #onParseProgress progress}, into RUNNING progress publishes against the ANALYZE
+ * sub-job daikon minted at {@code initSurvey}, so the dashboard's phase strip moves during
+ * long surveys.
  *
  * <p>Layout of the 0..100 band:
  * <ul>
  *   <li>0% — {@link #start()} fires once before goat-rodeo begins.</li>
- *   <li>5..95% — {@code onProgress(current, total)} maps linearly into this range.</li>
+ *   <li>5..95% — {@code onProgress(current, total)}, or the share of recording bytes parsed,
+ *       maps linearly into this range.</li>
  *   <li>95% — {@link #building()} fires after goat-rodeo returns, while ginger-j wraps
  *       the bundle.</li>
  *   <li>100% / COMPLETED — {@link #complete()} fires when the wrap is done and UPLOAD is
@@ -24,7 +27,8 @@ import io.spicelabs.goatrodeo.ProgressListener;
  *
  * <p>Throttling: emits on the first call, then only when the percent moves by at least 1%
  * or 2 seconds have passed since the last emit. Goat-rodeo's per-run Notifier serializes
- * onProgress calls so no extra locking is required for the throttle state.
+ * onProgress calls, as the JFR parse does its progress reports, so no extra locking is
+ * required for the throttle state.
  */
 final class AnalyzeProgressPublisher implements ProgressListener {
 
@@ -59,16 +63,23 @@ final class AnalyzeProgressPublisher implements ProgressListener {
 
     @Override
     public void onProgress(long current, long total) {
-        int percent;
-        if (total <= 0) {
-            percent = START_PERCENT;
-        } else {
-            double fraction = Math.min(1.0, (double) current / (double) total);
-            percent = START_PERCENT
-                    + (int) Math.floor(fraction * (BUILDING_PERCENT - START_PERCENT));
-            if (percent < START_PERCENT) percent = START_PERCENT;
-            if (percent > BUILDING_PERCENT) percent = BUILDING_PERCENT;
-        }
+        double fraction = total <= 0 ? 0 : Math.min(1.0, (double) current / (double) total);
+        publishProgress(fraction, () -> "Processing artifacts (" + current + "/" + total + ")");
+    }
+
+    /**
+     * A JFR parse tick, placed by recording bytes parsed rather than recordings finished, so a
+     * single large recording moves the strip; the message carries the throughput and ETA.
+     */
+    void onParseProgress(JfrProgressCallback.Progress progress) {
+        publishProgress(progress.fraction(), () -> "Parsing recordings ("
+                + progress.recordingsParsed() + "/" + progress.recordings() + "): " + progress.describe());
+    }
+
+    private void publishProgress(double fraction, Supplier<String> message) {
+        int percent = START_PERCENT + (int) Math.floor(fraction * (BUILDING_PERCENT - START_PERCENT));
+        if (percent < START_PERCENT) percent = START_PERCENT;
+        if (percent > BUILDING_PERCENT) percent = BUILDING_PERCENT;
         long now = System.currentTimeMillis();
         boolean firstCall = lastEmitPercent < 0;
         boolean percentMoved = (percent - lastEmitPercent) >= MIN_PERCENT_DELTA;
@@ -76,7 +87,7 @@ final class AnalyzeProgressPublisher implements ProgressListener {
         if (!firstCall && !percentMoved && !intervalElapsed) {
             return;
         }
-        publishRunning(percent, "Processing artifacts (" + current + "/" + total + ")");
+        publishRunning(percent, message.get());
     }
 
     /** Goat-rodeo returned; ginger-j is about to wrap the bundle. */
@@ -0,0 +1,72 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/**
+ * Hashes an {@code --anchor} artifact the way goatrodeo hashes it into the inventory: a plain
+ * sha256, and the gitoid {@code gitoid:blob:sha256:} of {@code "blob <length>\0"} followed by the
+ * content — the same values {@code Coordinates.sha256} and {@code Coordinates.gitoidBlobSha256}
+ * give for the file's bytes.
+ *
+ * <p>Anchors can be multi-GB EARs, so the file is never held in heap: it is read once, through a
+ * {@link FileChannel} into one reusable direct buffer of {@link #BUFFER_BYTES}, and each slice of
+ * that is copied into one small array that feeds both digests while it is still in cache. Nothing
+ * is mapped, so a pass leaves no mappings behind for the GC to release; memory use is constant
+ * whatever the file's size.
+ */
+final class AnchorHashes {
+
+    /** Bytes of the file read at a time. */
+    static final int BUFFER_BYTES = 1 << 20;
+
+    private static final int SLICE_BYTES = 1 << 16;
+    private static final String GITOID_PREFIX = "gitoid:blob:sha256:";
+
+    private AnchorHashes() {}
+
+    /** The {@link JfrEventExtractor.Anchor} of {@code file}, named by its file name. */
+    static JfrEventExtractor.Anchor anchor(Path file) throws IOException {
+        return anchor(file, BUFFER_BYTES);
+    }
+
+    static JfrEventExtractor.Anchor anchor(Path file, int bufferBytes) throws IOException {
+        MessageDigest sha256 = CacheFiles.sha256();
+        MessageDigest gitoid = CacheFiles.sha256();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            gitoid.update(("blob " + size + "\0").getBytes(StandardCharsets.US_ASCII));
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bufferBytes);
+            byte[] slice = new byte[SLICE_BYTES];
+            // Exactly the size the gitoid header gave, even if the file grows meanwhile.
+            for (long position = 0; position < size; ) {
+                buffer.clear().limit((int) Math.min(bufferBytes, size - position));
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        throw new EOFException(file + " shrank while it was hashed");
+                    }
+                }
+                position += buffer.flip().remaining();
+                while (buffer.hasRemaining()) {
+                    int n = Math.min(slice.length, buffer.remaining());
+                    buffer.get(slice, 0, n);
+                    sha256.update(slice, 0, n);
+                    gitoid.update(slice, 0, n);
+                }
+            }
+        }
+        return new JfrEventExtractor.Anchor(file.getFileName().toString(),
+                HexFormat.of().formatHex(sha256.digest()),
+                GITOID_PREFIX + HexFormat.of().formatHex(gitoid.digest()));
+    }
+}
@@ -0,0 +1,143 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Which stack frames are application code, by the package of their class: a call site is the
+ * first application frame of an event's stack trace. The JDK's own packages are excluded; a
+ * survey can exclude more (frameworks, in-house crypto wrappers) and include packages back. The
+ * most specific package that has a rule decides, and for the same package an include wins over
+ * an exclude; a class under no rule is application code.
+ *
+ * <p>The rules are compiled into a trie over package segments, and each class name's answer is
+ * remembered, so a class seen before — every frame of a warmed-up parse — costs one hash lookup.
+ * Thread-safe: one filter serves every parse worker.
+ */
+public final class AppFrameFilter {
+
+    private static final List<String> JDK_PACKAGES =
+            List.of("java", "javax", "sun", "com.sun", "jdk", "org.openjdk");
+
+    /** The JDK's packages excluded, nothing else. */
+    public static final AppFrameFilter DEFAULT = of(List.of(), List.of());
+
+    // Class names remembered before the memo starts over.
+    private static final int MAX_MEMO = 65_536;
+
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<>();
+        Boolean application; // null: no rule for this package
+    }
+
+    // Package -> whether it's application code, sorted: the canonical form of the rules.
+    private final Map<String, Boolean> rules;
+    private final Node root = new Node();
+    private final Map<String, Boolean> memo = new ConcurrentHashMap<>();
+
+    private AppFrameFilter(Map<String, Boolean> rules) {
+        this.rules = rules;
+        rules.forEach((pkg, application) -> {
+            Node node = root;
+            for (String segment : pkg.split("\\.")) {
+                node = node.children.computeIfAbsent(segment, s -> new Node());
+            }
+            node.application = application;
+        });
+    }
+
+    /**
+     * The JDK's packages and {@code exclude} excluded, {@code include} included back. A package
+     * is given by name, optionally ending in {@code .} or {@code .*}; it covers its subpackages.
+     *
+     * @throws IllegalArgumentException if a package name is empty or malformed
+     */
+    public static AppFrameFilter of(Collection<String> include, Collection<String> exclude) {
+        Map<String, Boolean> rules = new TreeMap<>();
+        for (String pkg : JDK_PACKAGES) {
+            rules.put(pkg, false);
+        }
+        if (exclude != null) {
+            for (String pkg : exclude) {
+                rules.put(normalize(pkg), false);
+            }
+        }
+        if (include != null) {
+            for (String pkg : include) {
+                rules.put(normalize(pkg), true);
+            }
+        }
+        return new AppFrameFilter(rules);
+    }
+
+    private static String normalize(String pkg) {
+        String name = pkg == null ? "" : pkg.strip();
+        if (name.endsWith(".*")) {
+            name = name.substring(0, name.length() - 2);
+        } else if (name.endsWith(".")) {
+            name = name.substring(0, name.length() - 1);
+        }
+        if (name.isEmpty() || name.startsWith(".") || name.contains("..")
+                || name.chars().anyMatch(c -> Character.isWhitespace(c) || c == '/' || c == '*')) {
+            throw new IllegalArgumentException("not a package name: '" + pkg + "'");
+        }
+        return name;
+    }
+
+    /** Whether frames of {@code className} are application code. */
+    public boolean isApplicationCode(String className) {
+        Boolean application = memo.get(className);
+        if (application == null) {
+            application = classify(className);
+            if (memo.size() >= MAX_MEMO) {
+                memo.clear();
+            }
+            memo.put(className, application);
+        }
+        return application;
+    }
+
+    private boolean classify(String className) {
+        boolean application = true;
+        Node node = root;
+        int start = 0;
+        while (node != null) {
+            int end = className.indexOf('.', start);
+            node = node.children.get(end < 0 ? className.substring(start) : className.substring(start, end));
+            if (node != null && node.application != null) {
+                application = node.application;
+            }
+            if (end < 0) {
+                break;
+            }
+            start = end + 1;
+        }
+        return application;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof AppFrameFilter other && rules.equals(other.rules);
+    }
+
+    @Override
+    public int hashCode() {
+        return rules.hashCode();
+    }
+
+    /** The rules, by package: {@code +com.acme,-com.acme.crypto,-java,…}. */
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(",");
+        rules.forEach((pkg, application) -> joiner.add((application ? "+" : "-") + pkg));
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,79 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * What the files {@code survey runtime} keeps between runs have in common: where they live under
+ * {@code ~/.spicelabs}, the sha256 they're keyed and checked by, and how one is replaced whole so
+ * a reader — another process sharing the directory, or the next run after a kill — sees the old
+ * file or the new one, never part of one.
+ */
+final class CacheFiles {
+
+    private CacheFiles() {}
+
+    /** What a replacement file holds. */
+    @FunctionalInterface
+    interface Content {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    /** {@code ~/.spicelabs/<name>}; under {@code /tmp} when there's no usable home directory. */
+    static Path defaultPath(String name) {
+        String userHome = System.getProperty("user.home");
+        if (userHome != null && !userHome.isBlank() && !userHome.equals("/")) {
+            return Paths.get(userHome, ".spicelabs", name);
+        }
+        return Paths.get("/tmp", ".spicelabs", name);
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is always available", e);
+        }
+    }
+
+    /** Hex sha256 of {@code s} in UTF-8: a file name for a key that may hold anything. */
+    static String sha256Hex(String s) {
+        return HexFormat.of().formatHex(sha256().digest(s.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Write {@code content} to a temp file beside {@code file}, creating the directory if need be,
+     * then rename it over {@code file}: atomically where the file system can. The temp file is
+     * removed whatever happens.
+     */
+    static void replace(Path file, Content content) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                content.writeTo(out);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link AnchorHashes} digests of files hashed before, so an anchor passed to every shard of
+ * a CI pipeline is hashed once. Entries are keyed by the file's canonical path, and one is only
+ * used while the file's size, modification time and file key (its inode, where the platform has
+ * one) are still those it was hashed with. A file modified less than {@link #RACY_WINDOW_MILLIS}
+ * before it was hashed isn't cached: a write later in the same timestamp tick wouldn't show.
+ *
+ * <p>With {@code verify}, a hit is also checked against a digest of {@value #SAMPLE_BLOCKS} blocks
+ * sampled across the file, which catches content rewritten in place with its metadata restored,
+ * for the cost of reading about a megabyte.
+ *
+ * <p>An entry is one small file named by the sha256 of the path, replaced whole
+ * ({@link CacheFiles#replace}); one that can't be read is a miss, so parallel runs sharing the
+ * directory at worst hash a file again. Entries unused for {@link #MAX_UNUSED_DAYS} days are removed.
+ */
+final class DigestCache {
+
+    private static final Logger log = LoggerFactory.getLogger(DigestCache.class);
+
+    static final long RACY_WINDOW_MILLIS = 2_000;
+    static final int SAMPLE_BLOCKS = 16;
+    static final long MAX_UNUSED_DAYS = 30;
+
+    private static final int MAGIC = 0x4447_5354; // "DGST"
+    private static final String SUFFIX = ".digests";
+    private static final int SAMPLE_BLOCK_BYTES = 1 << 16;
+
+    private final Path directory;
+
+    DigestCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /** {@code ~/.spicelabs/digest-cache}, beside the recording cache. */
+    static Path defaultDirectory() {
+        return CacheFiles.defaultPath("digest-cache");
+    }
+
+    /** What an entry holds: the file as hashed, and its digests. */
+    private record Entry(String path, long size, long modifiedNanos, String fileKey,
+                         String sha256, String gitoid, String sample) {
+
+        boolean describes(String path, BasicFileAttributes attrs) {
+            return this.path.equals(path) && size == attrs.size()
+                    && modifiedNanos == attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS)
+                    && fileKey.equals(String.valueOf(attrs.fileKey()));
+        }
+    }
+
+    /**
+     * The anchor of {@code file}: its digests from the cache if they're still valid — and, with
+     * {@code verify}, match a sample of its content — else hashed and cached.
+     */
+    JfrEventExtractor.Anchor anchor(Path file, boolean verify) throws IOException {
+        Path canonical = file.toRealPath();
+        String path = canonical.toString();
+        BasicFileAttributes before = Files.readAttributes(canonical, BasicFileAttributes.class);
+        Path entryFile = directory.resolve(CacheFiles.sha256Hex(path) + SUFFIX);
+        Entry cached = read(entryFile);
+        if (cached != null && cached.describes(path, before)) {
+            if (!verify || cached.sample().equals(sample(canonical))) {
+                log.debug("Using cached digests of {}", canonical);
+                touch(entryFile);
+                return new JfrEventExtractor.Anchor(file.getFileName().toString(), cached.sha256(), cached.gitoid());
+            }
+            log.warn("Cached digests of {} don't match its content; hashing it again", canonical);
+        }
+
+        JfrEventExtractor.Anchor anchor = AnchorHashes.anchor(file);
+        BasicFileAttributes after = Files.readAttributes(canonical, BasicFileAttributes.class);
+        long modifiedMillis = after.lastModifiedTime().toMillis();
+        if (!unchanged(before, after)) {
+            log.debug("{} changed while it was hashed; not caching its digests", canonical);
+        } else if (System.currentTimeMillis() - modifiedMillis < RACY_WINDOW_MILLIS) {
+            log.debug("{} was modified too recently to cache its digests", canonical);
+        } else {
+            write(entryFile, new Entry(path, after.size(), after.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                    String.valueOf(after.fileKey()), anchor.sha256(), anchor.gitoid(), sample(canonical)));
+            evict();
+        }
+        return anchor;
+    }
+
+    private static boolean unchanged(BasicFileAttributes before, BasicFileAttributes after) {
+        return before.size() == after.size() && before.lastModifiedTime().equals(after.lastModifiedTime())
+                && Objects.equals(before.fileKey(), after.fileKey());
+    }
+
+    /**
+     * Hex sha256 of {@value #SAMPLE_BLOCKS} blocks spread evenly over {@code file}, the first at its
+     * start and the last at its end; the whole file if it's no bigger than they are.
+     */
+    static String sample(Path file) throws IOException {
+        MessageDigest digest = CacheFiles.sha256();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer block = ByteBuffer.allocate(SAMPLE_BLOCK_BYTES);
+            long sampled = (long) SAMPLE_BLOCKS * SAMPLE_BLOCK_BYTES;
+            int blocks = size <= sampled ? (int) ((size + SAMPLE_BLOCK_BYTES - 1) / SAMPLE_BLOCK_BYTES) : SAMPLE_BLOCKS;
+            long stride = blocks > 1 ? (size - SAMPLE_BLOCK_BYTES) / (blocks - 1) : 0;
+            for (int i = 0; i < blocks; i++) {
+                long position = size <= sampled ? (long) i * SAMPLE_BLOCK_BYTES
+                        : i == blocks - 1 ? size - SAMPLE_BLOCK_BYTES : i * stride;
+                block.clear();
+                while (block.hasRemaining()) {
+                    if (channel.read(block, position + block.position()) < 0) {
+                        break;
+                    }
+                }
+                block.flip();
+                digest.update(block);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static Entry read(Path entryFile) {
+        if (!Files.isRegularFile(entryFile)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entryFile)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a digest cache entry");
+            }
+            return new Entry(in.readUTF(), in.readLong(), in.readLong(), in.readUTF(),
+                    in.readUTF(), in.readUTF(), in.readUTF());
+        } catch (IOException e) {
+            log.debug("Ignoring unreadable digest cache entry {}: {}", entryFile, e.toString());
+            return null;
+        }
+    }
+
+    /** Save {@code entry}, or log why it couldn't be; the digests in hand are good either way. */
+    private void write(Path entryFile, Entry entry) {
+        try {
+            CacheFiles.replace(entryFile, out -> {
+                out.writeInt(MAGIC);
+                out.writeUTF(entry.path());
+                out.writeLong(entry.size());
+                out.writeLong(entry.modifiedNanos());
+                out.writeUTF(entry.fileKey());
+                out.writeUTF(entry.sha256());
+                out.writeUTF(entry.gitoid());
+                out.writeUTF(entry.sample());
+            });
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not cache digests in {}: {}", directory, e.toString());
+        }
+    }
+
+    /** An entry's modification time is its last use. */
+    private static void touch(Path entryFile) {
+        try {
+            Files.setLastModifiedTime(entryFile, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            log.debug("Could not mark {} used: {}", entryFile, e.toString());
+        }
+    }
+
+    /** Remove entries unused for {@link #MAX_UNUSED_DAYS} days. */
+    private void evict() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(MAX_UNUSED_DAYS);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                if (path.getFileName().toString().endsWith(SUFFIX)) {
+                    try {
+                        if (Files.getLastModifiedTime(path).toMillis() < cutoff) {
+                            Files.deleteIfExists(path);
+                        }
+                    } catch (IOException ignored) {
+                        // Removed by another process meanwhile.
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Could not list digest cache {}: {}", directory, e.toString());
+        }
+    }
+}
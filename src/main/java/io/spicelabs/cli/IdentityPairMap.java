@@ -0,0 +1,107 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import java.util.Arrays;
+
+/**
+ * A map from object pairs, compared by identity, to {@code long} values, with open addressing
+ * over parallel arrays so that neither a lookup nor an insert allocates. Meant for caching
+ * parser objects that are canonical within a JFR chunk (stack traces, threads, methods): a hit
+ * returns what the slow path worked out last time, a miss ({@link #MISSING}) sends the caller
+ * down it.
+ *
+ * <p>Bounded: once {@code maxSize} pairs are held the map is cleared and starts over, so it
+ * never pins more than that many old chunks' constants.
+ */
+final class IdentityPairMap {
+
+    static final long MISSING = Long.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int maxSize;
+    private Object[] firsts;
+    private Object[] seconds;
+    private long[] values;
+    private int size;
+
+    IdentityPairMap(int maxSize) {
+        this.maxSize = maxSize;
+        this.firsts = new Object[INITIAL_CAPACITY];
+        this.seconds = new Object[INITIAL_CAPACITY];
+        this.values = new long[INITIAL_CAPACITY];
+    }
+
+    /** The value for {@code (first, second)}, or {@link #MISSING}. */
+    long get(Object first, Object second) {
+        int mask = firsts.length - 1;
+        for (int i = hash(first, second) & mask; firsts[i] != null; i = (i + 1) & mask) {
+            if (firsts[i] == first && seconds[i] == second) {
+                return values[i];
+            }
+        }
+        return MISSING;
+    }
+
+    /** Map {@code (first, second)} to {@code value}; {@code first} must not be null. */
+    void put(Object first, Object second, long value) {
+        int mask = firsts.length - 1;
+        int i = hash(first, second) & mask;
+        while (firsts[i] != null) {
+            if (firsts[i] == first && seconds[i] == second) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        if (size >= maxSize) {
+            clear();
+            put(first, second, value);
+            return;
+        }
+        firsts[i] = first;
+        seconds[i] = second;
+        values[i] = value;
+        if (++size * 2 > firsts.length) {
+            grow();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(firsts, null);
+        Arrays.fill(seconds, null);
+        size = 0;
+    }
+
+    private void grow() {
+        Object[] oldFirsts = firsts;
+        Object[] oldSeconds = seconds;
+        long[] oldValues = values;
+        firsts = new Object[oldFirsts.length * 2];
+        seconds = new Object[oldSeconds.length * 2];
+        values = new long[oldValues.length * 2];
+        int mask = firsts.length - 1;
+        for (int j = 0; j < oldFirsts.length; j++) {
+            if (oldFirsts[j] != null) {
+                int i = hash(oldFirsts[j], oldSeconds[j]) & mask;
+                while (firsts[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                firsts[i] = oldFirsts[j];
+                seconds[i] = oldSeconds[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private static int hash(Object first, Object second) {
+        int h = System.identityHashCode(first) * 31 + System.identityHashCode(second);
+        return h ^ (h >>> 16);
+    }
+}
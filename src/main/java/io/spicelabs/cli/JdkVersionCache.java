@@ -0,0 +1,90 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * JDK versions detected before, so a survey doesn't start a Maven JVM or the Gradle launcher just
+ * to ask which JDK it runs on. Keyed by {@link JdkVersionDetector#cacheKey}, which covers every
+ * executable and setting detection depended on, so an entry goes stale by no longer being looked
+ * up rather than by expiring.
+ *
+ * <p>One properties file, its keys the sha256 of the cache keys, which hold paths, so nothing in
+ * it needs escaping. Each put replaces it whole ({@link CacheFiles#replace}); a file that can't be
+ * read counts as empty. Past {@link #MAX_ENTRIES} entries it's started afresh.
+ */
+final class JdkVersionCache {
+
+    private static final Logger log = LoggerFactory.getLogger(JdkVersionCache.class);
+
+    static final int MAX_ENTRIES = 64;
+
+    private final Path file;
+
+    JdkVersionCache(Path file) {
+        this.file = file;
+    }
+
+    /** {@code ~/.spicelabs/jdk-versions.properties}. */
+    static Path defaultFile() {
+        return CacheFiles.defaultPath("jdk-versions.properties");
+    }
+
+    /** The version cached under {@code key}, or null. */
+    JdkVersionDetector.JdkVersion get(String key) {
+        String value = load().getProperty(CacheFiles.sha256Hex(key));
+        if (value == null) {
+            return null;
+        }
+        // major,openjdk|oracle,fullVersion
+        String[] parts = value.split(",", 3);
+        try {
+            return new JdkVersionDetector.JdkVersion(Integer.parseInt(parts[0]), parts[2], "openjdk".equals(parts[1]));
+        } catch (RuntimeException e) {
+            log.debug("Ignoring malformed JDK version cache entry '{}'", value);
+            return null;
+        }
+    }
+
+    /**
+     * Add {@code version} under {@code key}, rewriting the whole file. Concurrent puts race and the
+     * last rename wins, dropping the other's entry; a write that fails is only logged.
+     */
+    void put(String key, JdkVersionDetector.JdkVersion version) {
+        Properties entries = load();
+        if (entries.size() >= MAX_ENTRIES) {
+            entries.clear();
+        }
+        entries.setProperty(CacheFiles.sha256Hex(key),
+                version.major() + "," + (version.isOpenJdk() ? "openjdk" : "oracle") + "," + version.fullVersion());
+        try {
+            // Properties.store to a stream writes ISO-8859-1, as load reads it.
+            CacheFiles.replace(file, out -> entries.store(out, "JDK versions detected by spice survey runtime"));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not cache the detected JDK version in {}: {}", file, e.toString());
+        }
+    }
+
+    private Properties load() {
+        Properties entries = new Properties();
+        if (Files.isRegularFile(file)) {
+            try (Reader in = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+                entries.load(in);
+            } catch (IOException | RuntimeException e) {
+                log.debug("Ignoring unreadable JDK version cache {}: {}", file, e.toString());
+                entries.clear();
+            }
+        }
+        return entries;
+    }
+}
@@ -3,8 +3,21 @@
 
 package io.spicelabs.cli;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -12,8 +25,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Detects the JDK version of the target JVM by running {@code java -version},
- * {@code mvn -version}, or {@code gradle --version} and parsing the output.
+ * Detects the JDK version of the target JVM from the {@code release} file of the JDK the command
+ * would run on, or failing that by running {@code java -version}, {@code mvn -version}, or
+ * {@code gradle --version} and parsing the output.
  *
  * <p>Used to determine the correct JAVA_TOOL_OPTIONS strategy for JFR recording:
  * <ul>
@@ -23,11 +37,18 @@ import org.slf4j.LoggerFactory;
  *   <li>JDK 11-17: modern JFR, no {@code %p} PID substitution in filename
  *   <li>JDK 18+: {@code %p} PID substitution in JFR filename
  * </ul>
+ *
+ * <p>Reading {@code release} takes milliseconds and runs nothing. The version commands start a JVM
+ * of their own and take seconds, so {@link #detect(String, JdkVersionCache)} caches what they
+ * report, and each is killed after {@link #COMMAND_TIMEOUT}, falling back to {@code java -version}.
  */
 public class JdkVersionDetector {
 
     private static final Logger log = LoggerFactory.getLogger(JdkVersionDetector.class);
 
+    /** How long a version command may run before it's killed. */
+    static final Duration COMMAND_TIMEOUT = Duration.ofSeconds(15);
+
     // Matches: openjdk version "21.0.1" or java version "1.8.0_362" etc.
     private static final Pattern JAVA_VERSION_PATTERN =
             Pattern.compile("(?:openjdk|java)\\s+version\\s+\"([^\"]+)\"", Pattern.CASE_INSENSITIVE);
@@ -64,6 +85,15 @@ public class JdkVersionDetector {
             return major == 8 && !isOpenJdk;
         }
 
+        /**
+         * Whether this JDK's disk repository can be streamed to the end (JDK 21+). Event streaming
+         * came in 14, but before {@code preserve-repository} a JVM deletes its chunks as it exits,
+         * which ends a stream cleanly without its last ones.
+         */
+        public boolean supportsEventStreaming() {
+            return major >= 21;
+        }
+
         /** Whether the built-in JFR parser in the CLI can process recordings from this JDK. */
         public boolean supportedByCliParser() {
             return major >= 11;
@@ -76,20 +106,48 @@ public class JdkVersionDetector {
     }
 
     /**
-     * Detect JDK version by running the appropriate version command.
+     * Detect JDK version from the {@code release} file of the JDK the command runs on, else by
+     * running the appropriate version command.
      *
      * @param command the first word of the user's command (e.g., "java", "mvn", "gradle")
      * @return detected JDK version, or null if detection fails
      */
     public static JdkVersion detect(String command) {
+        return detect(command, null);
+    }
+
+    /**
+     * Detect JDK version as {@link #detect(String)} does, using and filling {@code cache} (if not
+     * null) for what the version commands report. A version found after a command timed out is a
+     * fallback guess and isn't cached.
+     */
+    public static JdkVersion detect(String command, JdkVersionCache cache) {
         if (command == null || command.isBlank()) {
             return null;
         }
 
-        String baseCommand = command.contains("/") ? command.substring(command.lastIndexOf('/') + 1) : command;
+        JdkVersion fromRelease = detectFromRelease(command);
+        if (fromRelease != null) {
+            log.debug("Read JDK version {} from the release file of '{}'", fromRelease.fullVersion(), command);
+            return fromRelease;
+        }
+        return detectByRunning(command, cache);
+    }
+
+    /** Detect JDK version by running the version command, through {@code cache} if not null. */
+    static JdkVersion detectByRunning(String command, JdkVersionCache cache) {
+        String baseCommand = baseCommand(command);
+        String key = cache != null ? cacheKey(command) : null;
+        if (key != null) {
+            JdkVersion cached = cache.get(key);
+            if (cached != null) {
+                log.debug("Using cached JDK version {} for '{}'", cached.fullVersion(), command);
+                return cached;
+            }
+        }
 
         try {
-            return switch (baseCommand.toLowerCase()) {
+            JdkVersion version = switch (baseCommand.toLowerCase()) {
                 case "java" -> detectFromJava(command);
                 case "mvn", "mvnw", "./mvnw" -> detectFromMaven(command);
                 case "gradle", "gradlew", "./gradlew" -> detectFromGradle(command);
@@ -99,12 +157,95 @@ public class JdkVersionDetector {
                     yield detectFromJava("java");
                 }
             };
+            if (version != null && key != null) {
+                cache.put(key, version);
+            }
+            return version;
+        } catch (TimeoutException e) {
+            if (baseCommand.equalsIgnoreCase("java")) {
+                log.warn("{}", e.getMessage());
+                return null;
+            }
+            log.warn("{}; trying 'java -version' instead", e.getMessage());
+            try {
+                return detectFromJava("java");
+            } catch (Exception fallback) {
+                log.warn("Failed to detect JDK version from 'java': {}", fallback.getMessage());
+                return null;
+            }
         } catch (Exception e) {
             log.warn("Failed to detect JDK version from '{}': {}", command, e.getMessage());
             return null;
         }
     }
 
+    /**
+     * What detecting from {@code command} depends on: the real path and modification time of the
+     * executable run — {@code java} on the PATH for a command that isn't java, mvn or gradle — and
+     * for mvn and gradle, of the {@code java} on the PATH too; and {@code JAVA_HOME}, with its
+     * {@code bin/java}'s, so a JDK upgraded in place is detected again. Null if the executable
+     * can't be found, so nothing is cached for it.
+     */
+    static String cacheKey(String command) {
+        String probe = switch (baseCommand(command).toLowerCase()) {
+            case "java", "mvn", "mvnw", "gradle", "gradlew" -> command;
+            default -> "java";
+        };
+        Path executable = resolveExecutable(probe);
+        if (executable == null) {
+            return null;
+        }
+        List<String> parts = new ArrayList<>();
+        parts.add(fingerprint(executable));
+        if (!baseCommand(probe).equalsIgnoreCase("java")) {
+            parts.add("PATH java=" + fingerprint(resolveExecutable("java")));
+        }
+        String javaHome = System.getenv("JAVA_HOME");
+        parts.add("JAVA_HOME=" + (javaHome == null ? "" : javaHome + " " + fingerprint(Paths.get(javaHome, "bin", "java"))));
+        return String.join("\n", parts);
+    }
+
+    private static String baseCommand(String command) {
+        return command.contains("/") ? command.substring(command.lastIndexOf('/') + 1) : command;
+    }
+
+    /** {@code command} as a path if it names one, else the first match on the PATH; null if none. */
+    static Path resolveExecutable(String command) {
+        if (command.contains("/") || command.contains(File.separator)) {
+            Path path = Paths.get(command);
+            return Files.isRegularFile(path) ? path : null;
+        }
+        String pathVar = System.getenv("PATH");
+        if (pathVar == null) {
+            return null;
+        }
+        boolean windows = File.separatorChar == '\\';
+        for (String dir : pathVar.split(File.pathSeparator)) {
+            if (dir.isEmpty()) {
+                continue;
+            }
+            for (String name : windows ? List.of(command, command + ".exe", command + ".cmd", command + ".bat") : List.of(command)) {
+                Path candidate = Paths.get(dir, name);
+                if (Files.isRegularFile(candidate) && Files.isExecutable(candidate)) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String fingerprint(Path path) {
+        if (path == null) {
+            return "-";
+        }
+        try {
+            Path real = path.toRealPath();
+            return real + "@" + Files.getLastModifiedTime(real).to(TimeUnit.NANOSECONDS);
+        } catch (IOException e) {
+            return "-";
+        }
+    }
+
     /**
      * Parse a version string directly (for testing or when version output is already available).
      *
@@ -130,6 +271,89 @@ public class JdkVersionDetector {
         return null;
     }
 
+    /**
+     * The JDK {@code command} would run on, read from its home's {@code release} file without
+     * running anything. java's home is found by resolving it through its symlinks; mvn and gradle
+     * run on {@code JAVA_HOME}, else the {@code java} on the PATH, as does any other command.
+     * Null if there's no {@code release} file or it doesn't settle the version.
+     */
+    static JdkVersion detectFromRelease(String command) {
+        Path javaHome = switch (baseCommand(command).toLowerCase()) {
+            case "java" -> homeOf(resolveExecutable(command));
+            case "mvn", "mvnw", "gradle", "gradlew" -> {
+                String env = System.getenv("JAVA_HOME");
+                yield env != null && !env.isBlank() ? Paths.get(env) : homeOf(resolveExecutable("java"));
+            }
+            default -> homeOf(resolveExecutable("java"));
+        };
+        return javaHome != null ? readRelease(javaHome) : null;
+    }
+
+    /** The JDK home of a {@code java} executable: its real path's {@code bin}'s parent. */
+    private static Path homeOf(Path java) {
+        if (java == null) {
+            return null;
+        }
+        try {
+            Path bin = java.toRealPath().getParent();
+            return bin != null ? bin.getParent() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** The version in {@code javaHome}'s {@code release} file, or its JDK's for a JDK 8 {@code jre}. */
+    static JdkVersion readRelease(Path javaHome) {
+        Path release = javaHome.resolve("release");
+        if (!Files.isRegularFile(release) && javaHome.getFileName() != null
+                && javaHome.getFileName().toString().equals("jre") && javaHome.getParent() != null) {
+            release = javaHome.getParent().resolve("release");
+        }
+        if (!Files.isRegularFile(release)) {
+            return null;
+        }
+        try {
+            return parseRelease(Files.readString(release, StandardCharsets.ISO_8859_1));
+        } catch (IOException e) {
+            log.debug("Could not read {}: {}", release, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Parse a JDK {@code release} file: {@code JAVA_VERSION}, and whether it's an Oracle JDK,
+     * which is {@code BUILD_TYPE="commercial"}. Null if it has no version, or it's a JDK 8 whose
+     * vendor it doesn't name, as Oracle's JDK 8 builds don't — those need {@code java -version}
+     * to tell whether JFR is a commercial feature.
+     */
+    static JdkVersion parseRelease(String releaseContent) {
+        Properties release = new Properties();
+        try (Reader in = new StringReader(releaseContent)) {
+            release.load(in);
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+        String fullVersion = unquote(release.getProperty("JAVA_VERSION"));
+        int major = parseMajorVersion(fullVersion);
+        if (major < 1) {
+            return null;
+        }
+        boolean commercial = "commercial".equals(unquote(release.getProperty("BUILD_TYPE")));
+        String implementor = unquote(release.getProperty("IMPLEMENTOR"));
+        if (major == 8 && !commercial && (implementor == null || implementor.equals("Oracle Corporation"))) {
+            return null;
+        }
+        return new JdkVersion(major, fullVersion, !commercial);
+    }
+
+    private static String unquote(String value) {
+        if (value == null) {
+            return null;
+        }
+        String v = value.strip();
+        return v.length() >= 2 && v.startsWith("\"") && v.endsWith("\"") ? v.substring(1, v.length() - 1) : v;
+    }
+
     static JdkVersion detectFromJava(String javaCommand) throws Exception {
         String output = runCommand(javaCommand, "-version");
         return parseJavaVersionOutput(output);
@@ -173,6 +397,34 @@ public class JdkVersionDetector {
         return detectFromJava("java");
     }
 
+    /**
+     * Parse a {@code --jdk-version} value: a version, optionally suffixed {@code -oracle} or
+     * {@code -openjdk}. Without a vendor it's OpenJDK, except that a JDK 8 takes its vendor from
+     * {@code detected} (when that finds a JDK 8 too), since that decides whether JFR is a
+     * commercial feature. Null if the value has no version.
+     */
+    static JdkVersion parseVersionOption(String value, Supplier<JdkVersion> detected) {
+        String version = value.strip();
+        Boolean isOpenJdk = null;
+        String lower = version.toLowerCase();
+        if (lower.endsWith("-oracle")) {
+            version = version.substring(0, version.length() - "-oracle".length());
+            isOpenJdk = false;
+        } else if (lower.endsWith("-openjdk")) {
+            version = version.substring(0, version.length() - "-openjdk".length());
+            isOpenJdk = true;
+        }
+        int major = parseMajorVersion(version);
+        if (major < 1) {
+            return null;
+        }
+        if (isOpenJdk == null) {
+            JdkVersion vendor = major == 8 ? detected.get() : null;
+            isOpenJdk = vendor == null || vendor.major() != 8 || vendor.isOpenJdk();
+        }
+        return new JdkVersion(major, version, isOpenJdk);
+    }
+
     /**
      * Parse the major version number from a version string.
      * Handles both old-style (1.8.0_362) and new-style (21.0.1) formats.
@@ -196,20 +448,32 @@ public class JdkVersionDetector {
      * Run a command and capture stderr + stdout (java -version writes to stderr).
      */
     static String runCommand(String... args) throws Exception {
-        ProcessBuilder pb = new ProcessBuilder(args);
-        pb.redirectErrorStream(true);
-        Process process = pb.start();
-
-        StringBuilder output = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
+        return runCommand(COMMAND_TIMEOUT, args);
+    }
+
+    /**
+     * Run a command as {@link #runCommand(String...)} does, killing it and whatever it started if
+     * it's still running after {@code timeout}. Output goes to a file, not a pipe: a daemon the
+     * command leaves behind holding the pipe open would keep a reader waiting.
+     */
+    static String runCommand(Duration timeout, String... args) throws IOException, InterruptedException, TimeoutException {
+        Path output = Files.createTempFile("spice-jdk-version", ".out");
+        try {
+            ProcessBuilder pb = new ProcessBuilder(args);
+            pb.redirectErrorStream(true);
+            pb.redirectOutput(output.toFile());
+            Process process = pb.start();
+
+            if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                process.descendants().forEach(ProcessHandle::destroyForcibly);
+                process.destroyForcibly();
+                throw new TimeoutException("'" + String.join(" ", args) + "' did not report a JDK version within "
+                        + timeout.toSeconds() + "s");
             }
+            log.debug("Command '{}' exited with code {}", String.join(" ", args), process.exitValue());
+            return new String(Files.readAllBytes(output));
+        } finally {
+            Files.deleteIfExists(output);
         }
-
-        int exitCode = process.waitFor();
-        log.debug("Command '{}' exited with code {}", String.join(" ", args), exitCode);
-        return output.toString();
     }
 }
@@ -0,0 +1,129 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a JFR recording file at chunk boundaries.
+ *
+ * <p>A recording file is a sequence of self-contained chunks, each with its own metadata and
+ * constant pools, so every chunk can be parsed on its own — the same property {@code jfr
+ * assemble} / {@code jfr disassemble} rely on. Each chunk starts with a fixed header: the magic
+ * {@code FLR\0}, a major/minor version, the chunk size in bytes, the constant pool and metadata
+ * offsets, then the wall-clock time span the chunk covers (all big-endian).
+ */
+final class JfrChunks {
+
+    private static final byte[] MAGIC = { 'F', 'L', 'R', '\0' };
+    private static final int CHUNK_SIZE_POSITION = 8;
+    private static final int START_NANOS_POSITION = 32;
+    private static final int DURATION_NANOS_POSITION = 40;
+    private static final int HEADER_SIZE = 68;
+
+    /**
+     * One chunk of a recording: {@code size} bytes starting at {@code offset}, holding events from
+     * {@code startNanos} (since the epoch) for {@code durationNanos}. The span is 0 when unknown.
+     */
+    record Chunk(long offset, long size, long startNanos, long durationNanos) {
+        Chunk(long offset, long size) {
+            this(offset, size, 0, 0);
+        }
+    }
+
+    private JfrChunks() {}
+
+    /**
+     * The chunks of {@code recording}, in file order. Returns a single chunk spanning the whole
+     * file when the headers don't describe a clean sequence (a truncated or still-being-written
+     * recording), so callers fall back to parsing the file as one unit.
+     */
+    static List<Chunk> split(Path recording) throws IOException {
+        try (FileChannel ch = FileChannel.open(recording, StandardOpenOption.READ)) {
+            long fileSize = ch.size();
+            List<Chunk> chunks = new ArrayList<>();
+            ByteBuffer header = ByteBuffer.allocate(DURATION_NANOS_POSITION + Long.BYTES);
+            long offset = 0;
+            while (offset < fileSize) {
+                header.clear();
+                if (fileSize - offset < HEADER_SIZE || !readFully(ch, header, offset) || !hasMagic(header)) {
+                    return List.of(new Chunk(0, fileSize));
+                }
+                long size = header.getLong(CHUNK_SIZE_POSITION);
+                if (size < HEADER_SIZE || size > fileSize - offset) {
+                    return List.of(new Chunk(0, fileSize));
+                }
+                chunks.add(new Chunk(offset, size,
+                        header.getLong(START_NANOS_POSITION), header.getLong(DURATION_NANOS_POSITION)));
+                offset += size;
+            }
+            return chunks;
+        }
+    }
+
+    /**
+     * Roughly how far into the file {@code chunks} make up a parse has read once it reaches events
+     * from {@code epochNanos}: the offset of the chunk spanning that time, plus the part of its
+     * size proportional to how far into its span the time is. Events are written about in time
+     * order, so this tracks the parse without seeing the file position. A chunk without a span
+     * counts as not yet read.
+     */
+    static long offsetAt(List<Chunk> chunks, long epochNanos) {
+        long offset = 0;
+        for (Chunk chunk : chunks) {
+            if (chunk.startNanos() > epochNanos) {
+                break;
+            }
+            long elapsed = epochNanos - chunk.startNanos();
+            if (chunk.durationNanos() <= 0) {
+                offset = chunk.offset();
+            } else if (elapsed >= chunk.durationNanos()) {
+                offset = chunk.offset() + chunk.size();
+            } else {
+                offset = chunk.offset() + (long) ((double) chunk.size() * elapsed / chunk.durationNanos());
+            }
+        }
+        return offset;
+    }
+
+    /** Copy one chunk of {@code recording} into {@code target}, which becomes a valid recording file. */
+    static void copy(Path recording, Chunk chunk, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(recording, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long copied = 0;
+            while (copied < chunk.size()) {
+                long n = in.transferTo(chunk.offset() + copied, chunk.size() - copied, out);
+                if (n <= 0) {
+                    throw new IOException("Unexpected end of " + recording + " at offset " + (chunk.offset() + copied));
+                }
+                copied += n;
+            }
+        }
+    }
+
+    private static boolean readFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, position + buf.position());
+            if (n < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasMagic(ByteBuffer header) {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header.get(i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
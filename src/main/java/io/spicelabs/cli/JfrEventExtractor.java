@@ -3,20 +3,51 @@
 
 package io.spicelabs.cli;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import jdk.jfr.EventType;
+import jdk.jfr.consumer.EventStream;
 import jdk.jfr.consumer.RecordedEvent;
 import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedMethod;
 import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
 import jdk.jfr.consumer.RecordingFile;
 
 /**
@@ -33,8 +64,26 @@ public class JfrEventExtractor {
 
     private static final Logger log = LoggerFactory.getLogger(JfrEventExtractor.class);
 
-    /** Maximum distinct events before truncation warning. */
-    private static final int MAX_DISTINCT_EVENTS = 100_000;
+    /**
+     * Distinct loaded classes a parse holds in heap; past this (or when the heap runs low) they
+     * spill to disk, see {@link LoadedClassStore}.
+     */
+    static final int SPILL_THRESHOLD_CLASSES = 100_000;
+
+    /** Event-name prefix of the agent's per-probe event types. */
+    static final String PROBE_EVENT_PREFIX = "spice.probe.";
+
+    /**
+     * Recordings at least this large are split at chunk boundaries when parsing on more than one
+     * thread. JFR rotates chunks at 12 MB by default, so anything smaller is usually one chunk.
+     */
+    static final long CHUNK_SPLIT_THRESHOLD_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * Version of what a recording accumulates and of {@link Accumulators#writeTo}'s snapshot.
+     * {@link RecordingCache} entries are keyed by it: bump it with any change to either.
+     */
+    static final int EXTRACTOR_VERSION = 3;
 
     // ── Data model (raw, no categorization) ─────────────────────────────
 
@@ -50,7 +99,8 @@ public class JfrEventExtractor {
             List<CertificateRecord> certificates,
             List<SecurityProperty> securityProperties,
             List<LoadedClass> loadedClasses,
-            Anchor anchor
+            Anchor anchor,
+            @JsonInclude(JsonInclude.Include.NON_NULL) Degradation degradation
     ) {
         public static Builder builder() {
             return new Builder();
@@ -63,7 +113,7 @@ public class JfrEventExtractor {
                     .recordings(recordings).probeEvents(probeEvents)
                     .securityProviderEvents(securityProviderEvents).tlsHandshakes(tlsHandshakes)
                     .certificates(certificates).securityProperties(securityProperties)
-                    .loadedClasses(loadedClasses).anchor(anchor);
+                    .loadedClasses(loadedClasses).anchor(anchor).degradation(degradation);
         }
 
         /** Builder so callers don't pass a dozen positional args. */
@@ -80,6 +130,7 @@ public class JfrEventExtractor {
             private List<SecurityProperty> securityProperties;
             private List<LoadedClass> loadedClasses;
             private Anchor anchor;
+            private Degradation degradation;
 
             public Builder version(String v) { this.version = v; return this; }
             public Builder type(String v) { this.type = v; return this; }
@@ -93,11 +144,12 @@ public class JfrEventExtractor {
             public Builder securityProperties(List<SecurityProperty> v) { this.securityProperties = v; return this; }
             public Builder loadedClasses(List<LoadedClass> v) { this.loadedClasses = v; return this; }
             public Builder anchor(Anchor v) { this.anchor = v; return this; }
+            public Builder degradation(Degradation v) { this.degradation = v; return this; }
 
             public RawSurveyData build() {
                 return new RawSurveyData(version, type, subject, runtime, recordings, probeEvents,
                         securityProviderEvents, tlsHandshakes, certificates, securityProperties,
-                        loadedClasses, anchor);
+                        loadedClasses, anchor, degradation);
             }
         }
     }
@@ -109,6 +161,15 @@ public class JfrEventExtractor {
      */
     public record Anchor(String path, String sha256, String gitoid) {}
 
+    /**
+     * Detail the parse shed to keep within its {@link MemoryBudget}, which makes the survey lossy;
+     * absent when nothing was. {@code shed} lists it in the order it went, from
+     * {@code callSites} (capped at the most frequent few per event), {@code threadNames} (call
+     * sites' threads dropped) to {@code callerGitoids} (probe events' {@code callerClassIds}
+     * dropped, null). Event counts are exact either way.
+     */
+    public record Degradation(List<String> shed) {}
+
     public record RuntimeInfo(
             String jvmVersion,
             String jvmName,
@@ -160,7 +221,22 @@ public class JfrEventExtractor {
             boolean modified
     ) {}
 
-    public record CallSite(String className, String location, String thread) {}
+    /**
+     * An application call site of an event. {@code count} and {@code countError} are only set
+     * when call sites are capped ({@link ParseOptions#maxCallSites}): the site's hit count, which
+     * may overestimate the true count by at most {@code countError}.
+     */
+    public record CallSite(
+            String className,
+            String location,
+            String thread,
+            @JsonInclude(JsonInclude.Include.NON_NULL) Long count,
+            @JsonInclude(JsonInclude.Include.NON_NULL) Long countError
+    ) {
+        public CallSite(String className, String location, String thread) {
+            this(className, location, thread, null, null);
+        }
+    }
 
     /**
      * A class loaded at runtime, hashed identically to goatrodeo's inventory hashes so the two
@@ -195,24 +271,20 @@ public class JfrEventExtractor {
         final String methodName;
         final String probeLabel;
         long count;
-        final List<CallSite> callSites = new ArrayList<>();
-        final Set<String> seenSites = new LinkedHashSet<>();
+        final CallSites callSites;
         // Class linking: declaring-class gitoid (constant per probe) + caller-class gitoids.
         String classGitoid;
         final Set<String> callerGitoids = new LinkedHashSet<>();
+        // Raw callerGitoids values already split into callerGitoids; the same few recur.
+        final Set<String> seenCallerValues = new HashSet<>();
 
-        ProbeAccumulator(String eventType, String classFqn, String methodName, String probeLabel) {
+        ProbeAccumulator(String eventType, String classFqn, String methodName, String probeLabel,
+                         CallSites callSites) {
             this.eventType = eventType;
             this.classFqn = classFqn;
             this.methodName = methodName;
             this.probeLabel = probeLabel;
-        }
-
-        void addCallSite(String className, String location, String thread) {
-            String key = location + "|" + (thread != null ? thread : "");
-            if (seenSites.add(key)) {
-                callSites.add(new CallSite(className, location, thread));
-            }
+            this.callSites = callSites;
         }
     }
 
@@ -220,18 +292,990 @@ public class JfrEventExtractor {
         final String algorithm;
         final String serviceType;
         long count;
-        final List<CallSite> callSites = new ArrayList<>();
-        final Set<String> seenSites = new LinkedHashSet<>();
+        final CallSites callSites;
 
-        SecurityProviderAccumulator(String algorithm, String serviceType) {
+        SecurityProviderAccumulator(String algorithm, String serviceType, CallSites callSites) {
             this.algorithm = algorithm;
             this.serviceType = serviceType;
+            this.callSites = callSites;
+        }
+    }
+
+    /**
+     * Application call sites of one event key with their hit counts, in a
+     * {@link SpaceSavingSketch}: all of them, in first-seen order, unless capped at
+     * {@code maxCallSites}, in which case the most frequent are kept, highest count first. A site
+     * is a packed pair of longs — (class, method) and (line, thread), names as ids in the owning
+     * {@link Accumulators}' {@link SymbolTable} — so the same class or thread shared by many sites
+     * is stored once; {@link CallSite} records and their location strings are only built at
+     * materialization.
+     *
+     * <p>Stack traces and threads are canonical objects within a chunk, so a (stack trace, thread)
+     * pair seen before is recognized by identity, and its cached sketch slot is counted before any
+     * frame is touched: repeat events from the same site allocate nothing. A new pair whose stack
+     * trace is known takes its application frame from {@link ResolvedStacks}.
+     *
+     * <p>Under memory pressure they can be {@link #shed} down to fewer sites, or to sites without
+     * their threads.
+     */
+    private static final class CallSites {
+        private static final int MAX_SEEN_STACKS = 4096;
+        // Cached for stacks without an application frame; slots are cached as generation << 32 | slot.
+        private static final long NO_SITE = -1L;
+
+        private SpaceSavingSketch sites;
+        private final IdentityPairMap seenStacks = new IdentityPairMap(MAX_SEEN_STACKS);
+        // False once thread names are shed: every site's thread is then null.
+        private boolean threads = true;
+
+        CallSites(int maxSites) {
+            this.sites = new SpaceSavingSketch(maxSites);
+        }
+
+        /** Count the first application frame of {@code stackTrace}, if it has one. */
+        void add(RecordedStackTrace stackTrace, RecordedThread thread, ResolvedStacks stacks) {
+            if (stackTrace == null) {
+                return;
+            }
+            long cached = seenStacks.get(stackTrace, thread);
+            if (cached == NO_SITE) {
+                stacks.lookups++;
+                stacks.hits++;
+                return;
+            }
+            if (cached != IdentityPairMap.MISSING && sites.generation(low(cached)) == high(cached)) {
+                stacks.lookups++;
+                stacks.hits++;
+                sites.increment(low(cached), 1);
+                return;
+            }
+            ResolvedStacks.AppFrame frame = stacks.appFrame(stackTrace);
+            if (frame == null) {
+                seenStacks.put(stackTrace, thread, NO_SITE);
+                return;
+            }
+            SymbolTable symbols = stacks.symbols;
+            int slot = sites.offer(frame.names(),
+                    pack(frame.line(), symbols.intern(threads && thread != null ? thread.getJavaName() : null)), 1, 0);
+            seenStacks.put(stackTrace, thread, pack(sites.generation(slot), slot));
+        }
+
+        /**
+         * Add {@code other}'s sites and counts, translating their ids from {@code from} into
+         * {@code to}. Exact when uncapped; capped, the merged counts keep the Space-Saving error
+         * bound, though which low-count sites survive can depend on how the parse was split.
+         */
+        void addAll(CallSites other, SymbolTable from, SymbolTable to) {
+            SpaceSavingSketch theirs = other.sites;
+            for (int slot : theirs.slotsInArrivalOrder()) {
+                long names = theirs.first(slot);
+                long lineAndThread = theirs.second(slot);
+                sites.offer(pack(to.intern(from.symbol(high(names))), to.intern(from.symbol(low(names)))),
+                        pack(high(lineAndThread), to.intern(from.symbol(low(lineAndThread)))),
+                        theirs.count(slot), theirs.error(slot));
+            }
+        }
+
+        /**
+         * Shed what {@code level} calls for, from these sites and from those still to come: from
+         * {@link MemoryBudget.Level#CALL_SITES} on, keep only the
+         * {@value MemoryBudget#DEGRADED_MAX_CALL_SITES} most frequent, with counts; from
+         * {@link MemoryBudget.Level#THREAD_NAMES} on, drop their threads, adding up the sites that
+         * differ only in them. When capping, sites are offered highest count first, so those kept
+         * are the top ones.
+         */
+        void shed(MemoryBudget.Level level, SymbolTable symbols) {
+            int capacity = level.atLeast(MemoryBudget.Level.CALL_SITES)
+                    ? Math.min(sites.capacity(), MemoryBudget.DEGRADED_MAX_CALL_SITES)
+                    : sites.capacity();
+            boolean keepThreads = threads && !level.atLeast(MemoryBudget.Level.THREAD_NAMES);
+            if (capacity == sites.capacity() && keepThreads == threads) {
+                return;
+            }
+            SpaceSavingSketch shed = new SpaceSavingSketch(capacity);
+            int noThread = symbols.intern(null);
+            int[] slots = capacity < sites.capacity() ? sites.slotsByCount() : sites.slotsInArrivalOrder();
+            for (int slot : slots) {
+                long lineAndThread = sites.second(slot);
+                shed.offer(sites.first(slot), keepThreads ? lineAndThread : pack(high(lineAndThread), noThread),
+                        sites.count(slot), sites.error(slot));
+            }
+            sites = shed;
+            threads = keepThreads;
+            seenStacks.clear();
+        }
+
+        /** Re-express these sites' ids, from {@code from}, in {@code to}. */
+        void rebase(SymbolTable from, SymbolTable to) {
+            CallSites rebased = new CallSites(sites.capacity());
+            rebased.addAll(this, from, to);
+            sites = rebased.sites;
+            seenStacks.clear();
+        }
+
+        /** The sites and their counts in arrival order, ids as they are; see {@link #readFrom}. */
+        void writeTo(DataOutputStream out) throws IOException {
+            int[] slots = sites.slotsInArrivalOrder();
+            out.writeInt(slots.length);
+            for (int slot : slots) {
+                out.writeLong(sites.first(slot));
+                out.writeLong(sites.second(slot));
+                out.writeLong(sites.count(slot));
+                out.writeLong(sites.error(slot));
+            }
+        }
+
+        static CallSites readFrom(DataInputStream in, int maxSites) throws IOException {
+            CallSites callSites = new CallSites(maxSites);
+            for (int n = in.readInt(); n > 0; n--) {
+                callSites.sites.offer(in.readLong(), in.readLong(), in.readLong(), in.readLong());
+            }
+            return callSites;
+        }
+
+        List<CallSite> toList(SymbolTable symbols) {
+            boolean counted = sites.bounded();
+            int[] slots = counted ? sites.slotsByCount() : sites.slotsInArrivalOrder();
+            List<CallSite> callSites = new ArrayList<>(slots.length);
+            for (int slot : slots) {
+                String className = symbols.symbol(high(sites.first(slot)));
+                String methodName = symbols.symbol(low(sites.first(slot)));
+                int lineNumber = high(sites.second(slot));
+                String thread = symbols.symbol(low(sites.second(slot)));
+                callSites.add(new CallSite(className,
+                        className + "." + methodName + "() line " + lineNumber, thread,
+                        counted ? sites.count(slot) : null, counted ? sites.error(slot) : null));
+            }
+            return callSites;
+        }
+
+        private static long pack(int high, int low) {
+            return ((long) high << 32) | (low & 0xFFFFFFFFL);
+        }
+
+        private static int high(long packed) {
+            return (int) (packed >> 32);
+        }
+
+        private static int low(long packed) {
+            return (int) packed;
+        }
+    }
+
+    /**
+     * The first application frame of each stack trace, resolved once and shared by every call-site
+     * set of one {@link Accumulators}: stack traces are canonical within a chunk, so a stack seen
+     * before — on another thread, or by another event key — costs one identity lookup instead of a
+     * walk of its frames. Bounded like the other identity caches, so it holds the stacks of the
+     * current chunk and never pins more than a few old ones. {@link #hits} out of
+     * {@link #lookups} is its hit rate, counting the call-site sets' own (stack, thread) caches.
+     */
+    private static final class ResolvedStacks {
+        /** The frame's (class, method) ids, packed as in {@link CallSites}, and its line. */
+        record AppFrame(long names, int line) {}
+
+        // Cached for stacks without an application frame.
+        private static final AppFrame NONE = new AppFrame(0, 0);
+
+        final SymbolTable symbols;
+        private final AppFrameFilter appFrames;
+        private final Map<RecordedStackTrace, AppFrame> frames = new IdentityHashMap<>();
+        long lookups;
+        long hits;
+
+        ResolvedStacks(SymbolTable symbols, AppFrameFilter appFrames) {
+            this.symbols = symbols;
+            this.appFrames = appFrames;
+        }
+
+        /** The first application frame of {@code stackTrace}, or null if it has none. */
+        AppFrame appFrame(RecordedStackTrace stackTrace) {
+            lookups++;
+            AppFrame frame = frames.get(stackTrace);
+            if (frame != null) {
+                hits++;
+            } else {
+                frame = resolve(stackTrace);
+                if (frames.size() >= CallSites.MAX_SEEN_STACKS) {
+                    frames.clear();
+                }
+                frames.put(stackTrace, frame);
+            }
+            return frame == NONE ? null : frame;
+        }
+
+        private AppFrame resolve(RecordedStackTrace stackTrace) {
+            List<RecordedFrame> stack = stackTrace.getFrames();
+            for (int i = 0; i < stack.size(); i++) {
+                RecordedFrame frame = stack.get(i);
+                RecordedMethod method = frame.getMethod();
+                String cn = method.getType().getName();
+                if (appFrames.isApplicationCode(cn)) {
+                    return new AppFrame(CallSites.pack(symbols.intern(cn), symbols.intern(method.getName())),
+                            frame.getLineNumber());
+                }
+            }
+            return NONE;
+        }
+    }
+
+    /**
+     * Everything about a probe event type that is the same for each of its events, resolved on
+     * the type's first event and then looked up by {@link EventType} identity.
+     */
+    private static final class ProbeType {
+        final String eventType;
+        final String label;
+        final String classFqn;   // from the probe config; null means "take it from the stack"
+        final String methodName;
+        final boolean hasClassGitoid;
+        final boolean hasCallerGitoids;
+        // The accumulator, once known, when the probe config names class and method...
+        ProbeAccumulator configured;
+        // ...else per stack trace (by identity), as the top frame decides it...
+        final Map<RecordedStackTrace, ProbeAccumulator> byStackTrace = new IdentityHashMap<>();
+        // ...else, with no frames to go on, the event type's own.
+        ProbeAccumulator unknown;
+
+        ProbeType(EventType type, Map<String, ProbeDefinition> probeIndex) {
+            this.eventType = type.getName();
+            String probeLabel = null;
+            try {
+                probeLabel = type.getLabel();
+            } catch (Exception ignored) {}
+            ProbeDefinition def = probeIndex != null ? probeIndex.get(eventType) : null;
+            if (def != null && probeLabel == null) {
+                probeLabel = def.label();
+            }
+            this.label = probeLabel;
+            this.classFqn = def != null ? def.classFqn() : null;
+            this.methodName = def != null ? def.method() : null;
+            this.hasClassGitoid = type.getField("classGitoid") != null;
+            this.hasCallerGitoids = type.getField("callerGitoids") != null;
+        }
+    }
+
+    /** Handles the events of one type. */
+    @FunctionalInterface
+    private interface EventHandler {
+        void handle(RecordedEvent event);
+    }
+
+    private static final EventHandler IGNORED = event -> {};
+
+    // Event types resolved per Accumulators before the cache starts over.
+    private static final int MAX_EVENT_TYPES = 4096;
+
+    /**
+     * Everything parsed out of one recording: the per-key accumulators plus the runtime info.
+     * Recordings are parsed into their own instance (possibly on separate workers) and then
+     * {@link #merge merged} in recording order, which yields exactly what a single serial pass
+     * over all recordings would have accumulated.
+     */
+    static final class Accumulators {
+        final Map<String, ProbeDefinition> probeIndex;
+        final int maxCallSites;
+        final Map<ProbeKey, ProbeAccumulator> probeMap = new LinkedHashMap<>();
+        final Map<SecurityProviderKey, SecurityProviderAccumulator> secProvMap = new LinkedHashMap<>();
+        final Map<TlsKey, long[]> tlsMap = new LinkedHashMap<>();
+        final Map<String, CertificateRecord> certMap = new LinkedHashMap<>();
+        final Map<String, SecurityProperty> secPropMap = new LinkedHashMap<>();
+        final LoadedClassStore loadedClasses;
+        // Resolved per event type (by identity) on its first event; see accept.
+        private final Map<EventType, EventHandler> handlers = new IdentityHashMap<>();
+        private final Map<EventType, ProbeType> probeTypes = new IdentityHashMap<>();
+        // Class, method and thread names of every call site above.
+        final SymbolTable symbols = new SymbolTable();
+        final ResolvedStacks stacks;
+        // Per event type and per recording; counted by the handlers accept resolves.
+        final ParseStats stats = new ParseStats();
+        // Keys the event handlers have created, counted where they insert them, for stats.
+        private long keysCreated;
+        // For parseFile to estimate how far into the file the parse is.
+        RecordedEvent latestEvent;
+        // The heap budget shared by every worker, if any, and the detail this parse has shed.
+        private final MemoryBudget budget;
+        MemoryBudget.Level shed = MemoryBudget.Level.NONE;
+
+        // Runtime info — keep from first recording that has it
+        String jvmVersion;
+        String jvmName;
+        String jvmVendor;
+        String javaVersion;
+        String os;
+        long pid;
+
+        Accumulators(Map<String, ProbeDefinition> probeIndex) {
+            this(probeIndex, ParseOptions.builder().build());
+        }
+
+        Accumulators(Map<String, ProbeDefinition> probeIndex, ParseOptions options) {
+            this.probeIndex = probeIndex;
+            this.maxCallSites = options.maxCallSites();
+            this.stacks = new ResolvedStacks(symbols, options.appFrames());
+            this.loadedClasses = new LoadedClassStore(options.spillThreshold(), options.spillDirectory());
+            this.budget = options.memoryBudget();
+        }
+
+        /** Call-site lookups so far, in this parse and those merged into it. */
+        long stackLookups() {
+            return stacks.lookups;
+        }
+
+        /** Call-site lookups answered without walking a stack trace's frames. */
+        long stackHits() {
+            return stacks.hits;
+        }
+
+        /**
+         * Dispatch any event; types this extractor doesn't consume are ignored. Each event type is
+         * resolved once, on its first event, to a handler bound to everything known about it —
+         * for a probe, its {@link ProbeType} — so after that an event costs one identity lookup.
+         */
+        void accept(RecordedEvent event) {
+            latestEvent = event;
+            if (budget != null && budget.level().compareTo(shed) > 0) {
+                shed(budget.level());
+            }
+            EventType type = event.getEventType();
+            EventHandler handler = handlers.get(type);
+            if (handler == null) {
+                handler = resolveHandler(type);
+                if (handlers.size() >= MAX_EVENT_TYPES) {
+                    handlers.clear(); // types are per chunk: a long live stream keeps bringing new ones
+                }
+                handlers.put(type, handler);
+            }
+            handler.handle(event);
+        }
+
+        private EventHandler resolveHandler(EventType type) {
+            BiConsumer<Accumulators, RecordedEvent> handler = HANDLERS.get(type.getName());
+            if (handler != null) {
+                return counted(type, event -> handler.accept(this, event));
+            }
+            if (type.getName().startsWith(PROBE_EVENT_PREFIX)) {
+                ProbeType probe = probeType(type);
+                return counted(type, event -> onProbeEvent(event, probe));
+            }
+            return IGNORED;
+        }
+
+        /**
+         * {@code handler}, counting each event and the keys it adds into {@link #stats}, and timing
+         * the events {@link ParseStats#timeNext} picks.
+         */
+        private EventHandler counted(EventType type, EventHandler handler) {
+            int slot = stats.slot(type.getName());
+            return event -> {
+                long keys = keysCreated;
+                if (stats.timeNext(slot)) {
+                    long start = System.nanoTime();
+                    handler.handle(event);
+                    stats.record(slot, System.nanoTime() - start, keysCreated - keys);
+                } else {
+                    handler.handle(event);
+                    stats.record(slot, keysCreated - keys);
+                }
+            };
+        }
+
+        /**
+         * Shed the detail {@code level} calls for (see {@link MemoryBudget.Level}), from everything
+         * accumulated and everything still to come; counts are kept. Does nothing if this parse
+         * has shed as much already.
+         */
+        void shed(MemoryBudget.Level level) {
+            if (level.compareTo(shed) <= 0) {
+                return;
+            }
+            shed = level;
+            for (ProbeAccumulator a : probeMap.values()) {
+                a.callSites.shed(level, symbols);
+                if (level.atLeast(MemoryBudget.Level.CALLER_GITOIDS)) {
+                    a.callerGitoids.clear();
+                    a.seenCallerValues.clear();
+                }
+            }
+            for (SecurityProviderAccumulator a : secProvMap.values()) {
+                a.callSites.shed(level, symbols);
+            }
+        }
+
+        /** Call sites for a new key, shed as far as this parse's others. */
+        private CallSites newCallSites() {
+            CallSites callSites = new CallSites(maxCallSites);
+            callSites.shed(shed, symbols);
+            return callSites;
+        }
+
+        /**
+         * Register {@link #accept} on {@code stream} for each consumed event type, and nothing
+         * else: the JDK parser then skips every other event without materializing it. Probe
+         * event names aren't fixed, so the ones present must be passed in.
+         */
+        void subscribe(EventStream stream, Collection<String> probeEventTypes) {
+            for (String eventType : HANDLERS.keySet()) {
+                stream.onEvent(eventType, this::accept);
+            }
+            for (String eventType : probeEventTypes) {
+                stream.onEvent(eventType, this::accept);
+            }
+        }
+
+        static final Map<String, BiConsumer<Accumulators, RecordedEvent>> HANDLERS = Map.of(
+                "jdk.SecurityProviderService", Accumulators::onSecurityProviderService,
+                "jdk.TLSHandshake", Accumulators::onTlsHandshake,
+                "jdk.X509Certificate", Accumulators::onX509Certificate,
+                "jdk.SecurityPropertyModification", Accumulators::onSecurityPropertyModification,
+                "jdk.InitialSecurityProperty", Accumulators::onInitialSecurityProperty,
+                "jdk.JVMInformation", Accumulators::onJvmInformation,
+                "jdk.OSInformation", Accumulators::onOsInformation,
+                "jdk.InitialSystemProperty", Accumulators::onInitialSystemProperty,
+                "spice.ClassLoaded", Accumulators::onClassLoaded);
+
+        private void onSecurityProviderService(RecordedEvent event) {
+            String algo = event.getString("algorithm");
+            String svcType = event.getString("type");
+            if (algo != null && svcType != null) {
+                var key = new SecurityProviderKey(algo, svcType);
+                var acc = secProvMap.computeIfAbsent(key, k -> {
+                    keysCreated++;
+                    return new SecurityProviderAccumulator(algo, svcType, newCallSites());
+                });
+                acc.count++;
+                acc.callSites.add(event.getStackTrace(), event.getThread(), stacks);
+            }
+        }
+
+        private void onTlsHandshake(RecordedEvent event) {
+            String proto = event.getString("protocolVersion");
+            String suite = event.getString("cipherSuite");
+            String peer = event.getString("peerHost");
+            int port = event.getInt("peerPort");
+            var key = new TlsKey(peer, port, proto, suite);
+            tlsMap.computeIfAbsent(key, k -> {
+                keysCreated++;
+                return new long[]{0};
+            })[0]++;
+        }
+
+        private void onX509Certificate(RecordedEvent event) {
+            String certSubject = event.getString("subject");
+            if (certSubject != null && !certMap.containsKey(certSubject)) {
+                keysCreated++;
+                certMap.put(certSubject, new CertificateRecord(
+                        certSubject,
+                        event.getString("issuer"),
+                        event.getString("keyType"),
+                        event.getInt("keyLength"),
+                        event.getString("algorithm"),
+                        safeInstantString(event, "validFrom"),
+                        safeInstantString(event, "validUntil")
+                ));
+            }
+        }
+
+        private void onSecurityPropertyModification(RecordedEvent event) {
+            String propKey = event.getString("key");
+            if (propKey != null && secPropMap.put(propKey, new SecurityProperty(
+                    propKey, event.getString("value"), true)) == null) {
+                keysCreated++;
+            }
+        }
+
+        private void onInitialSecurityProperty(RecordedEvent event) {
+            String propKey = event.getString("key");
+            if (propKey != null && secPropMap.putIfAbsent(propKey, new SecurityProperty(
+                    propKey, event.getString("value"), false)) == null) {
+                keysCreated++;
+            }
+        }
+
+        private void onJvmInformation(RecordedEvent event) {
+            if (jvmVersion == null) {
+                jvmVersion = event.getString("jvmVersion");
+                jvmName = event.getString("jvmName");
+                pid = event.getLong("pid");
+            }
+        }
+
+        private void onOsInformation(RecordedEvent event) {
+            if (os == null) {
+                String raw = event.getString("osVersion");
+                if (raw != null) {
+                    for (String line : raw.split("\n")) {
+                        if (line.startsWith("uname:")) {
+                            raw = line.substring(6).trim();
+                            break;
+                        }
+                    }
+                }
+                os = raw;
+            }
+        }
+
+        private void onInitialSystemProperty(RecordedEvent event) {
+            String k = event.getString("key");
+            String v = event.getString("value");
+            if ("java.vm.vendor".equals(k) && jvmVendor == null) jvmVendor = v;
+            else if ("java.vm.specification.version".equals(k) && javaVersion == null) javaVersion = v;
+        }
+
+        private void onClassLoaded(RecordedEvent event) {
+            String classGitoid = event.getString("classGitoid");
+            if (classGitoid != null && !loadedClasses.contains(classGitoid)) {
+                keysCreated++;
+                loadedClasses.add(new LoadedClass(
+                        0, // id assigned at materialization
+                        event.getString("className"),
+                        classGitoid,
+                        event.getString("classSha256"),
+                        event.getString("codeSource"),
+                        event.getString("jarGitoid"),
+                        event.getString("jarSha256")));
+            }
+        }
+
+        /**
+         * Probe events are the hot path — a crypto probe can fire millions of times — so a
+         * repeat event (known type, stack trace, thread and caller set) does lookups by
+         * identity or on strings the event already holds, and allocates nothing.
+         */
+        void onProbeEvent(RecordedEvent event) {
+            onProbeEvent(event, probeType(event.getEventType()));
+        }
+
+        private ProbeType probeType(EventType type) {
+            ProbeType probe = probeTypes.get(type);
+            if (probe == null) {
+                if (probeTypes.size() >= MAX_EVENT_TYPES) {
+                    probeTypes.clear();
+                }
+                probe = new ProbeType(type, probeIndex);
+                probeTypes.put(type, probe);
+            }
+            return probe;
+        }
+
+        private void onProbeEvent(RecordedEvent event, ProbeType probe) {
+            RecordedStackTrace st = event.getStackTrace();
+            ProbeAccumulator acc = probeAccumulator(probe, st);
+            acc.count++;
+
+            // Declaring-class + caller gitoids stamped by the agent (absent on older agents).
+            if (probe.hasClassGitoid) {
+                String classGitoid = event.getString("classGitoid");
+                if (classGitoid != null) {
+                    acc.classGitoid = classGitoid;
+                }
+            }
+            if (probe.hasCallerGitoids && !shed.atLeast(MemoryBudget.Level.CALLER_GITOIDS)) {
+                String callers = event.getString("callerGitoids");
+                if (callers != null && !callers.isEmpty() && acc.seenCallerValues.add(callers)) {
+                    for (String g : callers.split("\n")) {
+                        if (!g.isEmpty()) {
+                            acc.callerGitoids.add(g);
+                        }
+                    }
+                }
+            }
+
+            // Add application-level call site (skip JDK/agent frames)
+            acc.callSites.add(st, event.getThread(), stacks);
+        }
+
+        /**
+         * The accumulator for a probe event: keyed by the probe config's class/method when it
+         * has one, else by the stack trace's top frame, else by the event type itself.
+         */
+        private ProbeAccumulator probeAccumulator(ProbeType probe, RecordedStackTrace st) {
+            if (probe.classFqn != null) {
+                if (probe.configured == null) {
+                    probe.configured = probeAccumulator(probe, probe.classFqn, probe.methodName);
+                }
+                return probe.configured;
+            }
+            if (st == null) {
+                return unknownProbeAccumulator(probe);
+            }
+            ProbeAccumulator acc = probe.byStackTrace.get(st);
+            if (acc == null) {
+                List<RecordedFrame> frames = st.getFrames();
+                if (frames.isEmpty()) {
+                    acc = unknownProbeAccumulator(probe);
+                } else {
+                    RecordedMethod top = frames.get(0).getMethod();
+                    acc = probeAccumulator(probe, top.getType().getName(), top.getName());
+                }
+                if (probe.byStackTrace.size() >= CallSites.MAX_SEEN_STACKS) {
+                    probe.byStackTrace.clear();
+                }
+                probe.byStackTrace.put(st, acc);
+            }
+            return acc;
+        }
+
+        private ProbeAccumulator unknownProbeAccumulator(ProbeType probe) {
+            if (probe.unknown == null) {
+                probe.unknown = probeAccumulator(probe, probe.eventType, "unknown");
+            }
+            return probe.unknown;
+        }
+
+        private ProbeAccumulator probeAccumulator(ProbeType probe, String classFqn, String methodName) {
+            return probeMap.computeIfAbsent(new ProbeKey(classFqn, methodName), k -> {
+                keysCreated++;
+                return new ProbeAccumulator(probe.eventType, classFqn, methodName, probe.label, newCallSites());
+            });
+        }
+
+        /**
+         * Fold a later recording's accumulators into this one. Each map applies the same rule
+         * its event handler does (first-seen wins, counts add, a property modification replaces
+         * the initial value), so merging in recording order preserves first-seen ordering.
+         * {@code other} is consumed: its accumulator objects are adopted, not copied. Either side
+         * having shed detail, both shed it first, so the merge is as lossy as the lossier side.
+         */
+        void merge(Accumulators other) {
+            MemoryBudget.Level level = other.shed.compareTo(shed) > 0 ? other.shed : shed;
+            shed(level);
+            other.shed(level);
+            other.probeMap.forEach((key, theirs) -> {
+                ProbeAccumulator ours = probeMap.putIfAbsent(key, theirs);
+                if (ours == null) {
+                    theirs.callSites.rebase(other.symbols, symbols);
+                } else {
+                    ours.count += theirs.count;
+                    ours.callSites.addAll(theirs.callSites, other.symbols, symbols);
+                    if (theirs.classGitoid != null) {
+                        ours.classGitoid = theirs.classGitoid;
+                    }
+                    ours.callerGitoids.addAll(theirs.callerGitoids);
+                }
+            });
+            other.secProvMap.forEach((key, theirs) -> {
+                SecurityProviderAccumulator ours = secProvMap.putIfAbsent(key, theirs);
+                if (ours == null) {
+                    theirs.callSites.rebase(other.symbols, symbols);
+                } else {
+                    ours.count += theirs.count;
+                    ours.callSites.addAll(theirs.callSites, other.symbols, symbols);
+                }
+            });
+            other.tlsMap.forEach((key, theirs) -> {
+                long[] ours = tlsMap.putIfAbsent(key, theirs);
+                if (ours != null) {
+                    ours[0] += theirs[0];
+                }
+            });
+            other.certMap.forEach(certMap::putIfAbsent);
+            other.secPropMap.forEach((key, theirs) -> {
+                // A modification in the later recording overrides; an initial value never does.
+                if (theirs.modified()) {
+                    secPropMap.put(key, theirs);
+                } else {
+                    secPropMap.putIfAbsent(key, theirs);
+                }
+            });
+            loadedClasses.addAll(other.loadedClasses);
+
+            if (jvmVersion == null && other.jvmVersion != null) {
+                jvmVersion = other.jvmVersion;
+                jvmName = other.jvmName;
+                pid = other.pid;
+            }
+            if (os == null) os = other.os;
+            if (jvmVendor == null) jvmVendor = other.jvmVendor;
+            if (javaVersion == null) javaVersion = other.javaVersion;
+            stacks.lookups += other.stacks.lookups;
+            stacks.hits += other.stacks.hits;
+            stats.merge(other.stats);
+        }
+
+        /**
+         * Write everything a merge would carry over, for {@link #readFrom} to restore in a later
+         * run; the per-chunk identity caches and the {@link #stats} are left out. Call sites keep
+         * their ids, so the symbol table is written in id order. Spilled loaded classes are kept in
+         * {@code runDirectory} and referred to, or written inline when it's null; returns the files
+         * there the snapshot needs.
+         */
+        Set<Path> writeTo(DataOutputStream out, Path runDirectory) throws IOException {
+            out.writeInt(symbols.size());
+            for (int id = 0; id < symbols.size(); id++) {
+                ParseCheckpoint.writeString(out, symbols.symbol(id));
+            }
+            out.writeInt(probeMap.size());
+            for (ProbeAccumulator a : probeMap.values()) {
+                ParseCheckpoint.writeString(out, a.eventType);
+                ParseCheckpoint.writeString(out, a.classFqn);
+                ParseCheckpoint.writeString(out, a.methodName);
+                ParseCheckpoint.writeString(out, a.probeLabel);
+                out.writeLong(a.count);
+                ParseCheckpoint.writeString(out, a.classGitoid);
+                out.writeInt(a.callerGitoids.size());
+                for (String gitoid : a.callerGitoids) {
+                    ParseCheckpoint.writeString(out, gitoid);
+                }
+                a.callSites.writeTo(out);
+            }
+            out.writeInt(secProvMap.size());
+            for (SecurityProviderAccumulator a : secProvMap.values()) {
+                ParseCheckpoint.writeString(out, a.algorithm);
+                ParseCheckpoint.writeString(out, a.serviceType);
+                out.writeLong(a.count);
+                a.callSites.writeTo(out);
+            }
+            out.writeInt(tlsMap.size());
+            for (Map.Entry<TlsKey, long[]> e : tlsMap.entrySet()) {
+                ParseCheckpoint.writeString(out, e.getKey().peerHost());
+                out.writeInt(e.getKey().peerPort());
+                ParseCheckpoint.writeString(out, e.getKey().protocol());
+                ParseCheckpoint.writeString(out, e.getKey().cipherSuite());
+                out.writeLong(e.getValue()[0]);
+            }
+            out.writeInt(certMap.size());
+            for (CertificateRecord c : certMap.values()) {
+                ParseCheckpoint.writeString(out, c.subject());
+                ParseCheckpoint.writeString(out, c.issuer());
+                ParseCheckpoint.writeString(out, c.keyType());
+                out.writeInt(c.keyLength());
+                ParseCheckpoint.writeString(out, c.sigAlgo());
+                ParseCheckpoint.writeString(out, c.validFrom());
+                ParseCheckpoint.writeString(out, c.validUntil());
+            }
+            out.writeInt(secPropMap.size());
+            for (SecurityProperty p : secPropMap.values()) {
+                ParseCheckpoint.writeString(out, p.key());
+                ParseCheckpoint.writeString(out, p.value());
+                out.writeBoolean(p.modified());
+            }
+            Set<Path> runs = loadedClasses.writeTo(out, runDirectory);
+            ParseCheckpoint.writeString(out, jvmVersion);
+            ParseCheckpoint.writeString(out, jvmName);
+            ParseCheckpoint.writeString(out, jvmVendor);
+            ParseCheckpoint.writeString(out, javaVersion);
+            ParseCheckpoint.writeString(out, os);
+            out.writeLong(pid);
+            ParseCheckpoint.writeString(out, shed.name());
+            return runs;
+        }
+
+        static Accumulators readFrom(DataInputStream in, Map<String, ProbeDefinition> probeIndex,
+                                     ParseOptions options, Path runDirectory) throws IOException {
+            Accumulators acc = new Accumulators(probeIndex, options);
+            for (int n = in.readInt(); n > 0; n--) {
+                acc.symbols.intern(ParseCheckpoint.readString(in));
+            }
+            for (int n = in.readInt(); n > 0; n--) {
+                String eventType = ParseCheckpoint.readString(in);
+                String classFqn = ParseCheckpoint.readString(in);
+                String methodName = ParseCheckpoint.readString(in);
+                String probeLabel = ParseCheckpoint.readString(in);
+                long count = in.readLong();
+                String classGitoid = ParseCheckpoint.readString(in);
+                List<String> callerGitoids = new ArrayList<>();
+                for (int c = in.readInt(); c > 0; c--) {
+                    callerGitoids.add(ParseCheckpoint.readString(in));
+                }
+                ProbeAccumulator a = new ProbeAccumulator(eventType, classFqn, methodName, probeLabel,
+                        CallSites.readFrom(in, acc.maxCallSites));
+                a.count = count;
+                a.classGitoid = classGitoid;
+                a.callerGitoids.addAll(callerGitoids);
+                acc.probeMap.put(new ProbeKey(classFqn, methodName), a);
+            }
+            for (int n = in.readInt(); n > 0; n--) {
+                String algorithm = ParseCheckpoint.readString(in);
+                String serviceType = ParseCheckpoint.readString(in);
+                long count = in.readLong();
+                var a = new SecurityProviderAccumulator(algorithm, serviceType, CallSites.readFrom(in, acc.maxCallSites));
+                a.count = count;
+                acc.secProvMap.put(new SecurityProviderKey(algorithm, serviceType), a);
+            }
+            for (int n = in.readInt(); n > 0; n--) {
+                var key = new TlsKey(ParseCheckpoint.readString(in), in.readInt(),
+                        ParseCheckpoint.readString(in), ParseCheckpoint.readString(in));
+                acc.tlsMap.put(key, new long[]{in.readLong()});
+            }
+            for (int n = in.readInt(); n > 0; n--) {
+                var c = new CertificateRecord(ParseCheckpoint.readString(in), ParseCheckpoint.readString(in),
+                        ParseCheckpoint.readString(in), in.readInt(), ParseCheckpoint.readString(in),
+                        ParseCheckpoint.readString(in), ParseCheckpoint.readString(in));
+                acc.certMap.put(c.subject(), c);
+            }
+            for (int n = in.readInt(); n > 0; n--) {
+                var p = new SecurityProperty(ParseCheckpoint.readString(in), ParseCheckpoint.readString(in),
+                        in.readBoolean());
+                acc.secPropMap.put(p.key(), p);
+            }
+            acc.loadedClasses.readFrom(in, runDirectory);
+            acc.jvmVersion = ParseCheckpoint.readString(in);
+            acc.jvmName = ParseCheckpoint.readString(in);
+            acc.jvmVendor = ParseCheckpoint.readString(in);
+            acc.javaVersion = ParseCheckpoint.readString(in);
+            acc.os = ParseCheckpoint.readString(in);
+            acc.pid = in.readLong();
+            acc.shed(MemoryBudget.Level.valueOf(ParseCheckpoint.readString(in)));
+            return acc;
+        }
+    }
+
+    /**
+     * Progress over all recordings, in bytes, serializing reports from concurrent parse workers.
+     * Each parse {@link #advance advances} it as it reads (see {@link #parseFile}); a recording
+     * read from the cache or restored from a checkpoint counts whole. Throughput is an
+     * exponentially weighted moving average of per-second rate samples, so the ETA follows the
+     * parse speeding up or slowing down without jumping with every tick. Reported to the callback,
+     * if any, and logged every {@link #LOG_INTERVAL_MS} so a long local parse shows it too.
+     */
+    private static final class ParseProgress {
+        // Liveness ticks within a single recording — updated_at advances even if bytes don't.
+        // Goat-rodeo ticks every 30s; we use 1s here because JFR events stream much faster
+        // than goat-rodeo's per-artifact processing. Skipped events aren't seen individually,
+        // so ticks are time-based only, checked at each flush segment.
+        static final long TIME_TICK_INTERVAL_MS = 1000L;
+        static final long LOG_INTERVAL_MS = 10_000L;
+        // Weight of the latest rate sample in the moving average.
+        static final double RATE_SMOOTHING = 0.3;
+
+        private final JfrProgressCallback callback;
+        private final int total;
+        private final long totalBytes;
+        private final AtomicInteger finished = new AtomicInteger();
+        private final AtomicLong bytesParsed = new AtomicLong();
+        // Rate and log state, guarded by this.
+        private long sampleNanos = System.nanoTime();
+        private long sampleBytes;
+        private double bytesPerSecond;
+        private long lastLogMillis = System.currentTimeMillis();
+
+        ParseProgress(JfrProgressCallback callback, List<Path> recordings, int alreadyFinished) throws IOException {
+            this.callback = callback;
+            this.total = recordings.size();
+            long totalBytes = 0;
+            long alreadyParsed = 0;
+            for (int i = 0; i < recordings.size(); i++) {
+                long size = Files.size(recordings.get(i));
+                totalBytes += size;
+                if (i < alreadyFinished) {
+                    alreadyParsed += size;
+                }
+            }
+            this.totalBytes = totalBytes;
+            this.finished.set(alreadyFinished);
+            this.bytesParsed.set(alreadyParsed);
+            this.sampleBytes = alreadyParsed;
+        }
+
+        boolean enabled() {
+            return callback != null;
+        }
+
+        /** Another {@code bytes} of some recording have been parsed. */
+        void advance(long bytes) {
+            bytesParsed.addAndGet(bytes);
+        }
+
+        synchronized void report() {
+            JfrProgressCallback.Progress progress = progress();
+            if (callback != null) {
+                callback.onProgress(progress);
+            }
+            long now = System.currentTimeMillis();
+            if (now - lastLogMillis >= LOG_INTERVAL_MS && progress.recordingsParsed() < total) {
+                log.info("Parsed {}", progress.describe());
+                lastLogMillis = now;
+            }
+        }
+
+        void recordingFinished() {
+            finished.incrementAndGet();
+            report();
+        }
+
+        private JfrProgressCallback.Progress progress() {
+            long parsed = Math.min(bytesParsed.get(), totalBytes);
+            long now = System.nanoTime();
+            long elapsed = now - sampleNanos;
+            if (elapsed >= TimeUnit.MILLISECONDS.toNanos(TIME_TICK_INTERVAL_MS)) {
+                double sample = (parsed - sampleBytes) * 1e9 / elapsed;
+                bytesPerSecond = bytesPerSecond == 0 ? sample : RATE_SMOOTHING * sample + (1 - RATE_SMOOTHING) * bytesPerSecond;
+                sampleNanos = now;
+                sampleBytes = parsed;
+            }
+            Duration eta = bytesPerSecond > 0
+                    ? Duration.ofMillis((long) ((totalBytes - parsed) * 1000 / bytesPerSecond))
+                    : null;
+            return new JfrProgressCallback.Progress(finished.get(), total, parsed, totalBytes, bytesPerSecond, eta);
+        }
+    }
+
+    /**
+     * How {@link #extract(String, List, Map, JfrProgressCallback, ParseOptions)} parses. Every
+     * setting has a default, so callers only set what they change.
+     *
+     * @param parseThreads threads to parse on (default 1: serial)
+     * @param chunkSplitThreshold recordings at least this large are split at chunk boundaries
+     *        when parsing on more than one thread
+     * @param maxCallSites call sites kept per event, the most frequent first and with hit counts
+     *        (default: all of them, in first-seen order, without counts)
+     * @param spillThreshold loaded classes each parse worker holds in heap before spilling them to
+     *        disk (default {@link #SPILL_THRESHOLD_CLASSES})
+     * @param spillDirectory where spill files go (default: the system temp dir)
+     * @param checkpointDirectory where to save a {@link ParseCheckpoint} after each recording
+     *        (default: none)
+     * @param resume whether to pick up from the checkpoint in {@code checkpointDirectory}, if
+     *        there is a usable one, instead of parsing every recording
+     * @param cacheDirectory where a {@link RecordingCache} keeps each recording's parse, so an
+     *        unchanged recording isn't parsed again (default: none)
+     * @param cacheMaxBytes size the cache is evicted down to after each parse (default
+     *        {@link RecordingCache#DEFAULT_MAX_BYTES})
+     * @param appFrames which frames count as application code when attributing call sites
+     *        (default {@link AppFrameFilter#DEFAULT}: all but the JDK's)
+     * @param stats where the parse adds its {@link ParseStats} once done (default: none)
+     * @param memoryBudget heap budget whose {@link MemoryBudget#level level} the parse sheds detail
+     *        to, recording what it shed in the survey's {@link Degradation} (default: none)
+     */
+    public record ParseOptions(int parseThreads, long chunkSplitThreshold, int maxCallSites,
+                               int spillThreshold, Path spillDirectory, Path checkpointDirectory,
+                               boolean resume, Path cacheDirectory, long cacheMaxBytes,
+                               AppFrameFilter appFrames, ParseStats stats, MemoryBudget memoryBudget) {
+        public static Builder builder() {
+            return new Builder();
         }
 
-        void addCallSite(String className, String location, String thread) {
-            String key = location + "|" + (thread != null ? thread : "");
-            if (seenSites.add(key)) {
-                callSites.add(new CallSite(className, location, thread));
+        public static final class Builder {
+            private int parseThreads = 1;
+            private long chunkSplitThreshold = CHUNK_SPLIT_THRESHOLD_BYTES;
+            private int maxCallSites = SpaceSavingSketch.UNBOUNDED;
+            private int spillThreshold = SPILL_THRESHOLD_CLASSES;
+            private Path spillDirectory;
+            private Path checkpointDirectory;
+            private boolean resume;
+            private Path cacheDirectory;
+            private long cacheMaxBytes = RecordingCache.DEFAULT_MAX_BYTES;
+            private AppFrameFilter appFrames = AppFrameFilter.DEFAULT;
+            private ParseStats stats;
+            private MemoryBudget memoryBudget;
+
+            public Builder parseThreads(int v) { this.parseThreads = v; return this; }
+            public Builder chunkSplitThreshold(long v) { this.chunkSplitThreshold = v; return this; }
+            public Builder maxCallSites(int v) { this.maxCallSites = v; return this; }
+            public Builder spillThreshold(int v) { this.spillThreshold = v; return this; }
+            public Builder spillDirectory(Path v) { this.spillDirectory = v; return this; }
+            public Builder checkpointDirectory(Path v) { this.checkpointDirectory = v; return this; }
+            public Builder resume(boolean v) { this.resume = v; return this; }
+            public Builder cacheDirectory(Path v) { this.cacheDirectory = v; return this; }
+            public Builder cacheMaxBytes(long v) { this.cacheMaxBytes = v; return this; }
+            public Builder appFrames(AppFrameFilter v) { this.appFrames = v; return this; }
+            public Builder stats(ParseStats v) { this.stats = v; return this; }
+            public Builder memoryBudget(MemoryBudget v) { this.memoryBudget = v; return this; }
+
+            public ParseOptions build() {
+                return new ParseOptions(parseThreads, chunkSplitThreshold, maxCallSites,
+                        spillThreshold, spillDirectory, checkpointDirectory, resume, cacheDirectory,
+                        cacheMaxBytes, appFrames, stats, memoryBudget);
             }
         }
     }
@@ -256,220 +1300,446 @@ public class JfrEventExtractor {
 
     public static RawSurveyData extract(String subject, List<Path> recordingPaths, Map<String, ProbeDefinition> probeIndex,
                                         JfrProgressCallback progress) throws Exception {
+        return extract(subject, recordingPaths, probeIndex, progress, 1);
+    }
+
+    /**
+     * As {@link #extract(String, List, Map, JfrProgressCallback)}, parsing on up to
+     * {@code parseThreads} threads. Recordings are parsed concurrently, and a recording of at
+     * least {@link #CHUNK_SPLIT_THRESHOLD_BYTES} is further split at its chunk boundaries so one
+     * large recording also uses every thread. Each recording or chunk is parsed into its own
+     * {@link Accumulators} and the results are merged in file order, so the output — including
+     * first-seen ordering and {@code loadedClasses} ids — is identical to a serial run.
+     */
+    public static RawSurveyData extract(String subject, List<Path> recordingPaths, Map<String, ProbeDefinition> probeIndex,
+                                        JfrProgressCallback progress, int parseThreads) throws Exception {
+        return extract(subject, recordingPaths, probeIndex, progress,
+                ParseOptions.builder().parseThreads(parseThreads).build());
+    }
+
+    /**
+     * As {@link #extract(String, List, Map, JfrProgressCallback, int)}, with every
+     * {@link ParseOptions parse option}. Capping call sites makes their counts approximate
+     * (within each site's {@code countError}); uncapped, the output is the same whatever the
+     * thread count. With a {@link ParseOptions#checkpointDirectory checkpoint directory}, the
+     * merged state is saved after each recording and removed once all are parsed; resuming from
+     * it gives the same survey as parsing every recording in one go.
+     */
+    public static RawSurveyData extract(String subject, List<Path> recordingPaths, Map<String, ProbeDefinition> probeIndex,
+                                        JfrProgressCallback progress, ParseOptions options) throws Exception {
         if (recordingPaths == null || recordingPaths.isEmpty()) {
             throw new IllegalArgumentException("No recording files provided");
         }
+        int parseThreads = options.parseThreads();
+        if (parseThreads < 1) {
+            throw new IllegalArgumentException("parseThreads must be at least 1, got: " + parseThreads);
+        }
+        if (options.maxCallSites() < 1) {
+            throw new IllegalArgumentException("maxCallSites must be at least 1, got: " + options.maxCallSites());
+        }
+        if (options.spillThreshold() < 1) {
+            throw new IllegalArgumentException("spillThreshold must be at least 1, got: " + options.spillThreshold());
+        }
+        if (options.resume() && options.checkpointDirectory() == null) {
+            throw new IllegalArgumentException("resume needs a checkpointDirectory");
+        }
+        if (options.cacheMaxBytes() < 0) {
+            throw new IllegalArgumentException("cacheMaxBytes must not be negative, got: " + options.cacheMaxBytes());
+        }
+
+        int totalRecordings = recordingPaths.size();
+        List<Path> recordings = recordingPaths;
+        Accumulators merged = null;
+        int completed = 0;
+        ParseCheckpoint checkpoint = options.checkpointDirectory() != null
+                ? new ParseCheckpoint(options.checkpointDirectory(), probeIndex, options)
+                : null;
+        if (checkpoint != null && options.resume()) {
+            ParseCheckpoint.Restored restored = checkpoint.load(recordingPaths);
+            if (restored != null) {
+                merged = restored.accumulators();
+                completed = restored.completed();
+                recordings = restored.recordings();
+            }
+        }
+        if (merged == null) {
+            merged = new Accumulators(probeIndex, options);
+        }
+        RecordingCache cache = options.cacheDirectory() != null
+                ? new RecordingCache(options.cacheDirectory(), options.cacheMaxBytes(), probeIndex, options)
+                : null;
+
+        long parseStart = System.nanoTime();
+        ParseProgress parseProgress = new ParseProgress(progress, recordings, completed);
+        if (parseProgress.enabled()) {
+            parseProgress.report();
+        }
 
-        Map<ProbeKey, ProbeAccumulator> probeMap = new LinkedHashMap<>();
-        Map<SecurityProviderKey, SecurityProviderAccumulator> secProvMap = new LinkedHashMap<>();
-        Map<TlsKey, long[]> tlsMap = new LinkedHashMap<>();
-        Map<String, CertificateRecord> certMap = new LinkedHashMap<>();
-        Map<String, SecurityProperty> secPropMap = new LinkedHashMap<>();
-        Map<String, LoadedClass> classLoadMap = new LinkedHashMap<>();
         List<String> recordingNames = new ArrayList<>();
+        for (Path recording : recordings) {
+            recordingNames.add(recording.getFileName().toString());
+        }
 
-        // Runtime info — keep from first recording that has it
-        String[] jvmVersion = {null};
-        String[] jvmName = {null};
-        String[] jvmVendor = {null};
-        String[] javaVersion = {null};
-        String[] os = {null};
-        long[] pid = {0};
+        if (parseThreads == 1) {
+            for (int i = completed; i < totalRecordings; i++) {
+                Path recording = recordings.get(i);
+                if (cache == null) {
+                    parseRecording(recording, i, totalRecordings, merged, parseProgress);
+                } else {
+                    int index = i;
+                    merged.merge(parseCached(cache, recording, index, totalRecordings, parseProgress, () -> {
+                        Accumulators acc = new Accumulators(probeIndex, options);
+                        parseRecording(recording, index, totalRecordings, acc, parseProgress);
+                        return acc;
+                    }));
+                }
+                if (checkpoint != null) {
+                    checkpoint.save(recordings.subList(0, i + 1), merged);
+                }
+            }
+        } else {
+            log.debug("Parsing {} recordings on {} threads", totalRecordings - completed, parseThreads);
+            ForkJoinPool pool = new ForkJoinPool(parseThreads, parseThreadFactory(), null, false);
+            try {
+                List<ForkJoinTask<Accumulators>> pending = new ArrayList<>(totalRecordings);
+                for (int i = completed; i < totalRecordings; i++) {
+                    pending.add(pool.submit(new RecordingTask(recordings.get(i), i, totalRecordings,
+                            probeIndex, parseProgress, options, cache)));
+                }
+                // Merge strictly in recording order, whatever order the workers finish in.
+                for (int i = 0; i < pending.size(); i++) {
+                    merged.merge(await(pending.get(i)));
+                    if (checkpoint != null) {
+                        checkpoint.save(recordings.subList(0, completed + i + 1), merged);
+                    }
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
 
-        long totalDistinctEvents = 0;
-        boolean truncated = false;
+        if (cache != null) {
+            cache.evict();
+        }
+        if (options.stats() != null) {
+            merged.stats.elapsed(System.nanoTime() - parseStart);
+            options.stats().merge(merged.stats);
+        }
+        RawSurveyData data = materialize(subject, recordingNames, merged);
+        if (checkpoint != null) {
+            checkpoint.delete();
+        }
+        return data;
+    }
 
-        int totalRecordings = recordingPaths.size();
-        int recordingIndex = 0;
-        // Liveness ticks within a single recording — same (current, total), updated_at advances.
-        // Goat-rodeo uses the same rule (every 1k items or 30s); we use 1s here because
-        // JFR events stream much faster than goat-rodeo's per-artifact processing.
-        long eventsSinceTick = 0L;
-        long lastTickMillis = System.currentTimeMillis();
-        final long EVENT_TICK_INTERVAL = 1000L;
-        final long TIME_TICK_INTERVAL_MS = 1000L;
-        if (progress != null) {
-            progress.onProgress(0, totalRecordings);
-        }
-
-        for (Path recording : recordingPaths) {
-            recordingNames.add(recording.getFileName().toString());
-            log.info("Parsing recording {} of {}: {}", recordingIndex + 1, totalRecordings, recording.getFileName());
-
-            try (RecordingFile rf = new RecordingFile(recording)) {
-                while (rf.hasMoreEvents()) {
-                    RecordedEvent event = rf.readEvent();
-                    if (progress != null) {
-                        eventsSinceTick++;
-                        long now = System.currentTimeMillis();
-                        if (eventsSinceTick >= EVENT_TICK_INTERVAL || (now - lastTickMillis) >= TIME_TICK_INTERVAL_MS) {
-                            progress.onProgress(recordingIndex, totalRecordings);
-                            eventsSinceTick = 0;
-                            lastTickMillis = now;
-                        }
-                    }
-                    String eventType = event.getEventType().getName();
-
-                    switch (eventType) {
-                        case "jdk.SecurityProviderService" -> {
-                            String algo = event.getString("algorithm");
-                            String svcType = event.getString("type");
-                            if (algo != null && svcType != null) {
-                                var key = new SecurityProviderKey(algo, svcType);
-                                var acc = secProvMap.computeIfAbsent(key,
-                                        k -> new SecurityProviderAccumulator(algo, svcType));
-                                acc.count++;
-                                addApplicationStackTrace(acc, event);
-                            }
-                        }
+    /** Half the available cores, the same default {@code survey inventory --threads} uses. */
+    static int defaultParseThreads() {
+        return Math.max(1, Math.round(Runtime.getRuntime().availableProcessors() / 2.0f));
+    }
 
-                        case "jdk.TLSHandshake" -> {
-                            String proto = event.getString("protocolVersion");
-                            String suite = event.getString("cipherSuite");
-                            String peer = event.getString("peerHost");
-                            int port = event.getInt("peerPort");
-                            var key = new TlsKey(peer, port, proto, suite);
-                            tlsMap.computeIfAbsent(key, k -> new long[]{0})[0]++;
-                        }
+    private static void parseRecording(Path recording, int index, int total, Accumulators acc,
+                                       ParseProgress progress) throws IOException {
+        log.info("Parsing recording {} of {}: {}", index + 1, total, recording.getFileName());
+        long events = acc.stats.events();
+        long start = System.nanoTime();
+        parseFile(recording, acc, progress);
+        acc.stats.recording(new ParseStats.RecordingStats(recording.getFileName().toString(), Files.size(recording),
+                acc.stats.events() - events, System.nanoTime() - start, false));
+        progress.recordingFinished();
+    }
 
-                        case "jdk.X509Certificate" -> {
-                            String certSubject = event.getString("subject");
-                            if (certSubject != null && !certMap.containsKey(certSubject)) {
-                                certMap.put(certSubject, new CertificateRecord(
-                                        certSubject,
-                                        event.getString("issuer"),
-                                        event.getString("keyType"),
-                                        event.getInt("keyLength"),
-                                        event.getString("algorithm"),
-                                        safeInstantString(event, "validFrom"),
-                                        safeInstantString(event, "validUntil")
-                                ));
-                            }
-                        }
+    /** Parses one recording into its own accumulators. */
+    private interface RecordingParse {
+        Accumulators run() throws IOException;
+    }
 
-                        case "jdk.SecurityPropertyModification" -> {
-                            String propKey = event.getString("key");
-                            if (propKey != null) {
-                                secPropMap.put(propKey, new SecurityProperty(
-                                        propKey, event.getString("value"), true));
-                            }
-                        }
+    /**
+     * {@code recording}'s accumulators, read back from {@code cache} if it has them, else parsed
+     * by {@code parse} and saved there. Must return before the result is merged: merging consumes it.
+     */
+    private static Accumulators parseCached(RecordingCache cache, Path recording, int index, int total,
+                                            ParseProgress progress, RecordingParse parse) throws IOException {
+        long start = System.nanoTime();
+        String key = cache.key(recording);
+        Accumulators cached = cache.get(key);
+        if (cached != null) {
+            log.info("Recording {} of {} was parsed before; reusing the cached result: {}",
+                    index + 1, total, recording.getFileName());
+            long size = Files.size(recording);
+            progress.advance(size);
+            cached.stats.recording(new ParseStats.RecordingStats(recording.getFileName().toString(),
+                    size, 0, System.nanoTime() - start, true));
+            progress.recordingFinished();
+            return cached;
+        }
+        Accumulators acc = parse.run();
+        // A parse that shed detail isn't kept: a later run may have the heap to do it whole.
+        if (acc.shed == MemoryBudget.Level.NONE) {
+            cache.put(key, acc);
+        }
+        return acc;
+    }
 
-                        case "jdk.InitialSecurityProperty" -> {
-                            String propKey = event.getString("key");
-                            if (propKey != null) {
-                                secPropMap.putIfAbsent(propKey, new SecurityProperty(
-                                        propKey, event.getString("value"), false));
-                            }
+    /**
+     * Parse one recording file with {@link EventStream#openFile}, subscribed to only the event
+     * types the extractor consumes, so the JDK skips everything else (the bulk of a recording
+     * made with {@code profile.jfc} or extra user settings) without materializing it.
+     */
+    private static void parseFile(Path file, Accumulators acc, ParseProgress progress) throws IOException {
+        List<String> probeEventTypes = probeEventTypes(file);
+        List<JfrChunks.Chunk> chunks = JfrChunks.split(file);
+        long[] parsed = { 0 };
+        acc.latestEvent = null;
+        try (EventStream stream = EventStream.openFile(file)) {
+            // File order, as RecordingFile reads it, so first-seen ordering doesn't change.
+            stream.setOrdered(false);
+            acc.subscribe(stream, probeEventTypes);
+            // Flushes mark segment ends (about one per second of recording), including
+            // stretches where every event is skipped. The stream doesn't tell its file position,
+            // so it's estimated from the time of the latest event against the chunks' time spans.
+            long[] lastTickMillis = { System.currentTimeMillis() };
+            stream.onFlush(() -> {
+                long now = System.currentTimeMillis();
+                if (now - lastTickMillis[0] >= ParseProgress.TIME_TICK_INTERVAL_MS) {
+                    RecordedEvent latest = acc.latestEvent;
+                    if (latest != null) {
+                        Instant time = latest.getStartTime();
+                        long offset = JfrChunks.offsetAt(chunks, time.getEpochSecond() * 1_000_000_000L + time.getNano());
+                        if (offset > parsed[0]) {
+                            progress.advance(offset - parsed[0]);
+                            parsed[0] = offset;
                         }
+                    }
+                    progress.report();
+                    lastTickMillis[0] = now;
+                }
+            });
+            stream.start();
+        }
+        progress.advance(Files.size(file) - parsed[0]);
+    }
 
-                        case "jdk.JVMInformation" -> {
-                            if (jvmVersion[0] == null) {
-                                jvmVersion[0] = event.getString("jvmVersion");
-                                jvmName[0] = event.getString("jvmName");
-                                pid[0] = event.getLong("pid");
-                            }
-                        }
+    /** Names of the probe event types declared anywhere in {@code file}, from chunk metadata only. */
+    private static List<String> probeEventTypes(Path file) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (RecordingFile rf = new RecordingFile(file)) {
+            for (EventType type : rf.readEventTypes()) {
+                if (type.getName().startsWith(PROBE_EVENT_PREFIX)) {
+                    names.add(type.getName());
+                }
+            }
+        }
+        return names;
+    }
 
-                        case "jdk.OSInformation" -> {
-                            if (os[0] == null) {
-                                String raw = event.getString("osVersion");
-                                if (raw != null) {
-                                    for (String line : raw.split("\n")) {
-                                        if (line.startsWith("uname:")) {
-                                            raw = line.substring(6).trim();
-                                            break;
-                                        }
-                                    }
-                                }
-                                os[0] = raw;
-                            }
-                        }
+    // ── Fork-join parse tasks ───────────────────────────────────────────
 
-                        case "jdk.InitialSystemProperty" -> {
-                            String k = event.getString("key");
-                            String v = event.getString("value");
-                            if ("java.vm.vendor".equals(k) && jvmVendor[0] == null) jvmVendor[0] = v;
-                            else if ("java.vm.specification.version".equals(k) && javaVersion[0] == null) javaVersion[0] = v;
-                        }
+    /**
+     * Parses one recording. Below the split threshold (or when the file has a single chunk) the
+     * whole file is parsed in place; otherwise one {@link ChunkTask} is forked per chunk and the
+     * chunk results are merged back in file order.
+     */
+    private static final class RecordingTask extends RecursiveTask<Accumulators> {
+        private final Path recording;
+        private final int index;
+        private final int total;
+        private final Map<String, ProbeDefinition> probeIndex;
+        private final ParseProgress progress;
+        private final ParseOptions options;
+        private final RecordingCache cache;
+
+        RecordingTask(Path recording, int index, int total, Map<String, ProbeDefinition> probeIndex,
+                      ParseProgress progress, ParseOptions options, RecordingCache cache) {
+            this.recording = recording;
+            this.index = index;
+            this.total = total;
+            this.probeIndex = probeIndex;
+            this.progress = progress;
+            this.options = options;
+            this.cache = cache;
+        }
 
-                        // Must be a dedicated case: the default arm only handles "spice.probe.*",
-                        // so spice.ClassLoaded would otherwise be dropped.
-                        case "spice.ClassLoaded" -> {
-                            String classGitoid = event.getString("classGitoid");
-                            if (classGitoid != null) {
-                                classLoadMap.putIfAbsent(classGitoid, new LoadedClass(
-                                        0, // id assigned at materialization
-                                        event.getString("className"),
-                                        classGitoid,
-                                        event.getString("classSha256"),
-                                        event.getString("codeSource"),
-                                        event.getString("jarGitoid"),
-                                        event.getString("jarSha256")));
-                            }
-                        }
+        @Override
+        protected Accumulators compute() {
+            try {
+                return cache == null ? parse() : parseCached(cache, recording, index, total, progress, this::parse);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
 
-                        default -> {
-                            // Spice probe events
-                            if (eventType.startsWith("spice.probe.")) {
-                                processProbeEvent(event, eventType, probeMap, probeIndex);
-                            }
-                        }
-                    }
+        private Accumulators parse() throws IOException {
+            long start = System.nanoTime();
+            List<JfrChunks.Chunk> chunks = Files.size(recording) >= options.chunkSplitThreshold()
+                    ? JfrChunks.split(recording)
+                    : List.of();
+            if (chunks.size() < 2) {
+                Accumulators acc = new Accumulators(probeIndex, options);
+                parseRecording(recording, index, total, acc, progress);
+                return acc;
+            }
+            log.info("Parsing recording {} of {} in {} chunks: {}",
+                    index + 1, total, chunks.size(), recording.getFileName());
+            Path scratch = createChunkDirectory(recording);
+            try {
+                List<ChunkTask> tasks = new ArrayList<>(chunks.size());
+                for (int i = 0; i < chunks.size(); i++) {
+                    tasks.add(new ChunkTask(recording, chunks.get(i), scratch.resolve("chunk-" + i + ".jfr"),
+                            probeIndex, progress, options));
+                }
+                invokeAll(tasks);
+                Accumulators acc = tasks.get(0).join();
+                for (int i = 1; i < tasks.size(); i++) {
+                    acc.merge(tasks.get(i).join());
+                }
+                acc.stats.recording(new ParseStats.RecordingStats(recording.getFileName().toString(),
+                        Files.size(recording), acc.stats.events(), System.nanoTime() - start, false));
+                progress.recordingFinished();
+                return acc;
+            } finally {
+                try {
+                    Files.deleteIfExists(scratch);
+                } catch (IOException e) {
+                    // A failed sibling can still be writing its copy; leave the directory for it.
+                    log.debug("Could not remove chunk directory {}: {}", scratch, e.toString());
                 }
             }
+        }
+    }
+
+    /**
+     * Parses a single chunk. {@link RecordingFile} only reads whole files, so the chunk is copied
+     * out next to the recording first and removed once parsed — at most one copy per worker
+     * thread exists at a time.
+     */
+    private static final class ChunkTask extends RecursiveTask<Accumulators> {
+        private final Path recording;
+        private final JfrChunks.Chunk chunk;
+        private final Path chunkFile;
+        private final Map<String, ProbeDefinition> probeIndex;
+        private final ParseProgress progress;
+        private final ParseOptions options;
+
+        ChunkTask(Path recording, JfrChunks.Chunk chunk, Path chunkFile,
+                  Map<String, ProbeDefinition> probeIndex, ParseProgress progress, ParseOptions options) {
+            this.recording = recording;
+            this.chunk = chunk;
+            this.chunkFile = chunkFile;
+            this.probeIndex = probeIndex;
+            this.progress = progress;
+            this.options = options;
+        }
 
-            totalDistinctEvents = probeMap.size() + secProvMap.size() + classLoadMap.size();
-            if (totalDistinctEvents > MAX_DISTINCT_EVENTS && !truncated) {
-                log.warn("⚠️  {} distinct events exceed cap of {}. Results may be truncated.",
-                        totalDistinctEvents, MAX_DISTINCT_EVENTS);
-                truncated = true;
+        @Override
+        protected Accumulators compute() {
+            try {
+                try {
+                    JfrChunks.copy(recording, chunk, chunkFile);
+                    Accumulators acc = new Accumulators(probeIndex, options);
+                    parseFile(chunkFile, acc, progress);
+                    progress.report(); // the recording isn't done, but its bytes moved
+                    return acc;
+                } finally {
+                    Files.deleteIfExists(chunkFile);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
+        }
+    }
+
+    /** Scratch directory for chunk copies: beside the recording, or the system temp dir if that's read-only. */
+    private static Path createChunkDirectory(Path recording) throws IOException {
+        Path parent = recording.toAbsolutePath().getParent();
+        if (parent != null && Files.isWritable(parent)) {
+            return Files.createTempDirectory(parent, ".jfr-chunks-");
+        }
+        return Files.createTempDirectory("spice-jfr-chunks-");
+    }
 
-            recordingIndex++;
-            if (progress != null) {
-                progress.onProgress(recordingIndex, totalRecordings);
-                eventsSinceTick = 0L;
-                lastTickMillis = System.currentTimeMillis();
+    /** {@code future}'s result, rethrowing what its task threw rather than an {@link ExecutionException}. */
+    static <T> T await(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException unchecked) {
+                throw unchecked.getCause();
             }
+            if (cause instanceof Exception exception) {
+                throw exception;
+            }
+            throw e;
         }
+    }
 
+    private static ForkJoinPool.ForkJoinWorkerThreadFactory parseThreadFactory() {
+        AtomicInteger n = new AtomicInteger();
+        return pool -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("jfr-parse-" + n.incrementAndGet());
+            return t;
+        };
+    }
+
+    /**
+     * Build the survey from accumulators filled elsewhere — by {@link JfrLiveExtractor} streaming
+     * the target while it runs — exactly as {@link #extract} would from the same events.
+     */
+    static RawSurveyData fromAccumulators(String subject, List<String> recordingNames, Accumulators acc) {
+        return materialize(subject, recordingNames, acc);
+    }
+
+    private static RawSurveyData materialize(String subject, List<String> recordingNames, Accumulators acc) {
         RuntimeInfo runtime = new RuntimeInfo(
-                jvmVersion[0], jvmName[0], jvmVendor[0], javaVersion[0], os[0], pid[0]);
-
-        // Build loadedClasses first (with stable ids) + a gitoid -> id index for event linking.
-        List<LoadedClass> loadedClasses = new ArrayList<>(classLoadMap.size());
-        Map<String, Integer> gitoidToId = new LinkedHashMap<>();
-        int loadedClassId = 0;
-        for (LoadedClass lc : classLoadMap.values()) {
-            loadedClasses.add(new LoadedClass(loadedClassId, lc.className(), lc.classGitoid(),
-                    lc.classSha256(), lc.codeSource(), lc.jarGitoid(), lc.jarSha256()));
-            gitoidToId.put(lc.classGitoid(), loadedClassId);
-            loadedClassId++;
-        }
-
-        List<ProbeEvent> probeEvents = probeMap.values().stream()
-                .map(a -> new ProbeEvent(a.eventType, a.classFqn, a.methodName, a.probeLabel, a.count,
-                        a.callSites,
+                acc.jvmVersion, acc.jvmName, acc.jvmVendor, acc.javaVersion, acc.os, acc.pid);
+
+        // Build loadedClasses first (with stable ids) + a gitoid -> id index of the classes
+        // events link to; the classes themselves may be on disk.
+        Set<String> linked = new HashSet<>();
+        for (ProbeAccumulator a : acc.probeMap.values()) {
+            if (a.classGitoid != null) {
+                linked.add(a.classGitoid);
+            }
+            linked.addAll(a.callerGitoids);
+        }
+        Map<String, Integer> gitoidToId = new HashMap<>();
+        List<LoadedClass> loadedClasses = acc.loadedClasses.toList(linked, gitoidToId);
+
+        // Views: each event (and its call sites) is built when read, so a serializer walking the
+        // list never holds more than one alongside the accumulators.
+        List<ProbeEvent> probeEvents = mappedView(new ArrayList<>(acc.probeMap.values()),
+                a -> new ProbeEvent(a.eventType, a.classFqn, a.methodName, a.probeLabel, a.count,
+                        a.callSites.toList(acc.symbols),
                         gitoidToId.get(a.classGitoid),
-                        resolveClassIds(a.callerGitoids, gitoidToId)))
-                .toList();
+                        acc.shed.atLeast(MemoryBudget.Level.CALLER_GITOIDS)
+                                ? null
+                                : resolveClassIds(a.callerGitoids, gitoidToId)));
 
-        List<SecurityProviderEvent> secProvEvents = secProvMap.values().stream()
-                .map(a -> new SecurityProviderEvent(a.algorithm, a.serviceType, a.count, a.callSites))
-                .toList();
+        List<SecurityProviderEvent> secProvEvents = mappedView(new ArrayList<>(acc.secProvMap.values()),
+                a -> new SecurityProviderEvent(a.algorithm, a.serviceType, a.count, a.callSites.toList(acc.symbols)));
 
-        List<TlsHandshake> tlsHandshakes = tlsMap.entrySet().stream()
+        List<TlsHandshake> tlsHandshakes = acc.tlsMap.entrySet().stream()
                 .map(e -> new TlsHandshake(e.getKey().peerHost(), e.getKey().peerPort(),
                         e.getKey().protocol(), e.getKey().cipherSuite(), e.getValue()[0]))
                 .toList();
 
-        List<CertificateRecord> certificates = new ArrayList<>(certMap.values());
-        List<SecurityProperty> securityProperties = new ArrayList<>(secPropMap.values());
+        List<CertificateRecord> certificates = new ArrayList<>(acc.certMap.values());
+        List<SecurityProperty> securityProperties = new ArrayList<>(acc.secPropMap.values());
 
         log.info("Extracted: {} probe events, {} security provider events, {} TLS handshakes, {} certs, {} security properties, {} loaded classes from {} recording(s)",
                 probeEvents.size(), secProvEvents.size(), tlsHandshakes.size(),
-                certificates.size(), securityProperties.size(), loadedClasses.size(), recordingPaths.size());
+                certificates.size(), securityProperties.size(), loadedClasses.size(), recordingNames.size());
+        if (acc.stackLookups() > 0) {
+            log.debug("Stack-trace cache: {} of {} call-site lookups hit ({}%)", acc.stackHits(), acc.stackLookups(),
+                    String.format(Locale.ROOT, "%.1f", 100.0 * acc.stackHits() / acc.stackLookups()));
+        }
+        Degradation degradation = null;
+        if (acc.shed != MemoryBudget.Level.NONE) {
+            degradation = new Degradation(acc.shed.shed());
+            log.warn("The survey is lossy: {} shed to keep within the parse memory budget (counts are exact)",
+                    String.join(", ", degradation.shed()));
+        }
 
         return RawSurveyData.builder()
                 .version("1.0.0")
@@ -483,97 +1753,34 @@ public class JfrEventExtractor {
                 .certificates(certificates)
                 .securityProperties(securityProperties)
                 .loadedClasses(loadedClasses)
+                .degradation(degradation)
                 .build();
     }
 
-    // ── Probe event processing ──────────────────────────────────────────
-
-    private static void processProbeEvent(RecordedEvent event, String eventType,
-                                          Map<ProbeKey, ProbeAccumulator> probeMap,
-                                          Map<String, ProbeDefinition> probeIndex) {
-        String probeLabel = null;
-        try {
-            probeLabel = event.getEventType().getLabel();
-        } catch (Exception ignored) {}
-
-        // Resolve class/method from probe config (authoritative) or fall back to stack trace
-        String classFqn = null;
-        String methodName = null;
-        if (probeIndex != null) {
-            ProbeDefinition def = probeIndex.get(eventType);
-            if (def != null) {
-                classFqn = def.classFqn();
-                methodName = def.method();
-                if (probeLabel == null) probeLabel = def.label();
-            }
-        }
-        final String label = probeLabel;
-
-        // Fall back to stack trace if probe config didn't resolve
-        RecordedStackTrace st = event.getStackTrace();
-        if (classFqn == null && st != null && !st.getFrames().isEmpty()) {
-            RecordedFrame topFrame = st.getFrames().get(0);
-            classFqn = topFrame.getMethod().getType().getName();
-            methodName = topFrame.getMethod().getName();
-        }
+    // ── Helpers ─────────────────────────────────────────────────────────
 
-        if (classFqn == null) {
-            classFqn = eventType;
-            methodName = "unknown";
-        }
+    /** {@code source} with {@code mapping} applied on every read; unmodifiable. */
+    private static <A, T> List<T> mappedView(List<A> source, Function<A, T> mapping) {
+        return new MappedList<>(source, mapping);
+    }
 
-        final String finalClassFqn = classFqn;
-        final String finalMethodName = methodName;
-        var key = new ProbeKey(finalClassFqn, finalMethodName);
-        var acc = probeMap.computeIfAbsent(key,
-                k -> new ProbeAccumulator(eventType, finalClassFqn, finalMethodName, label));
-        acc.count++;
+    private static final class MappedList<A, T> extends AbstractList<T> implements RandomAccess {
+        private final List<A> source;
+        private final Function<A, T> mapping;
 
-        // Declaring-class + caller gitoids stamped by the agent (absent on older agents).
-        if (event.hasField("classGitoid")) {
-            String classGitoid = event.getString("classGitoid");
-            if (classGitoid != null) {
-                acc.classGitoid = classGitoid;
-            }
-        }
-        if (event.hasField("callerGitoids")) {
-            String callers = event.getString("callerGitoids");
-            if (callers != null && !callers.isEmpty()) {
-                for (String g : callers.split("\n")) {
-                    if (!g.isEmpty()) {
-                        acc.callerGitoids.add(g);
-                    }
-                }
-            }
+        MappedList(List<A> source, Function<A, T> mapping) {
+            this.source = source;
+            this.mapping = mapping;
         }
 
-        // Add application-level call site (skip JDK/agent frames)
-        if (st != null) {
-            String thread = event.getThread() != null ? event.getThread().getJavaName() : null;
-            for (RecordedFrame frame : st.getFrames()) {
-                String cn = frame.getMethod().getType().getName();
-                if (isApplicationCode(cn)) {
-                    String site = cn + "." + frame.getMethod().getName() + "() line " + frame.getLineNumber();
-                    acc.addCallSite(cn, site, thread);
-                    break;
-                }
-            }
+        @Override
+        public T get(int index) {
+            return mapping.apply(source.get(index));
         }
-    }
 
-    // ── Helpers ─────────────────────────────────────────────────────────
-
-    private static void addApplicationStackTrace(SecurityProviderAccumulator acc, RecordedEvent event) {
-        RecordedStackTrace st = event.getStackTrace();
-        if (st == null) return;
-        String thread = event.getThread() != null ? event.getThread().getJavaName() : null;
-        for (RecordedFrame frame : st.getFrames()) {
-            String cn = frame.getMethod().getType().getName();
-            if (isApplicationCode(cn)) {
-                String site = cn + "." + frame.getMethod().getName() + "() line " + frame.getLineNumber();
-                acc.addCallSite(cn, site, thread);
-                break;
-            }
+        @Override
+        public int size() {
+            return source.size();
         }
     }
 
@@ -593,12 +1800,7 @@ public class JfrEventExtractor {
     }
 
     static boolean isApplicationCode(String className) {
-        return !className.startsWith("java.")
-                && !className.startsWith("javax.")
-                && !className.startsWith("sun.")
-                && !className.startsWith("com.sun.")
-                && !className.startsWith("jdk.")
-                && !className.startsWith("org.openjdk.");
+        return AppFrameFilter.DEFAULT.isApplicationCode(className);
     }
 
     private static String safeInstantString(RecordedEvent event, String field) {
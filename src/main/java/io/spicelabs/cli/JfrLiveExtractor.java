@@ -0,0 +1,238 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jdk.jfr.consumer.EventStream;
+
+/**
+ * Parses JFR events while the target is still running, by streaming each target JVM's disk
+ * repository with {@link EventStream#openRepository(Path)}.
+ *
+ * <p>The target is started with {@code -XX:FlightRecorderOptions=repository=<base>,preserve-repository=true};
+ * every JVM it launches (a build tool plus its forked test JVMs, say) creates its own
+ * {@code <timestamp>_<pid>} directory under the base, and keeps its chunks there after it exits.
+ * A watcher thread opens one stream per directory as it appears, feeding its own
+ * {@link JfrEventExtractor.Accumulators}. A stream ends by itself once its JVM exits and the last
+ * chunk has been read.
+ *
+ * <p>Any doubt about completeness makes {@link #finish} return empty, and the caller parses the
+ * {@code dumponexit} recordings instead: a streamed JVM without a {@code recording-<pid>.jfr}, or a
+ * recording whose JVM wasn't streamed (one that came and went between polls leaves no directory
+ * to be seen), a stream error, or a stream still draining when the timeout expires.
+ */
+final class JfrLiveExtractor implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(JfrLiveExtractor.class);
+
+    /** How often the repository base is checked for newly started JVMs. */
+    static final long POLL_INTERVAL_MS = 200L;
+
+    /** How long {@link #finish} waits for streams to drain after the target exits. */
+    static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final Path repositoryBase;
+    private final Map<String, JfrEventExtractor.ProbeDefinition> probeIndex;
+    private final JfrEventExtractor.ParseOptions options;
+
+    // Keyed by directory name, which starts with the JVM start time, so iteration is start order.
+    // Only touched by the watcher thread until it has been joined.
+    private final TreeMap<String, LiveStream> streams = new TreeMap<>();
+    private Thread watcher;
+    private volatile boolean stopped;
+    private boolean missedRepository;
+
+    private static final class LiveStream {
+        final EventStream stream;
+        final JfrEventExtractor.Accumulators acc;
+        final CountDownLatch closed = new CountDownLatch(1);
+        volatile Throwable error;
+
+        LiveStream(EventStream stream, JfrEventExtractor.Accumulators acc) {
+            this.stream = stream;
+            this.acc = acc;
+        }
+    }
+
+    JfrLiveExtractor(Path repositoryBase, Map<String, JfrEventExtractor.ProbeDefinition> probeIndex) {
+        this(repositoryBase, probeIndex, JfrEventExtractor.ParseOptions.builder().build());
+    }
+
+    JfrLiveExtractor(Path repositoryBase, Map<String, JfrEventExtractor.ProbeDefinition> probeIndex,
+                     JfrEventExtractor.ParseOptions options) {
+        this.repositoryBase = repositoryBase;
+        this.probeIndex = probeIndex;
+        this.options = options;
+    }
+
+    /** Start watching the repository base. Call before launching the target. */
+    void start() {
+        watcher = new Thread(() -> {
+            while (!stopped) {
+                scan(false);
+                try {
+                    Thread.sleep(POLL_INTERVAL_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "jfr-live-watch");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Wait for every stream to drain and merge their accumulators in JVM start order. Call once
+     * the target has exited, with the recordings it dumped. Returns empty when the streamed events
+     * can't be trusted to be complete, in which case the caller should parse the recordings post-hoc.
+     */
+    Optional<JfrEventExtractor.Accumulators> finish(Duration timeout, List<Path> recordings)
+            throws InterruptedException {
+        stopWatching();
+        scan(true);
+        if (missedRepository) {
+            log.info("A JVM exited before its repository could be streamed; parsing recordings instead.");
+            return Optional.empty();
+        }
+        if (streams.isEmpty()) {
+            log.debug("No JFR repositories appeared under {}", repositoryBase);
+            return Optional.empty();
+        }
+        Set<String> streamedPids = new TreeSet<>();
+        for (String name : streams.keySet()) {
+            streamedPids.add(name.substring(name.lastIndexOf('_') + 1));
+        }
+        Set<String> recordedPids = new TreeSet<>();
+        for (Path recording : recordings) {
+            recordedPids.add(recordingPid(recording));
+        }
+        if (!streamedPids.equals(recordedPids)) {
+            log.info("Streamed JVMs {} don't match the recorded JVMs {}; parsing recordings instead.",
+                    streamedPids, recordedPids);
+            return Optional.empty();
+        }
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (Map.Entry<String, LiveStream> entry : streams.entrySet()) {
+            long remaining = Math.max(0, deadline - System.nanoTime());
+            if (!entry.getValue().closed.await(remaining, TimeUnit.NANOSECONDS)) {
+                log.warn("⚠️  Live JFR stream for {} did not finish within {}s; parsing recordings instead.",
+                        entry.getKey(), timeout.toSeconds());
+                return Optional.empty();
+            }
+            Throwable error = entry.getValue().error;
+            if (error != null) {
+                log.warn("⚠️  Live JFR stream for {} failed ({}); parsing recordings instead.",
+                        entry.getKey(), error.toString());
+                return Optional.empty();
+            }
+        }
+
+        JfrEventExtractor.Accumulators merged = null;
+        for (LiveStream live : streams.values()) {
+            if (merged == null) {
+                merged = live.acc;
+            } else {
+                merged.merge(live.acc);
+            }
+        }
+        log.debug("Streamed {} JFR repositor{} while the target ran",
+                streams.size(), streams.size() == 1 ? "y" : "ies");
+        return Optional.of(merged);
+    }
+
+    @Override
+    public void close() {
+        stopWatching();
+        for (LiveStream live : streams.values()) {
+            live.stream.close();
+        }
+    }
+
+    /** The pid in a {@code recording-<pid>.jfr} name, else the whole name, which matches no JVM. */
+    static String recordingPid(Path recording) {
+        String name = recording.getFileName().toString();
+        if (name.startsWith("recording-") && name.endsWith(".jfr")) {
+            return name.substring("recording-".length(), name.length() - ".jfr".length());
+        }
+        return name;
+    }
+
+    private void stopWatching() {
+        stopped = true;
+        if (watcher != null) {
+            watcher.interrupt();
+            try {
+                watcher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            watcher = null;
+        }
+    }
+
+    /**
+     * Open a stream for each repository directory not seen yet. After the target has exited
+     * ({@code late}), a new directory belongs to a JVM that is already gone and can't be streamed.
+     */
+    private void scan(boolean late) {
+        List<Path> dirs;
+        try (Stream<Path> entries = Files.list(repositoryBase)) {
+            dirs = entries.filter(Files::isDirectory).toList();
+        } catch (IOException e) {
+            log.debug("Could not list JFR repository {}: {}", repositoryBase, e.toString());
+            return;
+        }
+        for (Path dir : dirs) {
+            String name = dir.getFileName().toString();
+            if (streams.containsKey(name)) {
+                continue;
+            }
+            if (late) {
+                log.debug("JFR repository {} appeared after the target exited", name);
+                missedRepository = true;
+                continue;
+            }
+            try {
+                streams.put(name, open(dir));
+                log.debug("Streaming JFR repository {}", name);
+            } catch (IOException e) {
+                log.debug("Could not open JFR repository {}: {}", name, e.toString());
+                missedRepository = true;
+            }
+        }
+    }
+
+    private LiveStream open(Path dir) throws IOException {
+        EventStream stream = EventStream.openRepository(dir);
+        LiveStream live = new LiveStream(stream, new JfrEventExtractor.Accumulators(probeIndex, options));
+        // Read from the first chunk, not from "now", and in file order like RecordingFile, so
+        // first-seen ordering matches a post-hoc parse. No object reuse: accumulators outlive events.
+        stream.setStartTime(Instant.EPOCH);
+        stream.setOrdered(false);
+        stream.setReuse(false);
+        stream.onEvent(live.acc::accept);
+        stream.onError(t -> live.error = t);
+        stream.onClose(live.closed::countDown);
+        stream.startAsync();
+        return live;
+    }
+}
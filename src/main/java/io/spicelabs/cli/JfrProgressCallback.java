@@ -3,18 +3,64 @@
 
 package io.spicelabs.cli;
 
+import java.time.Duration;
+import java.util.Locale;
+
 /**
- * Progress sink for the JFR parse pass. Mirrors the shape of goat-rodeo's
- * {@code ProgressListener} without dragging the goat-rodeo dependency into
- * {@link JfrEventExtractor} — runtime surveys don't use goat-rodeo.
+ * Progress sink for the JFR parse pass. Plays the part of goat-rodeo's {@code ProgressListener}
+ * without dragging the goat-rodeo dependency into {@link JfrEventExtractor} — runtime surveys
+ * don't use goat-rodeo.
  *
- * <p>{@code current} is the number of JFR recordings whose parse has finished; {@code total}
- * is the number of recordings handed to {@link JfrEventExtractor#extract}. Liveness ticks
- * within a single long recording fire with the same {@code current/total}, so callers that
- * just want a "still working" pulse get one.
+ * <p>Progress is measured in recording bytes, so one large recording moves too rather than
+ * sitting at 0% until it's done. Liveness ticks within a long recording fire about once a second
+ * even when the estimate hasn't moved, so callers that just want a "still working" pulse get one.
  */
 @FunctionalInterface
 interface JfrProgressCallback {
 
-    void onProgress(long current, long total);
+    void onProgress(Progress progress);
+
+    /**
+     * Where the parse is: {@code recordingsParsed} of the {@code recordings} handed to
+     * {@link JfrEventExtractor#extract} are done, and about {@code bytesParsed} of their
+     * {@code bytes}. {@code bytesPerSecond} is a moving average of recent throughput (0 until
+     * known), and {@code eta} the time left at that rate (null until known).
+     */
+    record Progress(int recordingsParsed, int recordings, long bytesParsed, long bytes,
+                    double bytesPerSecond, Duration eta) {
+
+        /** Done, from 0 to 1: by bytes, or by recordings if their size isn't known. */
+        double fraction() {
+            if (bytes > 0) {
+                return Math.min(1.0, (double) bytesParsed / bytes);
+            }
+            return recordings > 0 ? Math.min(1.0, (double) recordingsParsed / recordings) : 0;
+        }
+
+        /** E.g. "1.2 GB of 4.0 GB (30%), 85.0 MB/s, about 35s left". */
+        String describe() {
+            StringBuilder sb = new StringBuilder()
+                    .append(SurveyRuntimeCommand.humanReadableSize(bytesParsed))
+                    .append(" of ").append(SurveyRuntimeCommand.humanReadableSize(bytes))
+                    .append(String.format(Locale.ROOT, " (%d%%)", (int) Math.floor(fraction() * 100)));
+            if (bytesPerSecond > 0) {
+                sb.append(", ").append(SurveyRuntimeCommand.humanReadableSize((long) bytesPerSecond)).append("/s");
+            }
+            if (eta != null) {
+                sb.append(", about ").append(formatDuration(eta)).append(" left");
+            }
+            return sb.toString();
+        }
+
+        private static String formatDuration(Duration d) {
+            long seconds = Math.max(0, d.toSeconds());
+            if (seconds >= 3600) {
+                return seconds / 3600 + "h " + seconds % 3600 / 60 + "m";
+            }
+            if (seconds >= 60) {
+                return seconds / 60 + "m " + seconds % 60 + "s";
+            }
+            return seconds + "s";
+        }
+    }
 }
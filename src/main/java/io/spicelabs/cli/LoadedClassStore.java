@@ -0,0 +1,549 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.spicelabs.cli.JfrEventExtractor.LoadedClass;
+
+/**
+ * The loaded classes of a survey, one per class gitoid (the first record seen wins), in
+ * first-seen order. Up to {@code spillThreshold} classes are held in heap, in a compact
+ * {@link LoadedClassTable}; past that, or when the heap is still low after a collection and at least
+ * {@value #MIN_HEAP_SPILL_CLASSES} are held, they're written out as a run to a scratch file and the
+ * table starts over.
+ *
+ * <p>Each run is two files: the records in first-seen order, and their (gitoid, offset) keys
+ * sorted by gitoid. {@link #toList} k-way merges the runs' keys to find every record that
+ * repeats an earlier gitoid, then walks the runs in order for the rest, and returns them as a
+ * list read on demand from the memory-mapped run files; only an 8-byte reference per class stays
+ * in heap. A store that never spills returns exactly what the map it replaced did.
+ *
+ * <p>{@link #contains} sees spilled classes too, through a {@link RunIndex} per run: a Bloom filter
+ * and the run's mapped sorted keys, about five bytes of heap per spilled class.
+ */
+final class LoadedClassStore {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadedClassStore.class);
+
+    // Heap use is checked every this many new classes; past this fraction of the max, we spill.
+    private static final int HEAP_CHECK_INTERVAL = 1024;
+    private static final double SPILL_HEAP_FRACTION = 0.8;
+    // Classes held before a low heap may spill them: each run costs a mapped file and a lookup on every add.
+    private static final int MIN_HEAP_SPILL_CLASSES = 16 * 1024;
+
+    // The pools whose usage after a collection says whether the heap is really low: those that
+    // support usage thresholds, as MemoryBudget watches — the old generation, not eden or survivors.
+    private static final List<MemoryPoolMXBean> TENURED_POOLS = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP
+                    && pool.isUsageThresholdSupported() && pool.isCollectionUsageThresholdSupported())
+            .toList();
+
+    private final int spillThreshold;
+    private final Path spillParent;
+    private LoadedClassTable inHeap = new LoadedClassTable();
+    private final List<Run> runs = new ArrayList<>();
+    private Path spillDirectory;
+    private long spilled;
+    private int addsSinceHeapCheck;
+
+    /** Records file, gitoid-sorted keys file, the number of records in them, and their lookup index. */
+    private record Run(Path records, Path keys, int size, RunIndex index) {}
+
+    /**
+     * @param spillThreshold classes held in heap before a run is spilled
+     * @param spillParent where to create the scratch directory; {@code null} for the system temp dir
+     */
+    LoadedClassStore(int spillThreshold, Path spillParent) {
+        this.spillThreshold = spillThreshold;
+        this.spillParent = spillParent;
+    }
+
+    /** Whether a class with this gitoid is held, in heap or in a spilled run. */
+    boolean contains(String gitoid) {
+        if (inHeap.contains(gitoid)) {
+            return true;
+        }
+        for (Run run : runs) {
+            if (run.index().contains(gitoid)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Add a class unless one with its gitoid is already held in heap; duplicates of spilled classes are dropped at {@link #toList}. */
+    void add(LoadedClass loadedClass) {
+        if (inHeap.add(loadedClass) && shouldSpill()) {
+            spill();
+        }
+    }
+
+    /** Append a later store's classes, as if they had been added here after ours. {@code later} is consumed. */
+    void addAll(LoadedClassStore later) {
+        if (!later.runs.isEmpty()) {
+            // Ours must stay ahead of theirs, so what we still hold goes out first.
+            if (inHeap.size() > 0) {
+                spill();
+            }
+            runs.addAll(later.runs);
+            spilled += later.spilled;
+            later.runs.clear();
+        }
+        for (int entry = 0; entry < later.inHeap.size(); entry++) {
+            add(later.inHeap.get(entry, entry));
+        }
+    }
+
+    /**
+     * Classes held. Exact while classes are only added after {@link #contains} says they're new,
+     * as the extractor does; after {@link #addAll} or {@link #readFrom}, a class spilled in more
+     * than one run counts once per run until {@link #toList} drops the repeats.
+     */
+    long size() {
+        return inHeap.size() + spilled;
+    }
+
+    /**
+     * The classes in first-seen order, with ids assigned in that order. The id of each class whose
+     * gitoid is in {@code linked} is put into {@code gitoidToId}. Consumes the store: spill files
+     * are removed once mapped.
+     */
+    List<LoadedClass> toList(Set<String> linked, Map<String, Integer> gitoidToId) {
+        if (runs.isEmpty()) {
+            for (String gitoid : linked) {
+                int id = inHeap.find(gitoid);
+                if (id >= 0) {
+                    gitoidToId.put(gitoid, id);
+                }
+            }
+            return inHeap.asList();
+        }
+        if (inHeap.size() > 0) {
+            spill();
+        }
+        try {
+            return merge(linked, gitoidToId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deleteRuns();
+        }
+    }
+
+    // ── Checkpoints ─────────────────────────────────────────────────────
+
+    /**
+     * Write every class held, spilled or not, in the order added. Spilled runs don't change once
+     * written, so with a {@code runDirectory} each is kept there (hard-linked, or copied once where
+     * links aren't supported) and written by name; without one, or for the classes still in heap,
+     * records are written in the spill format. Repeats across runs are kept, and dropped again at
+     * {@link #toList}. Returns the run files the snapshot refers to.
+     */
+    Set<Path> writeTo(DataOutputStream out, Path runDirectory) throws IOException {
+        Set<Path> kept = new LinkedHashSet<>();
+        if (runDirectory == null) {
+            out.writeInt(0);
+            out.writeLong(size());
+            for (Run run : runs) {
+                Files.copy(run.records(), out);
+            }
+        } else {
+            out.writeInt(runs.size());
+            for (Run run : runs) {
+                Path records = run.records();
+                Path link = runDirectory.resolve(records.getParent().getFileName() + "-" + records.getFileName());
+                if (!Files.exists(link)) {
+                    Files.createDirectories(runDirectory);
+                    try {
+                        Files.createLink(link, records);
+                    } catch (IOException | UnsupportedOperationException e) {
+                        Files.copy(records, link);
+                    }
+                }
+                kept.add(link);
+                ParseCheckpoint.writeString(out, link.getFileName().toString());
+                out.writeInt(run.size());
+            }
+            out.writeLong(inHeap.size());
+        }
+        for (int entry = 0; entry < inHeap.size(); entry++) {
+            writeRecord(out, inHeap.get(entry, entry));
+        }
+        return kept;
+    }
+
+    /** Add the classes {@link #writeTo} wrote, reading any runs from {@code runDirectory}, spilling as they come in. */
+    void readFrom(DataInputStream in, Path runDirectory) throws IOException {
+        for (int n = in.readInt(); n > 0; n--) {
+            Path records = runDirectory.resolve(ParseCheckpoint.readString(in));
+            int size = in.readInt();
+            try (DataInputStream run = new DataInputStream(new BufferedInputStream(Files.newInputStream(records)))) {
+                readRecords(run, size);
+            }
+        }
+        readRecords(in, in.readLong());
+    }
+
+    private void readRecords(DataInputStream in, long n) throws IOException {
+        for (; n > 0; n--) {
+            String classGitoid = ParseCheckpoint.readString(in);
+            String className = ParseCheckpoint.readString(in);
+            String classSha256 = ParseCheckpoint.readString(in);
+            String codeSource = ParseCheckpoint.readString(in);
+            String jarGitoid = ParseCheckpoint.readString(in);
+            String jarSha256 = ParseCheckpoint.readString(in);
+            add(new LoadedClass(0, className, classGitoid, classSha256, codeSource, jarGitoid, jarSha256));
+        }
+    }
+
+    // ── Spilling ────────────────────────────────────────────────────────
+
+    private boolean shouldSpill() {
+        if (inHeap.size() >= spillThreshold) {
+            return true;
+        }
+        if (inHeap.size() < MIN_HEAP_SPILL_CLASSES || ++addsSinceHeapCheck < HEAP_CHECK_INTERVAL) {
+            return false;
+        }
+        addsSinceHeapCheck = 0;
+        return heapLowAfterCollection();
+    }
+
+    /**
+     * Whether a tenured pool was still past {@link #SPILL_HEAP_FRACTION} of its max after its last
+     * collection. Used heap alone counts garbage not yet collected, which says little about what
+     * the classes held here cost.
+     */
+    private static boolean heapLowAfterCollection() {
+        for (MemoryPoolMXBean pool : TENURED_POOLS) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            long max = usage.getMax() < 0 ? Runtime.getRuntime().maxMemory() : usage.getMax();
+            if (usage.getUsed() > max * SPILL_HEAP_FRACTION) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void spill() {
+        try {
+            if (spillDirectory == null) {
+                spillDirectory = spillParent != null
+                        ? Files.createTempDirectory(Files.createDirectories(spillParent), "jfr-spill-")
+                        : Files.createTempDirectory("spice-jfr-spill-");
+                log.info("Loaded classes past {} in memory; spilling to {}", inHeap.size(), spillDirectory);
+            }
+            int n = runs.size();
+            Path records = spillDirectory.resolve("run-" + n + ".classes");
+            Path keys = spillDirectory.resolve("run-" + n + ".keys");
+            List<Key> sorted = new ArrayList<>(inHeap.size());
+            try (DataOutputStream out = open(records)) {
+                for (int entry = 0; entry < inHeap.size(); entry++) {
+                    LoadedClass lc = inHeap.get(entry, entry);
+                    sorted.add(new Key(lc.classGitoid(), out.size()));
+                    writeRecord(out, lc);
+                }
+            }
+            sorted.sort(Comparator.comparing(Key::gitoid));
+            try (DataOutputStream out = open(keys)) {
+                for (Key key : sorted) {
+                    ParseCheckpoint.writeString(out, key.gitoid());
+                    out.writeInt(key.offset());
+                }
+            }
+            log.debug("Spilled {} loaded classes to {}", inHeap.size(), records.getFileName());
+            runs.add(new Run(records, keys, inHeap.size(), new RunIndex(sorted, map(keys))));
+            spilled += inHeap.size();
+            inHeap = new LoadedClassTable();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record Key(String gitoid, int offset) {}
+
+    /**
+     * A run's gitoids, looked up without reading its records: a Bloom filter answers most misses,
+     * and a binary search of the mapped, gitoid-sorted keys file settles the rest.
+     */
+    private static final class RunIndex {
+        private static final int BITS_PER_KEY = 10;
+        private static final int HASHES = 3;
+
+        private final long[] bloom;
+        private final ByteBuffer keys;
+        // Where each key starts in keys; they're variable length.
+        private final int[] offsets;
+
+        RunIndex(List<Key> sorted, ByteBuffer keys) {
+            this.bloom = new long[Math.max(1, (sorted.size() * BITS_PER_KEY + 63) / 64)];
+            this.keys = keys;
+            this.offsets = new int[sorted.size()];
+            int position = 0;
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = position;
+                position = skipString(keys, position) + Integer.BYTES;
+                int hash = sorted.get(i).gitoid().hashCode();
+                for (int h = 0; h < HASHES; h++) {
+                    int bit = bit(hash, h);
+                    bloom[bit >>> 6] |= 1L << bit;
+                }
+            }
+        }
+
+        boolean contains(String gitoid) {
+            int hash = gitoid.hashCode();
+            for (int h = 0; h < HASHES; h++) {
+                int bit = bit(hash, h);
+                if ((bloom[bit >>> 6] & 1L << bit) == 0) {
+                    return false;
+                }
+            }
+            int low = 0;
+            int high = offsets.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = readString(keys, offsets[mid]).compareTo(gitoid);
+                if (cmp == 0) {
+                    return true;
+                }
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return false;
+        }
+
+        /** The {@code h}th of the filter's bits for {@code hash}, by double hashing. */
+        private int bit(int hash, int h) {
+            int second = Integer.rotateLeft(hash * 0x9E3779B9, 16) | 1;
+            return Math.floorMod(hash + h * second, bloom.length * 64);
+        }
+    }
+
+    private static DataOutputStream open(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+    }
+
+    private static void writeRecord(DataOutputStream out, LoadedClass lc) throws IOException {
+        ParseCheckpoint.writeString(out, lc.classGitoid());
+        ParseCheckpoint.writeString(out, lc.className());
+        ParseCheckpoint.writeString(out, lc.classSha256());
+        ParseCheckpoint.writeString(out, lc.codeSource());
+        ParseCheckpoint.writeString(out, lc.jarGitoid());
+        ParseCheckpoint.writeString(out, lc.jarSha256());
+    }
+
+    // ── Merging ─────────────────────────────────────────────────────────
+
+    /** A run's keys, read in gitoid order. */
+    private static final class KeyCursor {
+        final int run;
+        final ByteBuffer keys;
+        String gitoid;
+        int offset;
+
+        KeyCursor(int run, ByteBuffer keys) {
+            this.run = run;
+            this.keys = keys;
+        }
+
+        boolean advance() {
+            if (!keys.hasRemaining()) {
+                return false;
+            }
+            int position = keys.position();
+            gitoid = readString(keys, position);
+            position = skipString(keys, position);
+            offset = keys.getInt(position);
+            keys.position(position + Integer.BYTES);
+            return true;
+        }
+    }
+
+    private List<LoadedClass> merge(Set<String> linked, Map<String, Integer> gitoidToId) throws IOException {
+        MappedByteBuffer[] records = new MappedByteBuffer[runs.size()];
+        // Earliest first within a gitoid: lower run, then lower offset.
+        PriorityQueue<KeyCursor> queue = new PriorityQueue<>(Comparator
+                .comparing((KeyCursor c) -> c.gitoid)
+                .thenComparingInt(c -> c.run)
+                .thenComparingInt(c -> c.offset));
+        for (int r = 0; r < runs.size(); r++) {
+            records[r] = map(runs.get(r).records());
+            KeyCursor cursor = new KeyCursor(r, map(runs.get(r).keys()));
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+        }
+
+        // Pass 1: references of every record whose gitoid an earlier record already has.
+        long[] duplicates = new long[16];
+        int duplicateCount = 0;
+        String previous = null;
+        while (!queue.isEmpty()) {
+            KeyCursor cursor = queue.poll();
+            if (cursor.gitoid.equals(previous)) {
+                if (duplicateCount == duplicates.length) {
+                    duplicates = Arrays.copyOf(duplicates, duplicateCount * 2);
+                }
+                duplicates[duplicateCount++] = reference(cursor.run, cursor.offset);
+            } else {
+                previous = cursor.gitoid;
+            }
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+        }
+        Arrays.sort(duplicates, 0, duplicateCount);
+
+        // Pass 2: the runs in order, which is first-seen order, skipping the duplicates.
+        long[] index = new long[Math.toIntExact(spilled - duplicateCount)];
+        int next = 0;
+        int d = 0;
+        for (int r = 0; r < runs.size(); r++) {
+            ByteBuffer run = records[r];
+            int offset = 0;
+            for (int i = 0; i < runs.get(r).size(); i++) {
+                long reference = reference(r, offset);
+                if (d < duplicateCount && duplicates[d] == reference) {
+                    d++;
+                } else {
+                    String gitoid = readString(run, offset);
+                    if (linked.contains(gitoid)) {
+                        gitoidToId.put(gitoid, next);
+                    }
+                    index[next++] = reference;
+                }
+                offset = skipRecord(run, offset);
+            }
+        }
+        log.debug("Merged {} spill runs: {} loaded classes, {} repeated across runs",
+                runs.size(), index.length, duplicateCount);
+        return new SpilledClasses(records, index);
+    }
+
+    private static long reference(int run, int offset) {
+        return ((long) run << 32) | offset;
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private void deleteRuns() {
+        Set<Path> directories = new LinkedHashSet<>();
+        for (Run run : runs) {
+            delete(run.records());
+            delete(run.keys());
+            directories.add(run.records().getParent());
+        }
+        directories.forEach(LoadedClassStore::delete);
+        runs.clear();
+    }
+
+    /** Mappings outlive the file on POSIX; where deleting a mapped file fails, leave it to exit. */
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.debug("Could not remove {} now, will on exit: {}", path, e.toString());
+            path.toFile().deleteOnExit();
+        }
+    }
+
+    // ── Reading records ─────────────────────────────────────────────────
+
+    private static int byteLength(ByteBuffer buffer, int position) {
+        return Math.max(buffer.getInt(position), 0);
+    }
+
+    private static String readString(ByteBuffer buffer, int position) {
+        int length = buffer.getInt(position);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(position + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int skipString(ByteBuffer buffer, int position) {
+        return position + Integer.BYTES + byteLength(buffer, position);
+    }
+
+    private static int skipRecord(ByteBuffer buffer, int offset) {
+        for (int field = 0; field < 6; field++) {
+            offset = skipString(buffer, offset);
+        }
+        return offset;
+    }
+
+    /** Merged classes, decoded from the mapped runs on each {@link #get}. */
+    private static final class SpilledClasses extends AbstractList<LoadedClass> implements RandomAccess {
+        private final MappedByteBuffer[] runs;
+        private final long[] index;
+
+        SpilledClasses(MappedByteBuffer[] runs, long[] index) {
+            this.runs = runs;
+            this.index = index;
+        }
+
+        @Override
+        public LoadedClass get(int id) {
+            long reference = index[id];
+            ByteBuffer run = runs[(int) (reference >>> 32)];
+            int offset = (int) reference;
+            String classGitoid = readString(run, offset);
+            offset = skipString(run, offset);
+            String className = readString(run, offset);
+            offset = skipString(run, offset);
+            String classSha256 = readString(run, offset);
+            offset = skipString(run, offset);
+            String codeSource = readString(run, offset);
+            offset = skipString(run, offset);
+            String jarGitoid = readString(run, offset);
+            offset = skipString(run, offset);
+            String jarSha256 = readString(run, offset);
+            return new LoadedClass(id, className, classGitoid, classSha256, codeSource, jarGitoid, jarSha256);
+        }
+
+        @Override
+        public int size() {
+            return index.length;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import io.spicelabs.cli.JfrEventExtractor.LoadedClass;
+
+/**
+ * Loaded classes, one per class gitoid (the first added wins), in insertion order, held as
+ * primitives wherever the data allows. A canonical gitoid ({@code gitoid:blob:sha256:} and 64
+ * lowercase hex digits) or sha256 (64 lowercase hex digits) is kept as its 32-byte digest in a
+ * {@code long[]}, and gitoid digests are found through an open-addressing index of entry numbers.
+ * Code sources and jar hashes, shared by every class of a jar, are interned. Strings are only
+ * rebuilt when a {@link LoadedClass} is read back out.
+ *
+ * <p>A value in any other form is kept as-is: a gitoid in a side map, a sha256 in a side array.
+ */
+final class LoadedClassTable {
+
+    private static final String GITOID_PREFIX = "gitoid:blob:sha256:";
+    private static final int DIGEST_HEX_LENGTH = 64;
+    private static final int WORDS = 4;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // Entry i's digests are words [4i, 4i + 4).
+    private long[] gitoidWords = new long[INITIAL_CAPACITY * WORDS];
+    private long[] sha256Words = new long[INITIAL_CAPACITY * WORDS];
+    // Values that aren't canonical digests (null when the digest words hold the value).
+    private String[] rawGitoids = new String[INITIAL_CAPACITY];
+    private String[] rawSha256s = new String[INITIAL_CAPACITY];
+    private boolean[] nullSha256 = new boolean[INITIAL_CAPACITY];
+    private String[] classNames = new String[INITIAL_CAPACITY];
+    private int[] codeSources = new int[INITIAL_CAPACITY];
+    private int[] jarGitoids = new int[INITIAL_CAPACITY];
+    private int[] jarSha256s = new int[INITIAL_CAPACITY];
+    private final SymbolTable symbols = new SymbolTable();
+    private int size;
+
+    // Canonical gitoids: slot -> entry + 1; 0 is empty. Kept at most half full.
+    private int[] index = new int[INITIAL_CAPACITY * 2];
+    private final Map<String, Integer> rawIndex = new HashMap<>();
+
+    // Scratch for the digest being looked up, so lookups don't allocate.
+    private final long[] probe = new long[WORDS];
+
+    int size() {
+        return size;
+    }
+
+    /** The entry holding {@code gitoid}, or -1. */
+    int find(String gitoid) {
+        if (!parseGitoid(gitoid, probe)) {
+            return rawIndex.getOrDefault(gitoid, -1);
+        }
+        int mask = index.length - 1;
+        for (int slot = hash(probe, 0) & mask, entry; (entry = index[slot]) != 0; slot = (slot + 1) & mask) {
+            if (matches(entry - 1, probe)) {
+                return entry - 1;
+            }
+        }
+        return -1;
+    }
+
+    boolean contains(String gitoid) {
+        return find(gitoid) >= 0;
+    }
+
+    /** Add {@code loadedClass} (its id is ignored); returns false if its gitoid is already held. */
+    boolean add(LoadedClass loadedClass) {
+        String gitoid = loadedClass.classGitoid();
+        if (contains(gitoid)) {
+            return false;
+        }
+        int entry = size++;
+        ensureCapacity(size);
+        if (parseGitoid(gitoid, probe)) {
+            System.arraycopy(probe, 0, gitoidWords, entry * WORDS, WORDS);
+            indexInsert(entry);
+        } else {
+            rawGitoids[entry] = gitoid;
+            rawIndex.put(gitoid, entry);
+        }
+        String sha256 = loadedClass.classSha256();
+        if (sha256 == null) {
+            nullSha256[entry] = true;
+        } else if (!parseHex(sha256, 0, sha256Words, entry * WORDS)) {
+            rawSha256s[entry] = sha256;
+        }
+        classNames[entry] = loadedClass.className();
+        codeSources[entry] = symbols.intern(loadedClass.codeSource());
+        jarGitoids[entry] = symbols.intern(loadedClass.jarGitoid());
+        jarSha256s[entry] = symbols.intern(loadedClass.jarSha256());
+        return true;
+    }
+
+    /** Entry {@code entry} as a record with the given id. */
+    LoadedClass get(int entry, int id) {
+        String gitoid = rawGitoids[entry] != null
+                ? rawGitoids[entry]
+                : GITOID_PREFIX + hex(gitoidWords, entry * WORDS);
+        String sha256 = nullSha256[entry] ? null
+                : rawSha256s[entry] != null ? rawSha256s[entry]
+                : hex(sha256Words, entry * WORDS);
+        return new LoadedClass(id, classNames[entry], gitoid, sha256, symbols.symbol(codeSources[entry]),
+                symbols.symbol(jarGitoids[entry]), symbols.symbol(jarSha256s[entry]));
+    }
+
+    /** The entries in order, each with its entry number as id, decoded as they're read. */
+    List<LoadedClass> asList() {
+        return new Entries();
+    }
+
+    private final class Entries extends AbstractList<LoadedClass> implements RandomAccess {
+        @Override
+        public LoadedClass get(int id) {
+            if (id < 0 || id >= size) {
+                throw new IndexOutOfBoundsException(id);
+            }
+            return LoadedClassTable.this.get(id, id);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    // ── Digests ─────────────────────────────────────────────────────────
+
+    private static boolean parseGitoid(String gitoid, long[] words) {
+        return gitoid.length() == GITOID_PREFIX.length() + DIGEST_HEX_LENGTH
+                && gitoid.startsWith(GITOID_PREFIX)
+                && parseHex(gitoid, GITOID_PREFIX.length(), words, 0);
+    }
+
+    /** Parse 64 lowercase hex digits at {@code from}, the rest of {@code s}, into 4 words; false if they aren't. */
+    private static boolean parseHex(String s, int from, long[] words, int at) {
+        if (s.length() - from != DIGEST_HEX_LENGTH) {
+            return false;
+        }
+        for (int w = 0; w < WORDS; w++) {
+            long word = 0;
+            for (int i = from + w * 16, end = i + 16; i < end; i++) {
+                char c = s.charAt(i);
+                int nibble = c >= '0' && c <= '9' ? c - '0' : c >= 'a' && c <= 'f' ? c - 'a' + 10 : -1;
+                if (nibble < 0) {
+                    return false;
+                }
+                word = (word << 4) | nibble;
+            }
+            words[at + w] = word;
+        }
+        return true;
+    }
+
+    private static String hex(long[] words, int at) {
+        char[] chars = new char[DIGEST_HEX_LENGTH];
+        for (int w = 0; w < WORDS; w++) {
+            long word = words[at + w];
+            for (int i = 15; i >= 0; i--) {
+                chars[w * 16 + i] = HEX[(int) (word & 0xF)];
+                word >>>= 4;
+            }
+        }
+        return new String(chars);
+    }
+
+    // ── Index ───────────────────────────────────────────────────────────
+
+    private boolean matches(int entry, long[] digest) {
+        int at = entry * WORDS;
+        return gitoidWords[at] == digest[0] && gitoidWords[at + 1] == digest[1]
+                && gitoidWords[at + 2] == digest[2] && gitoidWords[at + 3] == digest[3];
+    }
+
+    private static int hash(long[] words, int at) {
+        // Digests are already uniformly distributed: any word will do.
+        return (int) (words[at] ^ (words[at] >>> 32));
+    }
+
+    /** Index a new entry, already counted in {@link #size}. */
+    private void indexInsert(int entry) {
+        if ((size - rawIndex.size()) * 2 > index.length) {
+            rehash(index.length * 2);
+        } else {
+            place(entry);
+        }
+    }
+
+    private void place(int entry) {
+        int mask = index.length - 1;
+        int slot = hash(gitoidWords, entry * WORDS) & mask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = entry + 1;
+    }
+
+    private void rehash(int length) {
+        index = new int[length];
+        for (int entry = 0; entry < size; entry++) {
+            if (rawGitoids[entry] == null) {
+                place(entry);
+            }
+        }
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= classNames.length) {
+            return;
+        }
+        int length = classNames.length * 2;
+        gitoidWords = Arrays.copyOf(gitoidWords, length * WORDS);
+        sha256Words = Arrays.copyOf(sha256Words, length * WORDS);
+        rawGitoids = Arrays.copyOf(rawGitoids, length);
+        rawSha256s = Arrays.copyOf(rawSha256s, length);
+        nullSha256 = Arrays.copyOf(nullSha256, length);
+        classNames = Arrays.copyOf(classNames, length);
+        codeSources = Arrays.copyOf(codeSources, length);
+        jarGitoids = Arrays.copyOf(jarGitoids, length);
+        jarSha256s = Arrays.copyOf(jarSha256s, length);
+    }
+}
@@ -0,0 +1,190 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A heap budget for a JFR parse, and how much detail the parse has shed to keep within it. The
+ * heap pools that support usage thresholds — the old generation, where a long parse's
+ * accumulators end up — are watched through {@link MemoryPoolMXBean} usage-threshold
+ * notifications; as a pool's usage passes each {@link Level}'s share of the budget, the level
+ * rises and every parse worker sheds that detail, so a recording too big for the heap yields a
+ * lossy survey, marked as such, instead of an {@link OutOfMemoryError}. Event counts are never shed.
+ *
+ * <p>The level only rises: shed detail can't be recovered. Shared by every parse worker, each of
+ * which checks it per event, a volatile read. Close it to stop watching.
+ */
+public final class MemoryBudget implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(MemoryBudget.class);
+
+    /** Call sites kept per event once {@link Level#CALL_SITES} is shed: the most frequent. */
+    static final int DEGRADED_MAX_CALL_SITES = 16;
+
+    /** Detail shed, in the order it goes; each level sheds its own detail and every lower level's. */
+    public enum Level {
+        NONE(null, 0),
+        /** Call sites capped at the {@value MemoryBudget#DEGRADED_MAX_CALL_SITES} most frequent per event, with counts. */
+        CALL_SITES("callSites", 0.70),
+        /** Call sites no longer told apart by thread; those differing only in it are added up. */
+        THREAD_NAMES("threadNames", 0.85),
+        /** Probe events' caller gitoids, hence their {@code callerClassIds}, dropped. */
+        CALLER_GITOIDS("callerGitoids", 0.95);
+
+        private final String detail;
+        // Share of the budget a pool's usage passes to reach this level.
+        private final double share;
+
+        Level(String detail, double share) {
+            this.detail = detail;
+            this.share = share;
+        }
+
+        /** What's been shed at this level, as recorded in the survey: this level's detail and the lower ones'. */
+        public List<String> shed() {
+            List<String> shed = new ArrayList<>();
+            for (Level level : values()) {
+                if (level != NONE && level.compareTo(this) <= 0) {
+                    shed.add(level.detail);
+                }
+            }
+            return shed;
+        }
+
+        boolean atLeast(Level level) {
+            return compareTo(level) >= 0;
+        }
+    }
+
+    private final long bytes;
+    private volatile Level level = Level.NONE;
+    // Pools watched, with the thresholds they had before, restored on close.
+    private final List<MemoryPoolMXBean> pools = new ArrayList<>();
+    private final List<Long> previousThresholds = new ArrayList<>();
+    private final NotificationListener listener = this::onNotification;
+    private NotificationEmitter emitter;
+
+    /** A budget of {@code bytes} that isn't watching the heap; see {@link #watch}. */
+    MemoryBudget(long bytes) {
+        if (bytes < 1) {
+            throw new IllegalArgumentException("memory budget must be at least 1 byte, got: " + bytes);
+        }
+        this.bytes = bytes;
+    }
+
+    /** Start watching the heap against a budget of {@code bytes}. */
+    public static MemoryBudget watch(long bytes) {
+        MemoryBudget budget = new MemoryBudget(bytes);
+        budget.start();
+        return budget;
+    }
+
+    public long bytes() {
+        return bytes;
+    }
+
+    /** The detail the parse is to shed by now. */
+    public Level level() {
+        return level;
+    }
+
+    /**
+     * A pool's usage is now {@code used} bytes: raise the level to the highest whose share of the
+     * budget that reaches, and move the watched pools' thresholds on to the next level's.
+     */
+    synchronized void observe(long used) {
+        Level reached = level;
+        for (Level candidate : Level.values()) {
+            if (candidate.compareTo(reached) > 0 && used >= threshold(candidate)) {
+                reached = candidate;
+            }
+        }
+        if (reached == level) {
+            return;
+        }
+        log.warn("Heap usage {} is past {}% of the {} parse memory budget; shedding {} from the survey",
+                SurveyRuntimeCommand.humanReadableSize(used), Math.round(reached.share * 100),
+                SurveyRuntimeCommand.humanReadableSize(bytes), reached.detail);
+        level = reached;
+        long next = nextThreshold();
+        for (MemoryPoolMXBean pool : pools) {
+            setThreshold(pool, next);
+        }
+    }
+
+    /** Stop watching, restoring the pools' thresholds. */
+    @Override
+    public synchronized void close() {
+        if (emitter != null) {
+            try {
+                emitter.removeNotificationListener(listener);
+            } catch (ListenerNotFoundException ignored) {}
+            emitter = null;
+        }
+        for (int i = 0; i < pools.size(); i++) {
+            pools.get(i).setUsageThreshold(previousThresholds.get(i));
+        }
+        pools.clear();
+        previousThresholds.clear();
+    }
+
+    private synchronized void start() {
+        long first = threshold(Level.CALL_SITES);
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported()) {
+                pools.add(pool);
+                previousThresholds.add(pool.getUsageThreshold());
+                setThreshold(pool, first);
+            }
+        }
+        if (pools.isEmpty()) {
+            log.warn("No heap pool supports usage thresholds; the parse memory budget has no effect");
+            return;
+        }
+        emitter = (NotificationEmitter) ManagementFactory.getMemoryMXBean();
+        emitter.addNotificationListener(listener, null, null);
+        // Already past a threshold: the notification only fires on crossing it.
+        for (MemoryPoolMXBean pool : List.copyOf(pools)) {
+            observe(pool.getUsage().getUsed());
+        }
+    }
+
+    private void onNotification(Notification notification, Object handback) {
+        if (MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+            MemoryNotificationInfo info = MemoryNotificationInfo.from((CompositeData) notification.getUserData());
+            observe(info.getUsage().getUsed());
+        }
+    }
+
+    /** Set {@code pool}'s threshold, no higher than its maximum, which it can't be set past. */
+    private static void setThreshold(MemoryPoolMXBean pool, long threshold) {
+        long max = pool.getUsage().getMax();
+        pool.setUsageThreshold(max < 0 ? threshold : Math.min(threshold, max));
+    }
+
+    private long threshold(Level level) {
+        return (long) (bytes * level.share);
+    }
+
+    /** The next level's threshold, or the last one's once there's nothing left to shed. */
+    private long nextThreshold() {
+        Level[] levels = Level.values();
+        return threshold(levels[Math.min(level.ordinal() + 1, levels.length - 1)]);
+    }
+}
@@ -0,0 +1,194 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.spicelabs.cli.JfrEventExtractor.Accumulators;
+import io.spicelabs.cli.JfrEventExtractor.ParseOptions;
+import io.spicelabs.cli.JfrEventExtractor.ProbeDefinition;
+
+/**
+ * The merged parse state after the recordings completed so far, saved in one file so a parse that
+ * dies partway through can {@link ParseOptions#resume resume} instead of starting over. The file
+ * is a binary snapshot of the {@link Accumulators} (see {@link Accumulators#writeTo}) behind a
+ * header listing the completed recordings, in merge order, by name, size and modification time.
+ *
+ * <p>Spilled loaded classes aren't copied into the file: their runs are kept beside it in
+ * {@value #RUNS_DIRECTORY}, each linked in once, so a save writes only what changed in heap. Each
+ * save replaces the checkpoint whole ({@link CacheFiles#replace}), so a kill mid-save leaves the
+ * previous checkpoint, and the runs it refers to, intact; runs no longer referred to are removed
+ * after. A checkpoint is only used when every recording it lists is still there unchanged and it
+ * was taken with the same probe config, call-site cap and application package filter; otherwise
+ * the parse starts over.
+ */
+final class ParseCheckpoint {
+
+    private static final Logger log = LoggerFactory.getLogger(ParseCheckpoint.class);
+
+    static final String FILE_NAME = "parse-checkpoint.bin";
+    static final String RUNS_DIRECTORY = "parse-checkpoint-runs";
+
+    private static final int MAGIC = 0x4A46_5243; // "JFRC"
+    private static final int VERSION = 3;
+
+    /** A restored parse: its state, how many recordings it covers, and the order to parse in. */
+    record Restored(Accumulators accumulators, int completed, List<Path> recordings) {}
+
+    private record RecordingId(String name, long size, long lastModified) {
+        static RecordingId of(Path recording) throws IOException {
+            return new RecordingId(recording.getFileName().toString(), Files.size(recording),
+                    Files.getLastModifiedTime(recording).toMillis());
+        }
+    }
+
+    private final Path file;
+    private final Path runDirectory;
+    private final Map<String, ProbeDefinition> probeIndex;
+    private final ParseOptions options;
+
+    ParseCheckpoint(Path directory, Map<String, ProbeDefinition> probeIndex, ParseOptions options) {
+        this.file = directory.resolve(FILE_NAME);
+        this.runDirectory = directory.resolve(RUNS_DIRECTORY);
+        this.probeIndex = probeIndex;
+        this.options = options;
+    }
+
+    /** Record {@code acc} as the result of parsing {@code completed}, in that order. */
+    void save(List<Path> completed, Accumulators acc) throws IOException {
+        Set<Path> runs = new HashSet<>();
+        CacheFiles.replace(file, out -> {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(settings());
+            out.writeInt(completed.size());
+            for (Path recording : completed) {
+                RecordingId id = RecordingId.of(recording);
+                writeString(out, id.name());
+                out.writeLong(id.size());
+                out.writeLong(id.lastModified());
+            }
+            runs.addAll(acc.writeTo(out, runDirectory));
+        });
+        deleteRuns(runs);
+        log.debug("Checkpointed {} parsed recording(s) to {}", completed.size(), file);
+    }
+
+    /**
+     * The saved parse of some of {@code recordings}, or null when there is none or it can't be
+     * used. The restored order is the checkpoint's recordings first, then the rest as given, so
+     * the result is the one an uninterrupted parse in that order produces.
+     */
+    Restored load(List<Path> recordings) {
+        if (!Files.isRegularFile(file)) {
+            log.info("No parse checkpoint in {}; parsing every recording", file.getParent());
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                log.warn("Ignoring parse checkpoint {}: not written by this version", file);
+                return null;
+            }
+            if (in.readInt() != settings()) {
+                log.warn("Ignoring parse checkpoint {}: taken with a different probe config, --max-call-sites or --app-include/--app-exclude", file);
+                return null;
+            }
+            Map<String, Path> byName = new HashMap<>();
+            for (Path recording : recordings) {
+                byName.put(recording.getFileName().toString(), recording);
+            }
+            List<Path> order = new ArrayList<>(recordings.size());
+            for (int n = in.readInt(); n > 0; n--) {
+                RecordingId saved = new RecordingId(readString(in), in.readLong(), in.readLong());
+                Path recording = byName.remove(saved.name());
+                if (recording == null || !RecordingId.of(recording).equals(saved)) {
+                    log.warn("Ignoring parse checkpoint {}: recording {} is missing or has changed", file, saved.name());
+                    return null;
+                }
+                order.add(recording);
+            }
+            int completed = order.size();
+            for (Path recording : recordings) {
+                if (byName.containsKey(recording.getFileName().toString())) {
+                    order.add(recording);
+                }
+            }
+            Accumulators acc = Accumulators.readFrom(in, probeIndex, options, runDirectory);
+            log.info("Resuming from parse checkpoint: {} of {} recording(s) already parsed", completed, recordings.size());
+            return new Restored(acc, completed, order);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable parse checkpoint {}: {}", file, e.toString());
+            return null;
+        }
+    }
+
+    /** Remove the checkpoint once the parse it was for has completed. */
+    void delete() {
+        try {
+            Files.deleteIfExists(file);
+            deleteRuns(Set.of());
+            Files.deleteIfExists(runDirectory);
+        } catch (IOException e) {
+            log.debug("Could not remove parse checkpoint {}: {}", file, e.toString());
+        }
+    }
+
+    /** Remove the runs kept for earlier checkpoints, all but {@code kept}. */
+    private void deleteRuns(Set<Path> kept) throws IOException {
+        if (!Files.isDirectory(runDirectory)) {
+            return;
+        }
+        try (Stream<Path> runs = Files.list(runDirectory)) {
+            for (Path run : (Iterable<Path>) runs::iterator) {
+                if (!kept.contains(run)) {
+                    Files.deleteIfExists(run);
+                }
+            }
+        }
+    }
+
+    /** What a checkpoint's state depends on besides the recordings themselves. */
+    private int settings() {
+        return Objects.hash(probeIndex, options.maxCallSites(), options.appFrames());
+    }
+
+    // ── Strings ─────────────────────────────────────────────────────────
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
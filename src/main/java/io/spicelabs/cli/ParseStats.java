@@ -0,0 +1,229 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Where a JFR parse spends its time. Per event type: events handled, nanoseconds spent in their
+ * handler and distinct keys (probe sites, providers, handshakes, certificates, properties, loaded
+ * classes) they created. Per recording: its size, events and wall time, hence its throughput.
+ *
+ * <p>Cheap enough to stay on: each parse worker counts into its own instance (one per
+ * {@code JfrEventExtractor.Accumulators}), in plain {@code long} arrays indexed by a slot each
+ * event type gets on its first event, so an event costs a couple of array adds with nothing
+ * shared. Only one event in {@value #TIME_SAMPLE_INTERVAL} of each type is timed — a clock read
+ * costs more than handling many events — and a type's time is its timed events' mean times its
+ * count. Workers' counters are summed by {@link #merge}. Not thread-safe.
+ */
+public final class ParseStats {
+
+    static final String FILE_NAME = "parse-stats.json";
+
+    /** Every this many events of a type, starting with the first, one is timed. A power of two. */
+    static final int TIME_SAMPLE_INTERVAL = 16;
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private String[] names = new String[16];
+    private long[] counts = new long[16];
+    private long[] nanos = new long[16];
+    private long[] timed = new long[16];
+    private long[] keys = new long[16];
+    private final List<RecordingStats> recordings = new ArrayList<>();
+    private long elapsedNanos;
+
+    /** One event type's counters. */
+    public record EventTypeStats(String eventType, long events, long nanos, long keys) {
+        @JsonProperty
+        public long nanosPerEvent() {
+            return events == 0 ? 0 : nanos / events;
+        }
+    }
+
+    /**
+     * One recording's parse. A recording read back from the parse cache is {@code cached}: its
+     * time is the cache read, and its events aren't known.
+     */
+    public record RecordingStats(String name, long bytes, long events, long nanos, boolean cached) {
+        @JsonProperty
+        public long eventsPerSecond() {
+            return perSecond(events, nanos);
+        }
+
+        @JsonProperty
+        public long bytesPerSecond() {
+            return perSecond(bytes, nanos);
+        }
+    }
+
+    /** Everything, as written to {@value #FILE_NAME}. */
+    record Report(long events, long bytes, long elapsedNanos, long eventsPerSecond, long bytesPerSecond,
+                  List<EventTypeStats> eventTypes, List<RecordingStats> recordings) {}
+
+    // ── Counting ────────────────────────────────────────────────────────
+
+    /** The slot {@code eventType}'s counters are kept in; look it up once per type, not per event. */
+    int slot(String eventType) {
+        Integer slot = slots.get(eventType);
+        if (slot == null) {
+            slot = slots.size();
+            if (slot == names.length) {
+                int length = names.length * 2;
+                names = Arrays.copyOf(names, length);
+                counts = Arrays.copyOf(counts, length);
+                nanos = Arrays.copyOf(nanos, length);
+                timed = Arrays.copyOf(timed, length);
+                keys = Arrays.copyOf(keys, length);
+            }
+            names[slot] = eventType;
+            slots.put(eventType, slot);
+        }
+        return slot;
+    }
+
+    /** Whether the next event of the type in {@code slot} is to be timed. */
+    boolean timeNext(int slot) {
+        return (counts[slot] & (TIME_SAMPLE_INTERVAL - 1)) == 0;
+    }
+
+    /** One event of the type in {@code slot}, not timed, creating {@code keys} keys. */
+    void record(int slot, long keys) {
+        this.counts[slot]++;
+        this.keys[slot] += keys;
+    }
+
+    /** One event of the type in {@code slot}, handled in {@code nanos}, creating {@code keys} keys. */
+    void record(int slot, long nanos, long keys) {
+        this.counts[slot]++;
+        this.nanos[slot] += nanos;
+        this.timed[slot]++;
+        this.keys[slot] += keys;
+    }
+
+    void recording(RecordingStats recording) {
+        recordings.add(recording);
+    }
+
+    /** Wall time of the whole parse, which with parallel workers is less than the recordings' sum. */
+    void elapsed(long nanos) {
+        elapsedNanos += nanos;
+    }
+
+    /** Add {@code other}'s counters to these; its recordings follow this one's. */
+    void merge(ParseStats other) {
+        for (int i = 0; i < other.slots.size(); i++) {
+            int slot = slot(other.names[i]);
+            counts[slot] += other.counts[i];
+            nanos[slot] += other.nanos[i];
+            timed[slot] += other.timed[i];
+            keys[slot] += other.keys[i];
+        }
+        recordings.addAll(other.recordings);
+        elapsedNanos += other.elapsedNanos;
+    }
+
+    // ── Reading ─────────────────────────────────────────────────────────
+
+    /** Events handled, of every type. */
+    public long events() {
+        long events = 0;
+        for (int i = 0; i < slots.size(); i++) {
+            events += counts[i];
+        }
+        return events;
+    }
+
+    /** Per event type, the most expensive first; times are estimated from the timed events. */
+    public List<EventTypeStats> eventTypes() {
+        List<EventTypeStats> types = new ArrayList<>(slots.size());
+        for (int i = 0; i < slots.size(); i++) {
+            long estimated = timed[i] == 0 ? 0 : (long) ((double) nanos[i] * counts[i] / timed[i]);
+            types.add(new EventTypeStats(names[i], counts[i], estimated, keys[i]));
+        }
+        types.sort(Comparator.comparingLong(EventTypeStats::nanos).reversed()
+                .thenComparing(EventTypeStats::eventType));
+        return types;
+    }
+
+    /** Per recording, in the order they were merged: recording order. */
+    public List<RecordingStats> recordings() {
+        return List.copyOf(recordings);
+    }
+
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    Report report() {
+        long bytes = recordings.stream().mapToLong(RecordingStats::bytes).sum();
+        long events = events();
+        return new Report(events, bytes, elapsedNanos, perSecond(events, elapsedNanos),
+                perSecond(bytes, elapsedNanos), eventTypes(), recordings());
+    }
+
+    // ── Output ──────────────────────────────────────────────────────────
+
+    /** Write the {@link Report} as JSON to {@code file}. */
+    void write(Path file) throws IOException {
+        JSON.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report());
+    }
+
+    /** A table for the console: totals, then event types, then recordings. */
+    List<String> summary() {
+        Report report = report();
+        List<String> lines = new ArrayList<>();
+        if (report.elapsedNanos() > 0) {
+            lines.add(String.format(Locale.ROOT, "Parsed %,d events, %s, in %s: %,d events/s, %s/s",
+                    report.events(), SurveyRuntimeCommand.humanReadableSize(report.bytes()),
+                    seconds(report.elapsedNanos()), report.eventsPerSecond(),
+                    SurveyRuntimeCommand.humanReadableSize(report.bytesPerSecond())));
+        } else {
+            lines.add(String.format(Locale.ROOT, "Parsed %,d events", report.events()));
+        }
+        if (!report.eventTypes().isEmpty()) {
+            lines.add(String.format(Locale.ROOT, "  %-40s %12s %10s %10s %10s",
+                    "Event type", "Events", "Time", "ns/event", "Keys"));
+            for (EventTypeStats type : report.eventTypes()) {
+                lines.add(String.format(Locale.ROOT, "  %-40s %,12d %10s %,10d %,10d",
+                        type.eventType(), type.events(), seconds(type.nanos()), type.nanosPerEvent(), type.keys()));
+            }
+        }
+        if (!report.recordings().isEmpty()) {
+            lines.add(String.format(Locale.ROOT, "  %-40s %12s %10s %10s %12s",
+                    "Recording", "Events", "Size", "Time", "Throughput"));
+            for (RecordingStats recording : report.recordings()) {
+                lines.add(recording.cached()
+                        ? String.format(Locale.ROOT, "  %-40s %12s %10s %10s %12s",
+                                recording.name(), "cached", SurveyRuntimeCommand.humanReadableSize(recording.bytes()),
+                                seconds(recording.nanos()), "")
+                        : String.format(Locale.ROOT, "  %-40s %,12d %10s %10s %12s",
+                                recording.name(), recording.events(),
+                                SurveyRuntimeCommand.humanReadableSize(recording.bytes()), seconds(recording.nanos()),
+                                SurveyRuntimeCommand.humanReadableSize(recording.bytesPerSecond()) + "/s"));
+            }
+        }
+        return lines;
+    }
+
+    private static long perSecond(long amount, long nanos) {
+        return nanos <= 0 ? 0 : (long) (amount * 1e9 / nanos);
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.3fs", nanos / 1e9);
+    }
+}
@@ -0,0 +1,162 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.spicelabs.cli.JfrEventExtractor.Accumulators;
+import io.spicelabs.cli.JfrEventExtractor.ParseOptions;
+import io.spicelabs.cli.JfrEventExtractor.ProbeDefinition;
+
+/**
+ * Each recording's own {@link Accumulators}, saved so that parsing the same recording again only
+ * reads them back. Entries are keyed by the sha256 of the recording's bytes together with
+ * {@link JfrEventExtractor#EXTRACTOR_VERSION}, the probe config, the call-site cap and the
+ * application package filter: anything else that changes what a recording accumulates changes
+ * the key. An entry is the {@link Accumulators#writeTo} snapshot, one file per key.
+ *
+ * <p>The cache is bounded by total size, evicting least recently used entries first; an entry's
+ * modification time is its last use. Entries are replaced whole ({@link CacheFiles#replace}) and
+ * one that can't be read is a miss, so processes sharing the directory at worst parse a recording
+ * again.
+ */
+final class RecordingCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RecordingCache.class);
+
+    static final long DEFAULT_MAX_BYTES = 512L << 20;
+
+    private static final int MAGIC = 0x4A46_5241; // "JFRA"
+    private static final String SUFFIX = ".partial";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Map<String, ProbeDefinition> probeIndex;
+    private final ParseOptions options;
+
+    RecordingCache(Path directory, long maxBytes, Map<String, ProbeDefinition> probeIndex, ParseOptions options) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.probeIndex = probeIndex;
+        this.options = options;
+    }
+
+    /** {@code ~/.spicelabs/runtime-cache}, beside where {@code survey runtime} keeps its work dirs. */
+    static Path defaultDirectory() {
+        return CacheFiles.defaultPath("runtime-cache");
+    }
+
+    /** The key of {@code recording}'s entry: reads the whole file. */
+    String key(Path recording) throws IOException {
+        MessageDigest digest = CacheFiles.sha256();
+        StringBuilder settings = new StringBuilder()
+                .append("extractor=").append(JfrEventExtractor.EXTRACTOR_VERSION)
+                .append("\nmaxCallSites=").append(options.maxCallSites())
+                .append("\nappFrames=").append(options.appFrames());
+        if (probeIndex != null) {
+            // Sorted, so the key doesn't depend on map order.
+            for (var e : new TreeMap<>(probeIndex).entrySet()) {
+                ProbeDefinition def = e.getValue();
+                settings.append("\nprobe=").append(e.getKey()).append('\t').append(def.id()).append('\t')
+                        .append(def.classFqn()).append('\t').append(def.method()).append('\t').append(def.label());
+            }
+        }
+        digest.update(settings.append('\n').toString().getBytes(StandardCharsets.UTF_8));
+        try (InputStream in = Files.newInputStream(recording)) {
+            byte[] buffer = new byte[1 << 16];
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /** The accumulators saved under {@code key}, or null. */
+    Accumulators get(String key) {
+        Path entry = directory.resolve(key + SUFFIX);
+        if (!Files.isRegularFile(entry)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a cache entry");
+            }
+            Accumulators acc = Accumulators.readFrom(in, probeIndex, options, null);
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            return acc;
+        } catch (IOException | RuntimeException e) {
+            log.debug("Ignoring unreadable cache entry {}: {}", entry, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Save {@code acc} under {@code key}, with its spilled classes inline. Call before merging it
+     * away. A write that fails is logged and the recording simply isn't cached.
+     */
+    void put(String key, Accumulators acc) {
+        try {
+            CacheFiles.replace(directory.resolve(key + SUFFIX), out -> {
+                out.writeInt(MAGIC);
+                acc.writeTo(out, null);
+            });
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not cache parsed recording in {}: {}", directory, e.toString());
+        }
+    }
+
+    /** Remove the least recently used entries until the cache fits in its size cap. */
+    void evict() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        record Entry(Path path, long size, long lastUsed) {}
+        List<Entry> entries = new ArrayList<>();
+        long total = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                if (path.getFileName().toString().endsWith(SUFFIX)) {
+                    try {
+                        Entry entry = new Entry(path, Files.size(path), Files.getLastModifiedTime(path).toMillis());
+                        entries.add(entry);
+                        total += entry.size();
+                    } catch (IOException ignored) {
+                        // Evicted by another process meanwhile.
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Could not list cache {}: {}", directory, e.toString());
+            return;
+        }
+        entries.sort(Comparator.comparingLong(Entry::lastUsed));
+        for (int i = 0; i < entries.size() && total > maxBytes; i++) {
+            try {
+                Files.deleteIfExists(entries.get(i).path());
+                total -= entries.get(i).size();
+                log.debug("Evicted cached recording {}", entries.get(i).path().getFileName());
+            } catch (IOException e) {
+                log.debug("Could not evict {}: {}", entries.get(i).path(), e.toString());
+            }
+        }
+    }
+}
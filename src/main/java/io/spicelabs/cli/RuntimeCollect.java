@@ -6,6 +6,7 @@ package io.spicelabs.cli;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -15,16 +16,29 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 
-import io.spicelabs.coordinates.Coordinates;
 import io.spicelabs.ginger.Ginger;
 
 /**
  * Internal entry point used by the wrapper script to parse JFR recordings
  * and upload results. Not a user-facing command.
  *
- * <p>Usage: java -cp spice-labs-cli.jar io.spicelabs.cli.RuntimeCollect &lt;subject&gt; &lt;dir&gt; [--no-upload]
+ * <p>Usage: java -cp spice-labs-cli.jar io.spicelabs.cli.RuntimeCollect &lt;subject&gt; &lt;dir&gt; [--no-upload] [--keep-recording]
+ * [--anchor &lt;file&gt;] [--parse-threads &lt;n&gt;] [--max-call-sites &lt;n&gt;] [--upload-format json|cbor]
+ * [--resume] [--parse-cache-mb &lt;n&gt;] [--parse-cache-dir &lt;dir&gt;] [--app-include &lt;packages&gt;] [--app-exclude &lt;packages&gt;]
+ * [--stats] [--parse-memory-budget &lt;mb&gt;] [--anchor-cache on|verify|off] [--anchor-cache-dir &lt;dir&gt;]
+ *
+ * <p>Parse state is checkpointed in &lt;dir&gt; after each recording; {@code --resume} picks up from
+ * there after a run that died partway through parsing. Each recording's parse is also cached in
+ * {@code --parse-cache-dir} (default {@code ~/.spicelabs/runtime-cache}; up to {@code --parse-cache-mb},
+ * 0 to disable), so re-running on kept recordings, say to upload again, doesn't parse them again.
+ * The wrapper runs this in a throwaway container, so it mounts a host directory and passes it. {@code --stats} prints where
+ * the parse spent its time, and writes it to {@code parse-stats.json} in &lt;dir&gt; if
+ * {@code --keep-recording} says the wrapper keeps &lt;dir&gt;.
+ * {@code --parse-memory-budget} sheds detail from the survey, rather than run out of heap, as the
+ * parse nears that many MB; see {@link MemoryBudget}. The anchor's digests are reused from
+ * {@code --anchor-cache-dir} (default {@code ~/.spicelabs/digest-cache}) while the file is unchanged,
+ * unless {@code --anchor-cache off}.
  */
 public class RuntimeCollect {
 
@@ -54,21 +68,91 @@ public class RuntimeCollect {
         }
 
         if (args.length < 2) {
-            System.err.println("Usage: RuntimeCollect <subject> <dir> [--no-upload]");
+            System.err.println("Usage: RuntimeCollect <subject> <dir> [--no-upload] [--keep-recording] [--anchor <file>] [--parse-threads <n>] [--max-call-sites <n>] [--upload-format json|cbor] [--resume] [--parse-cache-mb <n>] [--parse-cache-dir <dir>] [--app-include <packages>] [--app-exclude <packages>] [--stats] [--parse-memory-budget <mb>] [--anchor-cache on|verify|off] [--anchor-cache-dir <dir>]");
             System.exit(1);
         }
 
         String subject = args[0];
         Path dir = Path.of(args[1]);
         boolean noUpload = false;
+        boolean keepRecording = false;
         Path anchorPath = null;
+        String anchorCache = null;
+        Path anchorCacheDir = DigestCache.defaultDirectory();
+        String uploadFormat = null;
+        List<String> appInclude = new ArrayList<>();
+        List<String> appExclude = new ArrayList<>();
+        ParseStats parseStats = null;
+        int memoryBudgetMb = 0;
+        Path parseCacheDir = RecordingCache.defaultDirectory();
+        int parseCacheMb = -1;
+        JfrEventExtractor.ParseOptions.Builder parseOptions = JfrEventExtractor.ParseOptions.builder()
+                .parseThreads(JfrEventExtractor.defaultParseThreads())
+                .checkpointDirectory(dir);
         for (int i = 2; i < args.length; i++) {
             if ("--no-upload".equals(args[i])) {
                 noUpload = true;
+            } else if ("--keep-recording".equals(args[i])) {
+                keepRecording = true;
+            } else if ("--resume".equals(args[i])) {
+                parseOptions.resume(true);
+            } else if ("--stats".equals(args[i])) {
+                parseStats = new ParseStats();
+                parseOptions.stats(parseStats);
             } else if ("--anchor".equals(args[i]) && i + 1 < args.length) {
                 anchorPath = Path.of(args[++i]);
+            } else if ("--anchor-cache".equals(args[i]) && i + 1 < args.length) {
+                anchorCache = parseAnchorCache(args[++i]);
+            } else if (args[i].startsWith("--anchor-cache=")) {
+                anchorCache = parseAnchorCache(args[i].substring("--anchor-cache=".length()));
+            } else if ("--anchor-cache-dir".equals(args[i]) && i + 1 < args.length) {
+                anchorCacheDir = Path.of(args[++i]);
+            } else if (args[i].startsWith("--anchor-cache-dir=")) {
+                anchorCacheDir = Path.of(args[i].substring("--anchor-cache-dir=".length()));
+            } else if ("--parse-threads".equals(args[i]) && i + 1 < args.length) {
+                parseOptions.parseThreads(parsePositiveInt("--parse-threads", args[++i]));
+            } else if (args[i].startsWith("--parse-threads=")) {
+                parseOptions.parseThreads(parsePositiveInt("--parse-threads", args[i].substring("--parse-threads=".length())));
+            } else if ("--max-call-sites".equals(args[i]) && i + 1 < args.length) {
+                parseOptions.maxCallSites(parsePositiveInt("--max-call-sites", args[++i]));
+            } else if (args[i].startsWith("--max-call-sites=")) {
+                parseOptions.maxCallSites(parsePositiveInt("--max-call-sites", args[i].substring("--max-call-sites=".length())));
+            } else if ("--parse-cache-mb".equals(args[i]) && i + 1 < args.length) {
+                parseCacheMb = parseNonNegativeInt("--parse-cache-mb", args[++i]);
+            } else if (args[i].startsWith("--parse-cache-mb=")) {
+                parseCacheMb = parseNonNegativeInt("--parse-cache-mb", args[i].substring("--parse-cache-mb=".length()));
+            } else if ("--parse-cache-dir".equals(args[i]) && i + 1 < args.length) {
+                parseCacheDir = Path.of(args[++i]);
+            } else if (args[i].startsWith("--parse-cache-dir=")) {
+                parseCacheDir = Path.of(args[i].substring("--parse-cache-dir=".length()));
+            } else if ("--parse-memory-budget".equals(args[i]) && i + 1 < args.length) {
+                memoryBudgetMb = parsePositiveInt("--parse-memory-budget", args[++i]);
+            } else if (args[i].startsWith("--parse-memory-budget=")) {
+                memoryBudgetMb = parsePositiveInt("--parse-memory-budget", args[i].substring("--parse-memory-budget=".length()));
+            } else if ("--upload-format".equals(args[i]) && i + 1 < args.length) {
+                uploadFormat = parseUploadFormat(args[++i]);
+            } else if (args[i].startsWith("--upload-format=")) {
+                uploadFormat = parseUploadFormat(args[i].substring("--upload-format=".length()));
+            } else if ("--app-include".equals(args[i]) && i + 1 < args.length) {
+                appInclude.addAll(List.of(args[++i].split(",")));
+            } else if (args[i].startsWith("--app-include=")) {
+                appInclude.addAll(List.of(args[i].substring("--app-include=".length()).split(",")));
+            } else if ("--app-exclude".equals(args[i]) && i + 1 < args.length) {
+                appExclude.addAll(List.of(args[++i].split(",")));
+            } else if (args[i].startsWith("--app-exclude=")) {
+                appExclude.addAll(List.of(args[i].substring("--app-exclude=".length()).split(",")));
             }
         }
+        parseOptions.cacheDirectory(parseCacheMb == 0 ? null : parseCacheDir);
+        if (parseCacheMb > 0) {
+            parseOptions.cacheMaxBytes((long) parseCacheMb << 20);
+        }
+        try {
+            parseOptions.appFrames(AppFrameFilter.of(appInclude, appExclude));
+        } catch (IllegalArgumentException e) {
+            log.error("--app-include/--app-exclude: {}", e.getMessage());
+            System.exit(1);
+        }
 
         if (!Files.isDirectory(dir)) {
             log.error("Directory not found: {}", dir);
@@ -112,11 +196,7 @@ public class RuntimeCollect {
                 log.error("--anchor file not found: {}", anchorPath);
                 System.exit(1);
             }
-            byte[] anchorBytes = Files.readAllBytes(anchorPath);
-            anchorData = new JfrEventExtractor.Anchor(
-                    anchorPath.getFileName().toString(),
-                    Coordinates.sha256(anchorBytes),
-                    Coordinates.gitoidBlobSha256(anchorBytes));
+            anchorData = SurveyRuntimeCommand.hashAnchor(anchorPath, anchorCache, anchorCacheDir);
             log.info("Anchored to {} (gitoid {})", anchorPath.getFileName(), anchorData.gitoid());
         } else {
             log.warn("No --anchor given; this survey will not correlate into a combined CBOM. "
@@ -153,11 +233,12 @@ public class RuntimeCollect {
         // Parse
         log.debug("Parsing JFR recordings...");
         JfrEventExtractor.RawSurveyData data;
-        try {
+        try (MemoryBudget memoryBudget = memoryBudgetMb > 0 ? MemoryBudget.watch((long) memoryBudgetMb << 20) : null) {
             JfrProgressCallback parseCallback = analyzeProgress == null
                     ? null
-                    : analyzeProgress::onProgress;
-            data = JfrEventExtractor.extract(subject, recordings, probeIndex, parseCallback);
+                    : analyzeProgress::onParseProgress;
+            data = JfrEventExtractor.extract(subject, recordings, probeIndex, parseCallback,
+                    parseOptions.memoryBudget(memoryBudget).build());
         } catch (Exception e) {
             if (analyzeProgress != null) {
                 analyzeProgress.fail(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
@@ -171,18 +252,18 @@ public class RuntimeCollect {
 
         // Print summary
         new SurveyRuntimeCommand().printSummary(data);
+        if (parseStats != null) {
+            SurveyRuntimeCommand.printStats(parseStats, keepRecording ? dir : null);
+        }
 
         // Upload
         if (!noUpload) {
-            Path jsonPath = dir.resolve("survey-data.json");
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.enable(SerializationFeature.INDENT_OUTPUT);
-            mapper.writeValue(jsonPath.toFile(), data);
+            Path surveyPath = SurveyRuntimeCommand.writeSurveyFile(data, dir, uploadFormat);
 
             log.debug("Uploading survey results...");
             Ginger ginger = Ginger.builder()
                     .jwt(spicePass)
-                    .runtimeSurveyFile(jsonPath)
+                    .runtimeSurveyFile(surveyPath)
                     .runtimeSubject(subject)
                     .parentId(survey.parentId())
                     .submissionTimestamp(survey.submissionTimestamp())
@@ -206,6 +287,46 @@ public class RuntimeCollect {
         }
     }
 
+    private static int parsePositiveInt(String option, String value) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n >= 1) {
+                return n;
+            }
+        } catch (NumberFormatException ignored) {}
+        log.error("{} must be a positive integer, got: {}", option, value);
+        System.exit(1);
+        return -1; // unreachable
+    }
+
+    private static int parseNonNegativeInt(String option, String value) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n >= 0) {
+                return n;
+            }
+        } catch (NumberFormatException ignored) {}
+        log.error("{} must be a non-negative integer, got: {}", option, value);
+        System.exit(1);
+        return -1; // unreachable
+    }
+
+    private static String parseAnchorCache(String value) {
+        if (!SurveyRuntimeCommand.ANCHOR_CACHE_MODES.contains(value)) {
+            log.error("--anchor-cache must be one of {}, got: {}", SurveyRuntimeCommand.ANCHOR_CACHE_MODES, value);
+            System.exit(1);
+        }
+        return value;
+    }
+
+    private static String parseUploadFormat(String value) {
+        if (!SurveyRuntimeCommand.UPLOAD_FORMATS.contains(value)) {
+            log.error("--upload-format must be one of {}, got: {}", SurveyRuntimeCommand.UPLOAD_FORMATS, value);
+            System.exit(1);
+        }
+        return value;
+    }
+
     @SuppressWarnings("unchecked")
     /** Sanitize a JFR event name so each dot-separated segment is a valid Java identifier. */
     private static String sanitizeJfrName(String name) {
@@ -0,0 +1,284 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Heavy hitters over {@code (long, long)} keys with the Space-Saving algorithm (Metwally,
+ * Agrawal, El Abbadi): at most {@code capacity} keys are monitored, and a new key evicts the
+ * least-counted one, inheriting its count as the new key's overestimate ({@link #error}). Every
+ * key with a true count above {@code total / capacity} is guaranteed to be kept, and
+ * {@code count - error <= true count <= count}.
+ *
+ * <p>Keys live in slots held in primitive arrays, found through an open-addressing index and
+ * ordered for eviction by a min-heap on count; an {@link #increment} or a repeat {@link #offer}
+ * allocates nothing. A slot's {@link #generation} changes when it's handed to a new key, so
+ * callers may cache slot numbers and check them cheaply. With {@link #UNBOUNDED} capacity nothing
+ * is ever evicted and counts are exact.
+ */
+final class SpaceSavingSketch {
+
+    static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    private static final int INITIAL_SLOTS = 8;
+
+    private final int capacity;
+    private long[] firsts = new long[INITIAL_SLOTS];
+    private long[] seconds = new long[INITIAL_SLOTS];
+    private long[] counts = new long[INITIAL_SLOTS];
+    private long[] errors = new long[INITIAL_SLOTS];
+    private long[] seqs = new long[INITIAL_SLOTS];
+    private int[] generations = new int[INITIAL_SLOTS];
+    private int size;
+    private long nextSeq;
+
+    // Open-addressing index: key -> slot + 1; 0 is empty. Kept at most half full.
+    private int[] index = new int[INITIAL_SLOTS * 2];
+
+    // Min-heap of slots by count, with each slot's heap position; only kept when bounded.
+    private int[] heap;
+    private int[] heapPos;
+
+    SpaceSavingSketch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1, got: " + capacity);
+        }
+        this.capacity = capacity;
+        if (capacity != UNBOUNDED) {
+            heap = new int[INITIAL_SLOTS];
+            heapPos = new int[INITIAL_SLOTS];
+        }
+    }
+
+    /**
+     * Count {@code weight} occurrences of a key, carrying {@code error} of overestimate (0 for
+     * fresh observations, the other side's error when merging). Returns the key's slot.
+     */
+    int offer(long first, long second, long weight, long error) {
+        int slot = find(first, second);
+        if (slot >= 0) {
+            errors[slot] += error;
+            increment(slot, weight);
+            return slot;
+        }
+        if (size < capacity) {
+            slot = size++;
+            ensureSlots(size);
+            firsts[slot] = first;
+            seconds[slot] = second;
+            counts[slot] = weight;
+            errors[slot] = error;
+            seqs[slot] = nextSeq++;
+            indexInsert(slot);
+            if (heap != null) {
+                heap[slot] = slot;
+                heapPos[slot] = slot;
+                siftUp(slot);
+            }
+            return slot;
+        }
+        // Full: the least-counted key gives up its slot, and its count becomes our overestimate.
+        slot = heap[0];
+        long min = counts[slot];
+        indexRemove(slot);
+        firsts[slot] = first;
+        seconds[slot] = second;
+        counts[slot] = min + weight;
+        errors[slot] = min + error;
+        seqs[slot] = nextSeq++;
+        generations[slot] = (generations[slot] + 1) & Integer.MAX_VALUE;
+        indexInsert(slot);
+        siftDown(0);
+        return slot;
+    }
+
+    void increment(int slot, long weight) {
+        counts[slot] += weight;
+        if (heap != null) {
+            siftDown(heapPos[slot]);
+        }
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    boolean bounded() {
+        return capacity != UNBOUNDED;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int generation(int slot) {
+        return generations[slot];
+    }
+
+    long first(int slot) {
+        return firsts[slot];
+    }
+
+    long second(int slot) {
+        return seconds[slot];
+    }
+
+    long count(int slot) {
+        return counts[slot];
+    }
+
+    long error(int slot) {
+        return errors[slot];
+    }
+
+    /** Slots in the order their current keys were first offered. */
+    int[] slotsInArrivalOrder() {
+        return IntStream.range(0, size).boxed()
+                .sorted(Comparator.comparingLong(slot -> seqs[slot]))
+                .mapToInt(Integer::intValue).toArray();
+    }
+
+    /** Slots by count, highest first; equal counts in arrival order. */
+    int[] slotsByCount() {
+        return IntStream.range(0, size).boxed()
+                .sorted(Comparator.<Integer>comparingLong(slot -> -counts[slot])
+                        .thenComparingLong(slot -> seqs[slot]))
+                .mapToInt(Integer::intValue).toArray();
+    }
+
+    // ── Index ───────────────────────────────────────────────────────────
+
+    /** Entries in the index, one per slot in use. */
+    int indexEntries() {
+        int entries = 0;
+        for (int entry : index) {
+            if (entry != 0) {
+                entries++;
+            }
+        }
+        return entries;
+    }
+
+    private int find(long first, long second) {
+        int mask = index.length - 1;
+        for (int i = hash(first, second) & mask, entry; (entry = index[i]) != 0; i = (i + 1) & mask) {
+            int slot = entry - 1;
+            if (firsts[slot] == first && seconds[slot] == second) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /** Index the slot {@link #offer} just counted in {@link #size}; a rehash indexes it with the rest. */
+    private void indexInsert(int slot) {
+        if ((size + 1) * 2 > index.length) {
+            rehash(index.length * 2);
+            return;
+        }
+        int mask = index.length - 1;
+        int i = hash(firsts[slot], seconds[slot]) & mask;
+        while (index[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        index[i] = slot + 1;
+    }
+
+    /** Linear-probing delete with backward shift, so lookups never need tombstones. */
+    private void indexRemove(int slot) {
+        int mask = index.length - 1;
+        int i = hash(firsts[slot], seconds[slot]) & mask;
+        while (index[i] != slot + 1) {
+            i = (i + 1) & mask;
+        }
+        for (int j = (i + 1) & mask; index[j] != 0; j = (j + 1) & mask) {
+            int entry = index[j];
+            int home = hash(firsts[entry - 1], seconds[entry - 1]) & mask;
+            // Move the entry back into the hole unless its home lies cyclically in (i, j].
+            boolean homeBetween = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+            if (!homeBetween) {
+                index[i] = entry;
+                i = j;
+            }
+        }
+        index[i] = 0;
+    }
+
+    private void rehash(int length) {
+        index = new int[length];
+        int mask = length - 1;
+        for (int slot = 0; slot < size; slot++) {
+            int i = hash(firsts[slot], seconds[slot]) & mask;
+            while (index[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            index[i] = slot + 1;
+        }
+    }
+
+    private static int hash(long first, long second) {
+        long h = first * 0x9E3779B97F4A7C15L + second;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+
+    // ── Slots and heap ──────────────────────────────────────────────────
+
+    private void ensureSlots(int needed) {
+        if (needed <= firsts.length) {
+            return;
+        }
+        int length = (int) Math.min((long) firsts.length * 2, capacity);
+        firsts = Arrays.copyOf(firsts, length);
+        seconds = Arrays.copyOf(seconds, length);
+        counts = Arrays.copyOf(counts, length);
+        errors = Arrays.copyOf(errors, length);
+        seqs = Arrays.copyOf(seqs, length);
+        generations = Arrays.copyOf(generations, length);
+        if (heap != null) {
+            heap = Arrays.copyOf(heap, length);
+            heapPos = Arrays.copyOf(heapPos, length);
+        }
+    }
+
+    private void siftUp(int pos) {
+        int slot = heap[pos];
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (counts[heap[parent]] <= counts[slot]) {
+                break;
+            }
+            place(heap[parent], pos);
+            pos = parent;
+        }
+        place(slot, pos);
+    }
+
+    private void siftDown(int pos) {
+        int slot = heap[pos];
+        while (true) {
+            int child = pos * 2 + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+                child++;
+            }
+            if (counts[heap[child]] >= counts[slot]) {
+                break;
+            }
+            place(heap[child], pos);
+            pos = child;
+        }
+        place(slot, pos);
+    }
+
+    private void place(int slot, int pos) {
+        heap[pos] = slot;
+        heapPos[slot] = pos;
+    }
+}
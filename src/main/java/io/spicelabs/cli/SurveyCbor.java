@@ -0,0 +1,390 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.spicelabs.cli.JfrEventExtractor.RawSurveyData;
+
+/**
+ * The runtime survey in a compact binary form: CBOR (RFC 8949) with every string replaced by an
+ * index into a dictionary written once up front. Class names, code sources and thread names
+ * repeat across thousands of events, so this is typically a small fraction of the JSON's size.
+ *
+ * <p>The document is a self-described CBOR map:
+ * <pre>
+ *   55799({ "format": "spice-runtime-survey", "formatVersion": 2,
+ *           "strings": [text, ...], "survey": RawSurveyData })
+ * </pre>
+ * Each record is an array of its components in declaration order, lists are arrays, numbers and
+ * booleans are themselves, and a string is the unsigned index of its dictionary entry; a null of
+ * any kind is CBOR null. The layout is therefore the records' shape: changing a survey record
+ * means bumping {@link #FORMAT_VERSION}, which readers check before decoding anything else.
+ */
+final class SurveyCbor {
+
+    static final String FORMAT = "spice-runtime-survey";
+    static final int FORMAT_VERSION = 2;
+
+    private static final int SELF_DESCRIBE_TAG = 55799;
+
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_TEXT = 3;
+    private static final int MAJOR_ARRAY = 4;
+    private static final int MAJOR_MAP = 5;
+    private static final int MAJOR_TAG = 6;
+    private static final int MAJOR_SIMPLE = 7;
+    private static final int FALSE = 20;
+    private static final int TRUE = 21;
+    private static final int NULL = 22;
+
+    private SurveyCbor() {}
+
+    static void write(RawSurveyData data, Path file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            write(data, out, file.toAbsolutePath().getParent());
+        }
+    }
+
+    static void write(RawSurveyData data, OutputStream out) throws IOException {
+        write(data, out, null);
+    }
+
+    /**
+     * The strings are only known once the survey has been walked, so the survey is encoded to a
+     * temp file in {@code spillDir} (null for the default temp dir) first and copied in after the
+     * dictionary; only the dictionary is held in memory.
+     */
+    private static void write(RawSurveyData data, OutputStream out, Path spillDir) throws IOException {
+        SymbolTable strings = new SymbolTable();
+        Path body = spillDir != null
+                ? Files.createTempFile(spillDir, "survey-", ".cbor-body")
+                : Files.createTempFile("survey-", ".cbor-body");
+        try {
+            try (DataOutputStream bodyOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(body)))) {
+                new Encoder(bodyOut, strings).value(data);
+            }
+            writeHeader(strings, out);
+            Files.copy(body, out);
+            out.flush();
+        } finally {
+            Files.deleteIfExists(body);
+        }
+    }
+
+    private static void writeHeader(SymbolTable strings, OutputStream out) throws IOException {
+        DataOutputStream head = new DataOutputStream(out);
+        Encoder header = new Encoder(head, null);
+        header.head(MAJOR_TAG, SELF_DESCRIBE_TAG);
+        header.head(MAJOR_MAP, 4);
+        header.text("format");
+        header.text(FORMAT);
+        header.text("formatVersion");
+        header.head(MAJOR_UNSIGNED, FORMAT_VERSION);
+        header.text("strings");
+        header.head(MAJOR_ARRAY, strings.size());
+        for (int i = 0; i < strings.size(); i++) {
+            header.text(strings.symbol(i));
+        }
+        header.text("survey");
+        head.flush();
+    }
+
+    static RawSurveyData read(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            return read(in);
+        }
+    }
+
+    /** Decode a survey written by {@link #write}; fails on any other format or version. */
+    static RawSurveyData read(InputStream in) throws IOException {
+        Decoder d = new Decoder(new DataInputStream(in));
+        d.head();
+        if (d.major == MAJOR_TAG && d.arg == SELF_DESCRIBE_TAG) {
+            d.head();
+        }
+        d.expect(MAJOR_MAP);
+        long entries = d.arg;
+        RawSurveyData survey = null;
+        for (long i = 0; i < entries; i++) {
+            String key = d.text();
+            switch (key) {
+                case "format" -> {
+                    String format = d.text();
+                    if (!FORMAT.equals(format)) {
+                        throw new IOException("Not a runtime survey: format " + format);
+                    }
+                }
+                case "formatVersion" -> {
+                    d.head();
+                    d.expect(MAJOR_UNSIGNED);
+                    if (d.arg != FORMAT_VERSION) {
+                        throw new IOException("Unsupported runtime survey format version " + d.arg
+                                + " (this reader supports " + FORMAT_VERSION + ")");
+                    }
+                }
+                case "strings" -> {
+                    d.head();
+                    d.expect(MAJOR_ARRAY);
+                    List<String> strings = new ArrayList<>(d.size());
+                    for (long s = d.arg; s > 0; s--) {
+                        strings.add(d.text());
+                    }
+                    d.strings = strings;
+                }
+                case "survey" -> {
+                    if (d.strings == null) {
+                        throw new IOException("Survey precedes its string dictionary");
+                    }
+                    survey = (RawSurveyData) d.value(RawSurveyData.class);
+                }
+                default -> throw new IOException("Unknown runtime survey key: " + key);
+            }
+        }
+        if (survey == null) {
+            throw new IOException("Runtime survey has no survey entry");
+        }
+        return survey;
+    }
+
+    // ── Records ─────────────────────────────────────────────────────────
+
+    /** A record's accessors and canonical constructor, looked up once per type. */
+    private record Layout(RecordComponent[] components, Method[] accessors, Constructor<?> constructor) {
+        static final ClassValue<Layout> OF = new ClassValue<>() {
+            @Override
+            protected Layout computeValue(Class<?> type) {
+                RecordComponent[] components = type.getRecordComponents();
+                Method[] accessors = new Method[components.length];
+                Class<?>[] types = new Class<?>[components.length];
+                for (int i = 0; i < components.length; i++) {
+                    accessors[i] = components[i].getAccessor();
+                    types[i] = components[i].getType();
+                }
+                try {
+                    return new Layout(components, accessors, type.getDeclaredConstructor(types));
+                } catch (NoSuchMethodException e) {
+                    throw new IllegalStateException("No canonical constructor on " + type, e);
+                }
+            }
+        };
+    }
+
+    // ── Encoding ────────────────────────────────────────────────────────
+
+    private static final class Encoder {
+        private final DataOutputStream out;
+        private final SymbolTable strings;
+
+        Encoder(DataOutputStream out, SymbolTable strings) {
+            this.out = out;
+            this.strings = strings;
+        }
+
+        void value(Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(MAJOR_SIMPLE << 5 | NULL);
+            } else if (value instanceof String s) {
+                head(MAJOR_UNSIGNED, strings.intern(s));
+            } else if (value instanceof Integer || value instanceof Long) {
+                long n = ((Number) value).longValue();
+                if (n >= 0) {
+                    head(MAJOR_UNSIGNED, n);
+                } else {
+                    head(MAJOR_NEGATIVE, -1 - n);
+                }
+            } else if (value instanceof Boolean b) {
+                out.writeByte(MAJOR_SIMPLE << 5 | (b ? TRUE : FALSE));
+            } else if (value instanceof List<?> list) {
+                head(MAJOR_ARRAY, list.size());
+                for (Object element : list) {
+                    value(element);
+                }
+            } else if (value instanceof Record record) {
+                Layout layout = Layout.OF.get(record.getClass());
+                head(MAJOR_ARRAY, layout.accessors().length);
+                for (Method accessor : layout.accessors()) {
+                    try {
+                        value(accessor.invoke(record));
+                    } catch (ReflectiveOperationException e) {
+                        throw new IllegalStateException("Can't read " + accessor, e);
+                    }
+                }
+            } else {
+                throw new IllegalArgumentException("No CBOR encoding for " + value.getClass().getName());
+            }
+        }
+
+        void text(String s) throws IOException {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            head(MAJOR_TEXT, bytes.length);
+            out.write(bytes);
+        }
+
+        /** An item head: the major type and its argument in the shortest form. */
+        void head(int major, long arg) throws IOException {
+            int type = major << 5;
+            if (arg < 24) {
+                out.writeByte(type | (int) arg);
+            } else if (arg <= 0xFF) {
+                out.writeByte(type | 24);
+                out.writeByte((int) arg);
+            } else if (arg <= 0xFFFF) {
+                out.writeByte(type | 25);
+                out.writeShort((int) arg);
+            } else if (arg <= 0xFFFF_FFFFL) {
+                out.writeByte(type | 26);
+                out.writeInt((int) arg);
+            } else {
+                out.writeByte(type | 27);
+                out.writeLong(arg);
+            }
+        }
+    }
+
+    // ── Decoding ────────────────────────────────────────────────────────
+
+    private static final class Decoder {
+        private final DataInputStream in;
+        private List<String> strings;
+        // The item head last read.
+        private int major;
+        private int info;
+        private long arg;
+
+        Decoder(DataInputStream in) {
+            this.in = in;
+        }
+
+        void head() throws IOException {
+            int initial = in.read();
+            if (initial < 0) {
+                throw new EOFException("Truncated runtime survey");
+            }
+            major = initial >>> 5;
+            info = initial & 0x1F;
+            arg = switch (info) {
+                case 24 -> in.readUnsignedByte();
+                case 25 -> in.readUnsignedShort();
+                case 26 -> in.readInt() & 0xFFFF_FFFFL;
+                case 27 -> in.readLong();
+                default -> {
+                    if (info > 27) {
+                        throw new IOException("Unsupported CBOR item 0x" + Integer.toHexString(initial));
+                    }
+                    yield info;
+                }
+            };
+        }
+
+        void expect(int expectedMajor) throws IOException {
+            if (major != expectedMajor) {
+                throw new IOException("Expected CBOR major type " + expectedMajor + ", got " + major);
+            }
+        }
+
+        boolean isNull() {
+            return major == MAJOR_SIMPLE && info == NULL;
+        }
+
+        int size() throws IOException {
+            if (arg > Integer.MAX_VALUE) {
+                throw new IOException("CBOR length too large: " + arg);
+            }
+            return (int) arg;
+        }
+
+        String text() throws IOException {
+            head();
+            expect(MAJOR_TEXT);
+            byte[] bytes = new byte[size()];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /** The next item, decoded as {@code type}. */
+        Object value(Type type) throws IOException {
+            head();
+            if (isNull()) {
+                if (type instanceof Class<?> c && c.isPrimitive()) {
+                    throw new IOException("Null for primitive " + c);
+                }
+                return null;
+            }
+            if (type == String.class) {
+                expect(MAJOR_UNSIGNED);
+                if (arg >= strings.size()) {
+                    throw new IOException("String reference " + arg + " outside dictionary of " + strings.size());
+                }
+                return strings.get((int) arg);
+            }
+            if (type == int.class || type == Integer.class) {
+                return Math.toIntExact(integer());
+            }
+            if (type == long.class || type == Long.class) {
+                return integer();
+            }
+            if (type == boolean.class || type == Boolean.class) {
+                if (major != MAJOR_SIMPLE || (info != TRUE && info != FALSE)) {
+                    throw new IOException("Expected a CBOR boolean");
+                }
+                return info == TRUE;
+            }
+            if (type instanceof ParameterizedType p && p.getRawType() == List.class) {
+                expect(MAJOR_ARRAY);
+                int n = size();
+                List<Object> list = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    list.add(value(p.getActualTypeArguments()[0]));
+                }
+                return Collections.unmodifiableList(list);
+            }
+            if (type instanceof Class<?> c && c.isRecord()) {
+                expect(MAJOR_ARRAY);
+                Layout layout = Layout.OF.get(c);
+                if (arg != layout.components().length) {
+                    throw new IOException(c.getSimpleName() + " has " + layout.components().length
+                            + " fields, got " + arg);
+                }
+                Object[] args = new Object[layout.components().length];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = value(layout.components()[i].getGenericType());
+                }
+                try {
+                    return layout.constructor().newInstance(args);
+                } catch (ReflectiveOperationException e) {
+                    throw new IOException("Can't build " + c.getSimpleName(), e);
+                }
+            }
+            throw new IOException("No CBOR decoding for " + type);
+        }
+
+        private long integer() throws IOException {
+            if (major == MAJOR_UNSIGNED) {
+                return arg;
+            }
+            expect(MAJOR_NEGATIVE);
+            return -1 - arg;
+        }
+    }
+}
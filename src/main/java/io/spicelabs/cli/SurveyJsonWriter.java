@@ -0,0 +1,293 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import io.spicelabs.cli.JfrEventExtractor.Anchor;
+import io.spicelabs.cli.JfrEventExtractor.CallSite;
+import io.spicelabs.cli.JfrEventExtractor.CertificateRecord;
+import io.spicelabs.cli.JfrEventExtractor.Degradation;
+import io.spicelabs.cli.JfrEventExtractor.LoadedClass;
+import io.spicelabs.cli.JfrEventExtractor.ProbeEvent;
+import io.spicelabs.cli.JfrEventExtractor.RawSurveyData;
+import io.spicelabs.cli.JfrEventExtractor.RuntimeInfo;
+import io.spicelabs.cli.JfrEventExtractor.SecurityProperty;
+import io.spicelabs.cli.JfrEventExtractor.SecurityProviderEvent;
+import io.spicelabs.cli.JfrEventExtractor.TlsHandshake;
+
+/**
+ * Writes a {@link RawSurveyData} as JSON straight onto a {@link JsonGenerator}, one element at a
+ * time: the survey's big lists are views over the parse accumulators, so each probe event or
+ * loaded class is built as it's written and dropped right after. The document is the same one
+ * {@code ObjectMapper} produces for the records (field names, order and nulls), compact unless
+ * {@code pretty} — the file is only uploaded, so indentation is for reading it while debugging.
+ */
+final class SurveyJsonWriter {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private SurveyJsonWriter() {}
+
+    static void write(RawSurveyData data, Path file, boolean pretty) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(data, out, pretty);
+        }
+    }
+
+    static void write(RawSurveyData data, OutputStream out, boolean pretty) throws IOException {
+        try (JsonGenerator gen = JSON.createGenerator(out, JsonEncoding.UTF8)) {
+            if (pretty) {
+                gen.useDefaultPrettyPrinter();
+            }
+            gen.writeStartObject();
+            gen.writeStringField("version", data.version());
+            gen.writeStringField("type", data.type());
+            gen.writeStringField("subject", data.subject());
+            gen.writeFieldName("runtime");
+            writeRuntime(gen, data.runtime());
+            gen.writeFieldName("recordings");
+            writeStrings(gen, data.recordings());
+            gen.writeFieldName("probeEvents");
+            writeProbeEvents(gen, data.probeEvents());
+            gen.writeFieldName("securityProviderEvents");
+            writeSecurityProviderEvents(gen, data.securityProviderEvents());
+            gen.writeFieldName("tlsHandshakes");
+            writeTlsHandshakes(gen, data.tlsHandshakes());
+            gen.writeFieldName("certificates");
+            writeCertificates(gen, data.certificates());
+            gen.writeFieldName("securityProperties");
+            writeSecurityProperties(gen, data.securityProperties());
+            gen.writeFieldName("loadedClasses");
+            writeLoadedClasses(gen, data.loadedClasses());
+            gen.writeFieldName("anchor");
+            writeAnchor(gen, data.anchor());
+            if (data.degradation() != null) {
+                writeDegradation(gen, data.degradation());
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    // ── Sections ────────────────────────────────────────────────────────
+
+    private static void writeRuntime(JsonGenerator gen, RuntimeInfo runtime) throws IOException {
+        if (runtime == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartObject();
+        gen.writeStringField("jvmVersion", runtime.jvmVersion());
+        gen.writeStringField("jvmName", runtime.jvmName());
+        gen.writeStringField("jvmVendor", runtime.jvmVendor());
+        gen.writeStringField("javaVersion", runtime.javaVersion());
+        gen.writeStringField("os", runtime.os());
+        gen.writeNumberField("pid", runtime.pid());
+        gen.writeEndObject();
+    }
+
+    private static void writeProbeEvents(JsonGenerator gen, List<ProbeEvent> events) throws IOException {
+        if (events == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartArray();
+        for (ProbeEvent e : events) {
+            gen.writeStartObject();
+            gen.writeStringField("eventType", e.eventType());
+            gen.writeStringField("classFqn", e.classFqn());
+            gen.writeStringField("methodName", e.methodName());
+            gen.writeStringField("probeLabel", e.probeLabel());
+            gen.writeNumberField("count", e.count());
+            gen.writeFieldName("callSites");
+            writeCallSites(gen, e.callSites());
+            writeIntegerField(gen, "classId", e.classId());
+            gen.writeFieldName("callerClassIds");
+            if (e.callerClassIds() == null) {
+                gen.writeNull();
+            } else {
+                gen.writeStartArray();
+                for (Integer id : e.callerClassIds()) {
+                    if (id == null) {
+                        gen.writeNull();
+                    } else {
+                        gen.writeNumber(id);
+                    }
+                }
+                gen.writeEndArray();
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeSecurityProviderEvents(JsonGenerator gen, List<SecurityProviderEvent> events)
+            throws IOException {
+        if (events == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartArray();
+        for (SecurityProviderEvent e : events) {
+            gen.writeStartObject();
+            gen.writeStringField("algorithm", e.algorithm());
+            gen.writeStringField("serviceType", e.serviceType());
+            gen.writeNumberField("count", e.count());
+            gen.writeFieldName("callSites");
+            writeCallSites(gen, e.callSites());
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+    }
+
+    /** Call sites; {@code count} and {@code countError} are left out when unset, as on the record. */
+    private static void writeCallSites(JsonGenerator gen, List<CallSite> callSites) throws IOException {
+        if (callSites == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartArray();
+        for (CallSite cs : callSites) {
+            gen.writeStartObject();
+            gen.writeStringField("className", cs.className());
+            gen.writeStringField("location", cs.location());
+            gen.writeStringField("thread", cs.thread());
+            if (cs.count() != null) {
+                gen.writeNumberField("count", cs.count());
+            }
+            if (cs.countError() != null) {
+                gen.writeNumberField("countError", cs.countError());
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeTlsHandshakes(JsonGenerator gen, List<TlsHandshake> handshakes) throws IOException {
+        if (handshakes == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartArray();
+        for (TlsHandshake h : handshakes) {
+            gen.writeStartObject();
+            gen.writeStringField("peerHost", h.peerHost());
+            gen.writeNumberField("peerPort", h.peerPort());
+            gen.writeStringField("protocol", h.protocol());
+            gen.writeStringField("cipherSuite", h.cipherSuite());
+            gen.writeNumberField("count", h.count());
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeCertificates(JsonGenerator gen, List<CertificateRecord> certificates) throws IOException {
+        if (certificates == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartArray();
+        for (CertificateRecord c : certificates) {
+            gen.writeStartObject();
+            gen.writeStringField("subject", c.subject());
+            gen.writeStringField("issuer", c.issuer());
+            gen.writeStringField("keyType", c.keyType());
+            gen.writeNumberField("keyLength", c.keyLength());
+            gen.writeStringField("sigAlgo", c.sigAlgo());
+            gen.writeStringField("validFrom", c.validFrom());
+            gen.writeStringField("validUntil", c.validUntil());
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeSecurityProperties(JsonGenerator gen, List<SecurityProperty> properties)
+            throws IOException {
+        if (properties == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartArray();
+        for (SecurityProperty p : properties) {
+            gen.writeStartObject();
+            gen.writeStringField("key", p.key());
+            gen.writeStringField("value", p.value());
+            gen.writeBooleanField("modified", p.modified());
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeLoadedClasses(JsonGenerator gen, List<LoadedClass> loadedClasses) throws IOException {
+        if (loadedClasses == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartArray();
+        for (LoadedClass lc : loadedClasses) {
+            gen.writeStartObject();
+            gen.writeNumberField("id", lc.id());
+            gen.writeStringField("className", lc.className());
+            gen.writeStringField("classGitoid", lc.classGitoid());
+            gen.writeStringField("classSha256", lc.classSha256());
+            gen.writeStringField("codeSource", lc.codeSource());
+            gen.writeStringField("jarGitoid", lc.jarGitoid());
+            gen.writeStringField("jarSha256", lc.jarSha256());
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeAnchor(JsonGenerator gen, Anchor anchor) throws IOException {
+        if (anchor == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartObject();
+        gen.writeStringField("path", anchor.path());
+        gen.writeStringField("sha256", anchor.sha256());
+        gen.writeStringField("gitoid", anchor.gitoid());
+        gen.writeEndObject();
+    }
+
+    /** Only written when the parse shed detail, as on the record. */
+    private static void writeDegradation(JsonGenerator gen, Degradation degradation) throws IOException {
+        gen.writeFieldName("degradation");
+        gen.writeStartObject();
+        gen.writeFieldName("shed");
+        writeStrings(gen, degradation.shed());
+        gen.writeEndObject();
+    }
+
+    // ── Helpers ─────────────────────────────────────────────────────────
+
+    private static void writeStrings(JsonGenerator gen, List<String> values) throws IOException {
+        if (values == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartArray();
+        for (String v : values) {
+            gen.writeString(v);
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeIntegerField(JsonGenerator gen, String name, Integer value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value);
+        }
+    }
+}
@@ -9,22 +9,22 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-
 import ch.qos.logback.classic.Level;
-import io.spicelabs.coordinates.Coordinates;
 import io.spicelabs.ginger.Ginger;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
@@ -113,6 +113,62 @@ public class SurveyRuntimeCommand implements Callable<Integer> {
                     + "CBOM but is not correlated.")
     Path anchor;
 
+    @Option(names = "--anchor-cache",
+            description = "Reuse the --anchor file's digests from an earlier run while its path, size, "
+                    + "modification time and inode are unchanged: on, verify (also check a sample of its "
+                    + "content), or off (default: on)")
+    String anchorCache;
+
+    @Option(names = "--jdk-version",
+            description = "The target's JDK version, e.g. 17, 21.0.1 or 8-oracle, instead of detecting it "
+                    + "from the release file of the JDK the command runs on, or else by running its java, mvn or "
+                    + "gradle with -version. A JDK 8 without -oracle or -openjdk still has its vendor detected")
+    String jdkVersionOverride;
+
+    @Option(names = "--parse-threads",
+            description = "Threads for parsing JFR recordings; large recordings are split by chunk "
+                    + "(default: half of available CPU cores)")
+    Integer parseThreads;
+
+    @Option(names = "--stream",
+            description = "Parse JFR events while the target runs instead of after it exits "
+                    + "(JDK 21+ targets; otherwise recordings are parsed after exit)")
+    boolean stream;
+
+    @Option(names = "--max-call-sites",
+            description = "Keep only the N most frequent call sites per event, each with an "
+                    + "approximate hit count (default: keep all, without counts)")
+    Integer maxCallSites;
+
+    // Hidden until the server ingests CBOR; json is all it accepts today.
+    @Option(names = "--upload-format", hidden = true,
+            description = "Encoding of the uploaded survey: json, or cbor for a compact binary form "
+                    + "with a shared string dictionary (default: json)")
+    String uploadFormat;
+
+    @Option(names = "--app-exclude", split = ",",
+            description = "Packages whose frames are not application code when attributing call sites, "
+                    + "e.g. frameworks or in-house crypto wrappers; repeatable or comma-separated "
+                    + "(the JDK's packages are always excluded)")
+    List<String> appExclude;
+
+    @Option(names = "--app-include", split = ",",
+            description = "Packages whose frames are application code even under an excluded package; "
+                    + "repeatable or comma-separated")
+    List<String> appInclude;
+
+    @Option(names = "--stats",
+            description = "Print where parsing spent its time: events, time and keys per event type, and "
+                    + "each recording's throughput; also written to " + ParseStats.FILE_NAME
+                    + " beside the recordings")
+    boolean stats;
+
+    @Option(names = "--parse-memory-budget",
+            description = "Heap in MB parsing may use; nearing it, parsing sheds detail (call sites, then "
+                    + "their threads, then caller classes) instead of running out of memory, keeping counts "
+                    + "exact and marking the survey lossy (default: no budget)")
+    Integer parseMemoryBudget;
+
     // For testing — allow injection
     String spicePassOverride;
 
@@ -145,6 +201,27 @@ public class SurveyRuntimeCommand implements Callable<Integer> {
                     "Example: spice survey runtime my-app --jfr -- java -jar app.jar");
         }
 
+        if (parseThreads != null && parseThreads < 1) {
+            throw new IllegalArgumentException("--parse-threads must be at least 1, got: " + parseThreads);
+        }
+        if (maxCallSites != null && maxCallSites < 1) {
+            throw new IllegalArgumentException("--max-call-sites must be at least 1, got: " + maxCallSites);
+        }
+        if (parseMemoryBudget != null && parseMemoryBudget < 1) {
+            throw new IllegalArgumentException("--parse-memory-budget must be at least 1, got: " + parseMemoryBudget);
+        }
+        if (anchorCache != null && !ANCHOR_CACHE_MODES.contains(anchorCache)) {
+            throw new IllegalArgumentException("--anchor-cache must be one of " + ANCHOR_CACHE_MODES + ", got: " + anchorCache);
+        }
+        if (jdkVersionOverride != null && JdkVersionDetector.parseVersionOption(jdkVersionOverride, () -> null) == null) {
+            throw new IllegalArgumentException("--jdk-version must be a Java version such as 17, 21.0.1 or 8-oracle, got: "
+                    + jdkVersionOverride);
+        }
+        if (uploadFormat != null && !UPLOAD_FORMATS.contains(uploadFormat)) {
+            throw new IllegalArgumentException("--upload-format must be one of " + UPLOAD_FORMATS + ", got: " + uploadFormat);
+        }
+        AppFrameFilter.of(appInclude, appExclude); // throws on a malformed package name
+
         String spicePass = resolveSpicePass();
         if (!noUpload && !hasSpicePass(spicePass)) {
             throw new IllegalArgumentException(
@@ -152,66 +229,90 @@ public class SurveyRuntimeCommand implements Callable<Integer> {
         }
 
         // Anchor: the build artifact this survey is of, hashed so the survey can be correlated with an
-        // inventory survey into a combined CBOM. Validated + hashed up front; warn loudly if absent so
-        // the user knows why no combined CBOM.
-        JfrEventExtractor.Anchor anchorData = null;
+        // inventory survey into a combined CBOM. Validated up front and hashed while the rest is
+        // prepared; warn loudly if absent so the user knows why no combined CBOM.
         if (anchor != null) {
             if (!Files.isRegularFile(anchor)) {
                 throw new IllegalArgumentException("--anchor file not found: " + anchor);
             }
-            byte[] anchorBytes = Files.readAllBytes(anchor);
-            anchorData = new JfrEventExtractor.Anchor(
-                    anchor.getFileName().toString(),
-                    Coordinates.sha256(anchorBytes),
-                    Coordinates.gitoidBlobSha256(anchorBytes));
-            log.info("Anchored to {} (gitoid {})", anchor.getFileName(), anchorData.gitoid());
         } else {
             log.warn("No --anchor given; this survey will not correlate into a combined CBOM. "
                     + "Pass --anchor <path-to-jar> to enable it.");
         }
 
-        // 2. Detect target JDK version
-        String firstWord = command.get(0);
-        log.debug("Detecting JDK version from command: {}", firstWord);
-        JdkVersionDetector.JdkVersion jdkVersion = JdkVersionDetector.detect(firstWord);
-
-        if (jdkVersion == null) {
-            log.warn("\u26A0\uFE0F  Could not detect JDK version. Assuming JDK 21 defaults.");
-            jdkVersion = new JdkVersionDetector.JdkVersion(21, "unknown", true);
-        } else {
-            log.debug("Detected JDK {}{}", jdkVersion.major(),
-                    jdkVersion.isOpenJdk() ? " (OpenJDK)" : " (Oracle)");
-        }
-
-        if (!jdkVersion.supportedByCliParser()) {
-            throw new IllegalArgumentException(
-                    "JDK " + jdkVersion.major() + " is not supported by the JFR parser. " +
-                    "JDK 11+ is required for the CLI to parse JFR recordings.");
-        }
-
-        // 3. Create temp directory
+        // 2. Create temp directory
         Path tempDir = createTempDir();
         log.debug("Using temp directory: {}", tempDir);
 
+        JfrLiveExtractor live = null;
+        MemoryBudget memoryBudget = parseMemoryBudget != null ? MemoryBudget.watch((long) parseMemoryBudget << 20) : null;
         try {
-            // 4. Extract bundled resources + download probe config
-            Path jfcPath = extractBundledJfc(tempDir);
+            // 3. Hash the anchor, detect the target's JDK version, extract bundled resources and
+            // download the probe config, each on a virtual thread: none needs another's result, so
+            // the slowest of them — usually the download — is all the target waits for.
+            long preparing = System.nanoTime();
+            boolean downloadProbes = !nativeOnly && !noUpload && hasSpicePass(spicePass);
+            Path probeConfigPath = tempDir.resolve("probes.json");
+            Future<JfrEventExtractor.Anchor> anchorStep = null;
+            Future<JdkVersionDetector.JdkVersion> jdkStep;
+            Future<Path> jfcStep;
+            Future<Path> agentStep = null;
+            Future<Boolean> probesStep = null;
+            JfrEventExtractor.Anchor anchorData = null;
+            JdkVersionDetector.JdkVersion jdkVersion;
+            Path jfcPath;
             Path agentPath = null;
-            Path probeConfigPath = null;
+            try (ExecutorService steps = Executors.newVirtualThreadPerTaskExecutor()) {
+                if (anchor != null) {
+                    anchorStep = timed(steps, "anchor hashing", () -> hashAnchor(anchor, anchorCache, DigestCache.defaultDirectory()));
+                }
+                jdkStep = timed(steps, "JDK detection", () -> detectJdkVersion(command.get(0)));
+                jfcStep = timed(steps, "JFC extraction", () -> extractBundledJfc(tempDir));
+                if (!nativeOnly) {
+                    agentStep = timed(steps, "agent extraction", () -> extractBundledAgent(tempDir));
+                }
+                if (downloadProbes) {
+                    log.debug("Downloading probe config from server...");
+                    probesStep = timed(steps, "probe config download",
+                            () -> Ginger.builder().jwt(spicePass).downloadRuntimeConfig(probeConfigPath));
+                }
+                try {
+                    // The JDK first: a target the parser can't read ends the survey, and the
+                    // other steps with it rather than after them.
+                    jdkVersion = JfrEventExtractor.await(jdkStep);
+                    if (!jdkVersion.supportedByCliParser()) {
+                        throw new IllegalArgumentException(
+                                "JDK " + jdkVersion.major() + " is not supported by the JFR parser. " +
+                                "JDK 11+ is required for the CLI to parse JFR recordings.");
+                    }
+                    anchorData = anchorStep != null ? JfrEventExtractor.await(anchorStep) : null;
+                    jfcPath = JfrEventExtractor.await(jfcStep);
+                    agentPath = agentStep != null ? JfrEventExtractor.await(agentStep) : null;
+                    if (agentPath == null && probesStep != null) {
+                        // No agent to configure: don't wait for its config to finish downloading.
+                        probesStep.cancel(true);
+                        probesStep = null;
+                    }
+                } catch (Exception e) {
+                    steps.shutdownNow();
+                    throw e;
+                }
+            }
+            if (anchorData != null) {
+                log.info("Anchored to {} (gitoid {})", anchor.getFileName(), anchorData.gitoid());
+            }
+
+            if (stream && !jdkVersion.supportsEventStreaming()) {
+                log.warn("\u26A0\uFE0F  --stream needs a JDK 21+ target. Recordings will be parsed after the target exits.");
+            }
 
             if (!nativeOnly) {
-                agentPath = extractBundledAgent(tempDir);
                 if (agentPath == null) {
                     log.warn("\u26A0\uFE0F  Agent JAR not found in classpath. Falling back to native-only mode.");
                     nativeOnly = true;
                 } else {
-                    // Download probe config from server
-                    probeConfigPath = tempDir.resolve("probes.json");
-                    if (!noUpload && hasSpicePass(spicePass)) {
-                        log.debug("Downloading probe config from server...");
-                        boolean downloaded = Ginger.builder()
-                                .jwt(spicePass)
-                                .downloadRuntimeConfig(probeConfigPath);
+                    if (probesStep != null) {
+                        boolean downloaded = JfrEventExtractor.await(probesStep);
                         if (!downloaded) {
                             log.warn("\u26A0\uFE0F  Failed to download probe config. Falling back to native-only mode.");
                             nativeOnly = true;
@@ -225,12 +326,18 @@ public class SurveyRuntimeCommand implements Callable<Integer> {
                     }
                 }
             }
+            log.debug("Prepared the survey in {} ms", (System.nanoTime() - preparing) / 1_000_000);
 
-            // 5. Build JAVA_TOOL_OPTIONS
+            // 4. Build JAVA_TOOL_OPTIONS
             String javaToolOptions = buildJavaToolOptions(jdkVersion, tempDir, jfcPath, agentPath, probeConfigPath);
             log.debug("JAVA_TOOL_OPTIONS: {}", javaToolOptions);
 
-            // 6. Execute user command
+            // 5. Execute user command, streaming its JFR repositories meanwhile if asked
+            if (streamingEnabled(jdkVersion)) {
+                Path repository = Files.createDirectories(repositoryDir(tempDir));
+                live = new JfrLiveExtractor(repository, null, parseOptions(tempDir, null, memoryBudget));
+                live.start();
+            }
             log.info("\uD83D\uDE80 Executing: {}", String.join(" ", command));
             int exitCode = executeCommand(command, javaToolOptions);
             log.debug("Command exited with code {}", exitCode);
@@ -239,7 +346,7 @@ public class SurveyRuntimeCommand implements Callable<Integer> {
                 log.warn("\u26A0\uFE0F  Target command exited with non-zero code {}. Will still collect recordings.", exitCode);
             }
 
-            // 7. Collect JFR recordings
+            // 6. Collect JFR recordings, and the streamed events if they cover exactly those JVMs
             List<Path> recordings = collectRecordings(tempDir, jdkVersion);
             if (recordings.isEmpty()) {
                 log.error("\u274c No JFR recordings found. The target application may not have produced any.");
@@ -249,6 +356,9 @@ public class SurveyRuntimeCommand implements Callable<Integer> {
                 log.error("  - Check for JFR initialization errors in the target's output.");
                 return 1;
             }
+            JfrEventExtractor.Accumulators streamed = live != null
+                    ? live.finish(JfrLiveExtractor.DRAIN_TIMEOUT, recordings).orElse(null)
+                    : null;
 
             long totalSize = recordings.stream().mapToLong(p -> {
                 try { return Files.size(p); } catch (IOException e) { return 0; }
@@ -259,7 +369,7 @@ public class SurveyRuntimeCommand implements Callable<Integer> {
                 log.warn("\u26A0\uFE0F  Total recording size exceeds 1GB. This may indicate excessive instrumentation.");
             }
 
-            // 8. Register the survey with the server (so the dashboard sees the row before we
+            // 7. Register the survey with the server (so the dashboard sees the row before we
             // start parsing) and build a progress publisher for the ANALYZE sub-job.
             SurveyRegistration.Context survey = null;
             AnalyzeProgressPublisher analyzeProgress = null;
@@ -278,14 +388,28 @@ public class SurveyRuntimeCommand implements Callable<Integer> {
                 }
             }
 
-            // 9. Parse recordings
+            // 8. Parse recordings
             log.debug("Parsing JFR recordings...");
             JfrEventExtractor.RawSurveyData data;
+            ParseStats parseStats = stats ? new ParseStats() : null;
             try {
                 JfrProgressCallback parseCallback = analyzeProgress == null
                         ? null
-                        : analyzeProgress::onProgress;
-                data = JfrEventExtractor.extract(subject, recordings, null, parseCallback);
+                        : analyzeProgress::onParseProgress;
+                if (streamed != null) {
+                    List<String> names = recordings.stream().map(p -> p.getFileName().toString()).toList();
+                    data = JfrEventExtractor.fromAccumulators(subject, names, streamed);
+                    if (parseStats != null) {
+                        parseStats.merge(streamed.stats);
+                    }
+                    if (parseCallback != null) {
+                        parseCallback.onProgress(new JfrProgressCallback.Progress(
+                                names.size(), names.size(), totalSize, totalSize, 0, Duration.ZERO));
+                    }
+                } else {
+                    data = JfrEventExtractor.extract(subject, recordings, null, parseCallback,
+                            parseOptions(tempDir, parseStats, memoryBudget));
+                }
             } catch (Exception e) {
                 if (analyzeProgress != null) {
                     analyzeProgress.fail(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
@@ -297,22 +421,22 @@ public class SurveyRuntimeCommand implements Callable<Integer> {
                 data = data.toBuilder().anchor(anchorData).build();
             }
 
-            // 10. Print summary
+            // 9. Print summary
             printSummary(data);
+            if (parseStats != null) {
+                printStats(parseStats, keepRecording ? tempDir : null);
+            }
 
-            // 11. Upload or save locally
+            // 10. Upload or save locally
             if (!noUpload) {
-                Path jsonPath = tempDir.resolve("survey-data.json");
-                ObjectMapper mapper = new ObjectMapper();
-                mapper.enable(SerializationFeature.INDENT_OUTPUT);
-                mapper.writeValue(jsonPath.toFile(), data);
+                Path surveyPath = writeSurveyFile(data, tempDir, uploadFormat);
 
                 log.debug("Uploading survey results...");
                 if (analyzeProgress != null) {
                     analyzeProgress.building();
                 }
                 try {
-                    doUpload(spicePass, jsonPath, survey, analyzeProgress);
+                    doUpload(spicePass, surveyPath, survey, analyzeProgress);
                 } catch (Exception e) {
                     if (analyzeProgress != null) {
                         analyzeProgress.fail(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
@@ -328,6 +452,12 @@ public class SurveyRuntimeCommand implements Callable<Integer> {
 
         } finally {
             // 11. Clean up
+            if (live != null) {
+                live.close();
+            }
+            if (memoryBudget != null) {
+                memoryBudget.close();
+            }
             if (!keepRecording) {
                 SurveyInventoryCommand.deleteRecursively(tempDir);
             } else {
@@ -336,6 +466,41 @@ public class SurveyRuntimeCommand implements Callable<Integer> {
         }
     }
 
+    // ── Preparation ─────────────────────────────────────────────────────
+
+    /** Run {@code step} as one of {@code steps}, logging how long it took. */
+    private static <T> Future<T> timed(ExecutorService steps, String name, Callable<T> step) {
+        return steps.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                return step.call();
+            } finally {
+                log.debug("{} took {} ms", name, (System.nanoTime() - start) / 1_000_000);
+            }
+        });
+    }
+
+    /** The target's JDK version: {@code --jdk-version}, else detected from {@code firstWord}, else JDK 21. */
+    private JdkVersionDetector.JdkVersion detectJdkVersion(String firstWord) {
+        JdkVersionDetector.JdkVersion jdkVersion;
+        if (jdkVersionOverride != null) {
+            jdkVersion = JdkVersionDetector.parseVersionOption(jdkVersionOverride,
+                    () -> JdkVersionDetector.detect(firstWord, new JdkVersionCache(JdkVersionCache.defaultFile())));
+            log.debug("Using --jdk-version {}{}", jdkVersionOverride,
+                    jdkVersion.isOpenJdk() ? " (OpenJDK)" : " (Oracle)");
+            return jdkVersion;
+        }
+        log.debug("Detecting JDK version from command: {}", firstWord);
+        jdkVersion = JdkVersionDetector.detect(firstWord, new JdkVersionCache(JdkVersionCache.defaultFile()));
+        if (jdkVersion == null) {
+            log.warn("\u26A0\uFE0F  Could not detect JDK version. Assuming JDK 21 defaults.");
+            return new JdkVersionDetector.JdkVersion(21, "unknown", true);
+        }
+        log.debug("Detected JDK {}{}", jdkVersion.major(),
+                jdkVersion.isOpenJdk() ? " (OpenJDK)" : " (Oracle)");
+        return jdkVersion;
+    }
+
     // ── Command extraction ──────────────────────────────────────────────
 
     /**
@@ -388,6 +553,13 @@ public class SurveyRuntimeCommand implements Callable<Integer> {
 
         parts.add(jfrOpts.toString());
 
+        // Disk repository at a known place, so it can be streamed while the target runs, and kept
+        // after each JVM exits so its last chunks are still there to be read
+        if (streamingEnabled(jdk)) {
+            parts.add("-XX:FlightRecorderOptions=repository=" + repositoryDir(tempDir).toAbsolutePath()
+                    + ",preserve-repository=true");
+        }
+
         // Commercial flag for Oracle JDK 8
         if (jdk.needsCommercialFlag()) {
             parts.add(0, "-XX:+UnlockCommercialFeatures");
@@ -407,6 +579,28 @@ public class SurveyRuntimeCommand implements Callable<Integer> {
         return String.join(" ", parts);
     }
 
+    private boolean streamingEnabled(JdkVersionDetector.JdkVersion jdk) {
+        return stream && jdk.supportsEventStreaming();
+    }
+
+    private static Path repositoryDir(Path tempDir) {
+        return tempDir.resolve("repository");
+    }
+
+    /** Parse settings from the options; loaded classes that don't fit in heap spill into the survey temp dir. */
+    private JfrEventExtractor.ParseOptions parseOptions(Path tempDir, ParseStats stats, MemoryBudget memoryBudget) {
+        JfrEventExtractor.ParseOptions.Builder options = JfrEventExtractor.ParseOptions.builder()
+                .parseThreads(parseThreads != null ? parseThreads : JfrEventExtractor.defaultParseThreads())
+                .spillDirectory(tempDir.resolve("spill"))
+                .appFrames(AppFrameFilter.of(appInclude, appExclude))
+                .stats(stats)
+                .memoryBudget(memoryBudget);
+        if (maxCallSites != null) {
+            options.maxCallSites(maxCallSites);
+        }
+        return options.build();
+    }
+
     // ── Process execution ───────────────────────────────────────────────
 
     int executeCommand(List<String> command, String javaToolOptions) throws Exception {
@@ -489,9 +683,41 @@ public class SurveyRuntimeCommand implements Callable<Integer> {
         return null;
     }
 
+    // ── Anchor ──────────────────────────────────────────────────────────
+
+    static final List<String> ANCHOR_CACHE_MODES = List.of("on", "verify", "off");
+
+    /**
+     * Hash {@code anchor}, through a {@link DigestCache} in {@code cacheDirectory} unless
+     * {@code cacheMode} (null for on) is off.
+     */
+    static JfrEventExtractor.Anchor hashAnchor(Path anchor, String cacheMode, Path cacheDirectory) throws IOException {
+        if ("off".equals(cacheMode)) {
+            return AnchorHashes.anchor(anchor);
+        }
+        return new DigestCache(cacheDirectory).anchor(anchor, "verify".equals(cacheMode));
+    }
+
     // ── Upload ──────────────────────────────────────────────────────────
 
-    private void doUpload(String spicePass, Path rawEventsJson, SurveyRegistration.Context survey,
+    static final List<String> UPLOAD_FORMATS = List.of("json", "cbor");
+
+    /**
+     * Write the survey into {@code dir} for upload in {@code format} (null for json), returning
+     * the file. JSON is pretty-printed when debug logging is on.
+     */
+    static Path writeSurveyFile(JfrEventExtractor.RawSurveyData data, Path dir, String format) throws IOException {
+        if ("cbor".equals(format)) {
+            Path cborPath = dir.resolve("survey-data.cbor");
+            SurveyCbor.write(data, cborPath);
+            return cborPath;
+        }
+        Path jsonPath = dir.resolve("survey-data.json");
+        SurveyJsonWriter.write(data, jsonPath, log.isDebugEnabled());
+        return jsonPath;
+    }
+
+    private void doUpload(String spicePass, Path surveyFile, SurveyRegistration.Context survey,
             AnalyzeProgressPublisher analyzeProgress) throws Exception {
         Map<String, String> gingerArgsMap = new HashMap<>();
         if (chunkSizeMB != null) {
@@ -500,7 +726,7 @@ public class SurveyRuntimeCommand implements Callable<Integer> {
 
         Ginger ginger = Ginger.builder()
                 .jwt(spicePass)
-                .runtimeSurveyFile(rawEventsJson)
+                .runtimeSurveyFile(surveyFile)
                 .extraArgs(gingerArgsMap);
 
         if (survey != null) {
@@ -519,7 +745,27 @@ public class SurveyRuntimeCommand implements Callable<Integer> {
 
     // ── Console output ──────────────────────────────────────────────────
 
+    /**
+     * Log {@code stats} as a table and write them to {@link ParseStats#FILE_NAME} in {@code dir},
+     * if there's one: only a directory that outlives the survey is worth writing them to.
+     */
+    static void printStats(ParseStats stats, Path dir) throws IOException {
+        log.info("");
+        for (String line : stats.summary()) {
+            log.info(line);
+        }
+        if (dir == null) {
+            return;
+        }
+        Path statsPath = dir.resolve(ParseStats.FILE_NAME);
+        stats.write(statsPath);
+        log.info("Parse statistics written to {}", statsPath);
+    }
+
     void printSummary(JfrEventExtractor.RawSurveyData data) {
+        if (!log.isDebugEnabled()) {
+            return; // the event lists are built on read; don't walk them for nothing
+        }
         log.debug("");
         log.debug("\uD83C\uDF36\uFE0F  Spice Labs Runtime Survey \u2014 JFR Analysis");
         log.debug("");
@@ -0,0 +1,43 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Strings interned to dense int ids, so a name repeated across many records is held once and
+ * referenced by id. {@code null} interns to {@link #NULL_ID}. Not thread-safe: each parse worker
+ * owns one, and ids are translated with {@link #intern(String)} on merge.
+ */
+final class SymbolTable {
+
+    static final int NULL_ID = -1;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> symbols = new ArrayList<>();
+
+    int intern(String symbol) {
+        if (symbol == null) {
+            return NULL_ID;
+        }
+        Integer id = ids.get(symbol);
+        if (id == null) {
+            id = symbols.size();
+            symbols.add(symbol);
+            ids.put(symbol, id);
+        }
+        return id;
+    }
+
+    String symbol(int id) {
+        return id == NULL_ID ? null : symbols.get(id);
+    }
+
+    int size() {
+        return symbols.size();
+    }
+}
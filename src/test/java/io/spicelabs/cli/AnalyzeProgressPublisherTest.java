@@ -67,6 +67,25 @@ class AnalyzeProgressPublisherTest {
         assertEquals("Processing artifacts (7/42)", calls.get(0).message());
     }
 
+    @Test
+    void onParseProgress_placesByBytesWithinOneRecording() {
+        long gb = 1024L * 1024 * 1024;
+        publisher.onParseProgress(new JfrProgressCallback.Progress(0, 1, gb, 4 * gb, 100 * 1024 * 1024,
+                java.time.Duration.ofSeconds(150)));
+
+        assertEquals(27, calls.get(0).percent(), "a quarter of the bytes, though no recording is done");
+        assertEquals("Parsing recordings (0/1): 1.0 GB of 4.0 GB (25%), 100.0 MB/s, about 2m 30s left",
+                calls.get(0).message());
+    }
+
+    @Test
+    void onParseProgress_withoutRateOrSizes_fallsBackToRecordings() {
+        publisher.onParseProgress(new JfrProgressCallback.Progress(1, 2, 0, 0, 0, null));
+
+        assertEquals(50, calls.get(0).percent());
+        assertEquals("Parsing recordings (1/2): 0 B of 0 B (50%)", calls.get(0).message());
+    }
+
     @Test
     void complete_emitsCompletedTerminalAtOneHundred() {
         publisher.complete();
@@ -6,12 +6,20 @@ package io.spicelabs.cli;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import io.spicelabs.coordinates.Coordinates;
 
 class AnchorHashesTest {
 
+    @TempDir
+    Path tempDir;
+
     // Reference values (independently computed):
     //   printf 'abc'      | sha256sum  -> sha256: alias
     //   printf 'blob 3\0abc' | sha256sum -> primary gitoid:blob:sha256: node id
@@ -30,4 +38,21 @@ class AnchorHashesTest {
                 "gitoid:blob:sha256:c1cf6e465077930e88dc5136641d402f72a229ddd996f627d60e9639eaba35a6",
                 Coordinates.gitoidBlobSha256("abc".getBytes(UTF_8)));
     }
+
+    @Test
+    void anchor_streamedAcrossBuffers_matchesCoordinates() throws Exception {
+        // Odd sizes, so buffers and copy slices end mid-file and the last of each is short.
+        for (int size : new int[] {0, 1, 65_535, 65_537, 300_001}) {
+            byte[] bytes = new byte[size];
+            new Random(size).nextBytes(bytes);
+            Path file = Files.write(tempDir.resolve("app-" + size + ".ear"), bytes);
+
+            for (int buffer : new int[] {4_096, 100_000, AnchorHashes.BUFFER_BYTES}) {
+                JfrEventExtractor.Anchor anchor = AnchorHashes.anchor(file, buffer);
+                assertEquals("app-" + size + ".ear", anchor.path());
+                assertEquals(Coordinates.sha256(bytes), anchor.sha256(), size + " bytes, buffer " + buffer);
+                assertEquals(Coordinates.gitoidBlobSha256(bytes), anchor.gitoid(), size + " bytes, buffer " + buffer);
+            }
+        }
+    }
 }
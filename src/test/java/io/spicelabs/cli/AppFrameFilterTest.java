@@ -0,0 +1,81 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for AppFrameFilter: the JDK is excluded by default, and user rules are matched by whole
+ * package segments, the most specific one deciding.
+ */
+class AppFrameFilterTest {
+
+    @Test
+    void default_excludesJdkPackagesOnly() {
+        AppFrameFilter filter = AppFrameFilter.DEFAULT;
+
+        assertFalse(filter.isApplicationCode("java.security.Signature"));
+        assertFalse(filter.isApplicationCode("com.sun.crypto.provider.AESCipher"));
+        assertFalse(filter.isApplicationCode("org.openjdk.nashorn.Something"));
+        assertTrue(filter.isApplicationCode("com.example.MyApp"));
+        assertTrue(filter.isApplicationCode("javaxtra.Lib"), "prefixes match whole package segments");
+        assertTrue(filter.isApplicationCode("Main"), "the default package is application code");
+    }
+
+    @Test
+    void exclude_coversSubpackages() {
+        AppFrameFilter filter = AppFrameFilter.of(List.of(), List.of("org.springframework", "io.netty.*"));
+
+        assertFalse(filter.isApplicationCode("org.springframework.web.servlet.DispatcherServlet"));
+        assertFalse(filter.isApplicationCode("io.netty.handler.ssl.SslHandler"));
+        assertTrue(filter.isApplicationCode("org.springframeworkx.Other"));
+        assertTrue(filter.isApplicationCode("io.nettyx.Other"));
+        assertFalse(filter.isApplicationCode("java.lang.Thread"), "the JDK stays excluded");
+    }
+
+    @Test
+    void mostSpecificRuleDecides() {
+        AppFrameFilter filter = AppFrameFilter.of(List.of("com.acme", "com.sun.acme"), List.of("com.acme.cryptowrap"));
+
+        assertTrue(filter.isApplicationCode("com.acme.billing.Invoice"));
+        assertFalse(filter.isApplicationCode("com.acme.cryptowrap.Encryptor"));
+        assertTrue(filter.isApplicationCode("com.sun.acme.Tool"), "an include reaches under a JDK package");
+        assertFalse(filter.isApplicationCode("com.sun.crypto.provider.AESCipher"));
+    }
+
+    @Test
+    void samePackage_includeWins() {
+        AppFrameFilter filter = AppFrameFilter.of(List.of("com.acme"), List.of("com.acme"));
+
+        assertTrue(filter.isApplicationCode("com.acme.Service"));
+    }
+
+    @Test
+    void repeatedLookups_areStable() {
+        AppFrameFilter filter = AppFrameFilter.of(List.of(), List.of("com.acme"));
+
+        for (int i = 0; i < 3; i++) {
+            assertFalse(filter.isApplicationCode("com.acme.Service"));
+            assertTrue(filter.isApplicationCode("com.example.Service"));
+        }
+    }
+
+    @Test
+    void equalRules_equalFilters() {
+        assertEquals(AppFrameFilter.of(List.of(), List.of("a.b", "c")), AppFrameFilter.of(null, List.of("c", "a.b.")));
+        assertEquals(AppFrameFilter.DEFAULT, AppFrameFilter.of(null, null));
+        assertNotEquals(AppFrameFilter.DEFAULT, AppFrameFilter.of(List.of(), List.of("c")));
+    }
+
+    @Test
+    void malformedPackage_throws() {
+        for (String pkg : List.of("", " ", ".com", "com..acme", "com/acme", "com.*.acme")) {
+            assertThrows(IllegalArgumentException.class, () -> AppFrameFilter.of(List.of(), List.of(pkg)), pkg);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for CacheFiles: a replaced file is the new content or the old, never part of one, and no
+ * temp file is left behind either way.
+ */
+class CacheFilesTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void replace_writesWholeFileAndCreatesDirectory() throws Exception {
+        Path file = tempDir.resolve("a/b/entry");
+
+        CacheFiles.replace(file, out -> out.writeUTF("first"));
+        CacheFiles.replace(file, out -> out.writeUTF("second"));
+
+        assertEquals(List.of(file), list(file.getParent()));
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            assertEquals("second", in.readUTF());
+        }
+    }
+
+    @Test
+    void replace_failedWrite_keepsOldFileAndRemovesTemp() throws Exception {
+        Path file = tempDir.resolve("entry");
+        CacheFiles.replace(file, out -> out.writeUTF("old"));
+        byte[] old = Files.readAllBytes(file);
+
+        assertThrows(IOException.class, () -> CacheFiles.replace(file, out -> {
+            out.writeUTF("partial");
+            throw new IOException("disk full");
+        }));
+
+        assertArrayEquals(old, Files.readAllBytes(file));
+        assertEquals(List.of(file), list(tempDir));
+    }
+
+    @Test
+    void defaultPath_isUnderHome_orTmpWithoutOne() {
+        String home = System.getProperty("user.home");
+        try {
+            System.setProperty("user.home", "/home/someone");
+            assertEquals(Paths.get("/home/someone", ".spicelabs", "digest-cache"), CacheFiles.defaultPath("digest-cache"));
+            System.setProperty("user.home", "/");
+            assertEquals(Paths.get("/tmp", ".spicelabs", "digest-cache"), CacheFiles.defaultPath("digest-cache"));
+        } finally {
+            System.setProperty("user.home", home);
+        }
+    }
+
+    @Test
+    void sha256Hex_isLowercaseHexOfUtf8() {
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", CacheFiles.sha256Hex(""));
+        assertEquals(64, CacheFiles.sha256Hex("/usr/bin/mvné").length());
+    }
+
+    private static List<Path> list(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.toList();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import io.spicelabs.coordinates.Coordinates;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for DigestCache: hits are only used while the file's metadata is unchanged, verify
+ * catches content rewritten with its metadata restored, and recently modified files and
+ * unreadable entries are never trusted.
+ */
+class DigestCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final FileTime past = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+
+    private Path anchorFile(String name, String content) throws Exception {
+        Path file = Files.writeString(tempDir.resolve(name), content);
+        Files.setLastModifiedTime(file, past);
+        return file;
+    }
+
+    private List<Path> entries(Path cacheDir) throws Exception {
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            return files.toList();
+        }
+    }
+
+    @Test
+    void anchor_missThenHit_matchesUncachedDigests() throws Exception {
+        Path file = anchorFile("app.war", "war bytes");
+        var cache = new DigestCache(tempDir.resolve("cache"));
+
+        var first = cache.anchor(file, false);
+        var second = cache.anchor(file, false);
+
+        assertEquals(AnchorHashes.anchor(file), first);
+        assertEquals(first, second);
+        assertEquals(1, entries(tempDir.resolve("cache")).size());
+    }
+
+    @Test
+    void anchor_rewrittenWithMetadataRestored_onlyVerifyNotices() throws Exception {
+        Path file = anchorFile("app.war", "war bytes");
+        var cache = new DigestCache(tempDir.resolve("cache"));
+        var original = cache.anchor(file, false);
+
+        Files.writeString(file, "WAR bytes");
+        Files.setLastModifiedTime(file, past);
+
+        assertEquals(original, cache.anchor(file, false), "same size, mtime and inode: trusted");
+        var verified = cache.anchor(file, true);
+        assertEquals(Coordinates.sha256("WAR bytes".getBytes(UTF_8)), verified.sha256());
+        assertEquals(Coordinates.gitoidBlobSha256("WAR bytes".getBytes(UTF_8)), verified.gitoid());
+        assertEquals(verified, cache.anchor(file, false), "the rehash replaced the entry");
+    }
+
+    @Test
+    void anchor_sizeOrModifiedTimeChanged_rehashes() throws Exception {
+        Path file = anchorFile("app.war", "war bytes");
+        var cache = new DigestCache(tempDir.resolve("cache"));
+        cache.anchor(file, false);
+
+        Files.writeString(file, "longer war bytes");
+        Files.setLastModifiedTime(file, past);
+        assertEquals(AnchorHashes.anchor(file), cache.anchor(file, false));
+
+        Files.writeString(file, "other war bytes!");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(past.toMillis() - 1_000));
+        assertEquals(AnchorHashes.anchor(file), cache.anchor(file, false));
+    }
+
+    @Test
+    void anchor_recentlyModified_isNotCached() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("app.war"), "war bytes");
+        Path cacheDir = tempDir.resolve("cache");
+
+        assertEquals(AnchorHashes.anchor(file), new DigestCache(cacheDir).anchor(file, false));
+        assertFalse(Files.exists(cacheDir) && !entries(cacheDir).isEmpty());
+    }
+
+    @Test
+    void anchor_corruptEntry_isMissAndRewritten() throws Exception {
+        Path file = anchorFile("app.war", "war bytes");
+        Path cacheDir = tempDir.resolve("cache");
+        var cache = new DigestCache(cacheDir);
+        cache.anchor(file, false);
+        Path entry = entries(cacheDir).get(0);
+        Files.writeString(entry, "not an entry");
+
+        assertEquals(AnchorHashes.anchor(file), cache.anchor(file, false));
+        assertNotEquals("not an entry", Files.readString(entry, ISO_8859_1));
+    }
+
+    @Test
+    void sample_coversStartAndEnd() throws Exception {
+        byte[] bytes = new byte[DigestCache.SAMPLE_BLOCKS * (1 << 16) * 3];
+        Path file = Files.write(tempDir.resolve("big.ear"), bytes);
+        String sample = DigestCache.sample(file);
+
+        bytes[bytes.length - 1] = 1;
+        assertNotEquals(sample, DigestCache.sample(Files.write(file, bytes)));
+        bytes[bytes.length - 1] = 0;
+        bytes[0] = 1;
+        assertNotEquals(sample, DigestCache.sample(Files.write(file, bytes)));
+    }
+}
@@ -0,0 +1,49 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for JdkVersionCache: versions round-trip by key, and a missing or unreadable file is empty.
+ */
+class JdkVersionCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void putThenGet_roundTrips() {
+        var cache = new JdkVersionCache(tempDir.resolve("dir/jdk-versions.properties"));
+        var oracle = new JdkVersionDetector.JdkVersion(8, "1.8.0_362", false);
+        var openJdk = new JdkVersionDetector.JdkVersion(21, "21.0.1+12", true);
+
+        cache.put("/usr/bin/mvn@1", oracle);
+        cache.put("/usr/bin/mvn@2", openJdk);
+
+        assertEquals(oracle, new JdkVersionCache(tempDir.resolve("dir/jdk-versions.properties")).get("/usr/bin/mvn@1"));
+        assertEquals(openJdk, cache.get("/usr/bin/mvn@2"));
+        assertNull(cache.get("/usr/bin/mvn@3"));
+    }
+
+    @Test
+    void get_missingOrCorruptFile_isMiss() throws Exception {
+        Path file = tempDir.resolve("jdk-versions.properties");
+        assertNull(new JdkVersionCache(file).get("k"));
+
+        Files.write(file, new byte[] {'k', '=', '\\', 'u', 'z'});
+        var cache = new JdkVersionCache(file);
+        assertNull(cache.get("k"));
+
+        var version = new JdkVersionDetector.JdkVersion(17, "17", true);
+        cache.put("k", version);
+        assertEquals(version, cache.get("k"));
+    }
+}
@@ -5,12 +5,24 @@ package io.spicelabs.cli;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
 class JdkVersionDetectorTest {
 
+    @TempDir
+    Path tempDir;
+
     // ── parseMajorVersion ──────────────────────────────────────────────
 
     @ParameterizedTest
@@ -44,6 +56,34 @@ class JdkVersionDetectorTest {
         assertEquals(-1, JdkVersionDetector.parseMajorVersion("not-a-version"));
     }
 
+    // ── parseVersionOption ─────────────────────────────────────────────
+
+    @Test
+    void parseVersionOption_vendorSuffix() {
+        var oracle = JdkVersionDetector.parseVersionOption("8-oracle", () -> fail("vendor given"));
+        assertEquals(8, oracle.major());
+        assertEquals("8", oracle.fullVersion());
+        assertTrue(oracle.needsCommercialFlag());
+        assertTrue(JdkVersionDetector.parseVersionOption("1.8.0_362-OpenJDK", () -> fail("vendor given")).isOpenJdk());
+    }
+
+    @Test
+    void parseVersionOption_jdk8WithoutVendor_takesDetectedVendor() {
+        var oracle8 = new JdkVersionDetector.JdkVersion(8, "1.8.0_202", false);
+        var oracle21 = new JdkVersionDetector.JdkVersion(21, "21.0.1", false);
+        assertTrue(JdkVersionDetector.parseVersionOption("8", () -> oracle8).needsCommercialFlag());
+        assertFalse(JdkVersionDetector.parseVersionOption("8", () -> oracle21).needsCommercialFlag(),
+                "a detected JDK that isn't 8 says nothing about the given one");
+        assertFalse(JdkVersionDetector.parseVersionOption("8", () -> null).needsCommercialFlag());
+        assertTrue(JdkVersionDetector.parseVersionOption("17", () -> fail("only JDK 8 needs a vendor")).isOpenJdk());
+    }
+
+    @Test
+    void parseVersionOption_noVersion_isNull() {
+        assertNull(JdkVersionDetector.parseVersionOption("oracle", () -> null));
+        assertNull(JdkVersionDetector.parseVersionOption("-oracle", () -> null));
+    }
+
     // ── parseJavaVersionOutput ─────────────────────────────────────────
 
     @Test
@@ -153,6 +193,59 @@ class JdkVersionDetectorTest {
         assertNull(JdkVersionDetector.parseJavaVersionOutput(""));
     }
 
+    // ── release file ───────────────────────────────────────────────────
+
+    @Test
+    void parseRelease_temurin21() {
+        String release = """
+                IMPLEMENTOR="Eclipse Adoptium"
+                IMPLEMENTOR_VERSION="Temurin-21.0.1+12"
+                JAVA_VERSION="21.0.1"
+                OS_NAME="Linux"
+                """;
+        assertEquals(new JdkVersionDetector.JdkVersion(21, "21.0.1", true), JdkVersionDetector.parseRelease(release));
+    }
+
+    @Test
+    void parseRelease_jdk8_needsVendorToTellOracleApart() {
+        assertEquals(new JdkVersionDetector.JdkVersion(8, "1.8.0_362", true), JdkVersionDetector.parseRelease("""
+                JAVA_VERSION="1.8.0_362"
+                IMPLEMENTOR="Temurin"
+                """));
+        assertEquals(new JdkVersionDetector.JdkVersion(8, "1.8.0_361", false), JdkVersionDetector.parseRelease("""
+                JAVA_VERSION="1.8.0_361"
+                BUILD_TYPE="commercial"
+                """));
+        assertNull(JdkVersionDetector.parseRelease("JAVA_VERSION=\"1.8.0_361\"\n"), "unknown vendor: run java -version");
+    }
+
+    @Test
+    void parseRelease_noVersion_returnsNull() {
+        assertNull(JdkVersionDetector.parseRelease("IMPLEMENTOR=\"Eclipse Adoptium\"\n"));
+        assertNull(JdkVersionDetector.parseRelease(""));
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void detectFromRelease_followsSymlinkedJavaToItsHome() throws Exception {
+        Path home = Files.createDirectories(tempDir.resolve("jdk-17"));
+        Path java = Files.createDirectories(home.resolve("bin")).resolve("java");
+        Files.writeString(java, "not run");
+        Files.writeString(home.resolve("release"), "JAVA_VERSION=\"17.0.10\"\nIMPLEMENTOR=\"Eclipse Adoptium\"\n");
+        Path link = Files.createSymbolicLink(Files.createDirectories(tempDir.resolve("usr/bin")).resolve("java"), java);
+
+        assertEquals(new JdkVersionDetector.JdkVersion(17, "17.0.10", true), JdkVersionDetector.detectFromRelease(link.toString()));
+        assertNull(JdkVersionDetector.detectFromRelease(tempDir.resolve("missing/java").toString()));
+    }
+
+    @Test
+    void readRelease_jdk8Jre_usesTheJdksFile() throws Exception {
+        Path jre = Files.createDirectories(tempDir.resolve("jdk8/jre"));
+        Files.writeString(tempDir.resolve("jdk8/release"), "JAVA_VERSION=\"1.8.0_402\"\nIMPLEMENTOR=\"Azul Systems, Inc.\"\n");
+
+        assertEquals(8, JdkVersionDetector.readRelease(jre).major());
+    }
+
     // ── detect with live JVM ───────────────────────────────────────────
 
     @Test
@@ -179,4 +272,38 @@ class JdkVersionDetectorTest {
     void detect_blank_returnsNull() {
         assertNull(JdkVersionDetector.detect(""));
     }
+
+    // ── timeout and cache ──────────────────────────────────────────────
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void runCommand_pastTimeout_isKilled() {
+        long start = System.nanoTime();
+        assertThrows(TimeoutException.class, () -> JdkVersionDetector.runCommand(Duration.ofMillis(200), "sleep", "30"));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toSeconds() < 10);
+    }
+
+    @Test
+    void cacheKey_followsExecutableModifiedTime() throws Exception {
+        Path mvn = Files.writeString(tempDir.resolve("mvn"), "#!/bin/sh");
+        Files.setLastModifiedTime(mvn, FileTime.fromMillis(1_000_000));
+        String key = JdkVersionDetector.cacheKey(mvn.toString());
+        assertNotNull(key);
+        assertEquals(key, JdkVersionDetector.cacheKey(mvn.toString()));
+
+        Files.setLastModifiedTime(mvn, FileTime.fromMillis(2_000_000));
+        assertNotEquals(key, JdkVersionDetector.cacheKey(mvn.toString()));
+        assertNull(JdkVersionDetector.cacheKey(tempDir.resolve("missing/mvn").toString()));
+    }
+
+    @Test
+    void detect_cached_skipsTheCommand() throws Exception {
+        // Not executable, so a run of it would fail: only the cache can answer.
+        Path mvn = Files.writeString(tempDir.resolve("mvn"), "not a script");
+        var cache = new JdkVersionCache(tempDir.resolve("jdk-versions.properties"));
+        var cached = new JdkVersionDetector.JdkVersion(17, "17.0.10", true);
+        cache.put(JdkVersionDetector.cacheKey(mvn.toString()), cached);
+
+        assertEquals(cached, JdkVersionDetector.detectByRunning(mvn.toString(), cache));
+    }
 }
@@ -0,0 +1,121 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+
+class JfrChunksTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void split_concatenatedRecordings_coversWholeFileInOrder() throws Exception {
+        Path combined = tempDir.resolve("combined.jfr");
+        int parts = 3;
+        for (int i = 0; i < parts; i++) {
+            Path part = tempDir.resolve("part" + i + ".jfr");
+            writeRecording(part);
+            Files.write(combined, Files.readAllBytes(part), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        List<JfrChunks.Chunk> chunks = JfrChunks.split(combined);
+
+        assertTrue(chunks.size() >= parts, "expected at least one chunk per dump, got " + chunks);
+        long expectedOffset = 0;
+        for (JfrChunks.Chunk chunk : chunks) {
+            assertEquals(expectedOffset, chunk.offset());
+            expectedOffset += chunk.size();
+        }
+        assertEquals(Files.size(combined), expectedOffset);
+    }
+
+    @Test
+    void split_readsEachChunksTimeSpan() throws Exception {
+        Path combined = tempDir.resolve("combined.jfr");
+        for (int i = 0; i < 2; i++) {
+            Path part = tempDir.resolve("part" + i + ".jfr");
+            writeRecording(part);
+            Files.write(combined, Files.readAllBytes(part), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        List<JfrChunks.Chunk> chunks = JfrChunks.split(combined);
+
+        long previousStart = 0;
+        for (JfrChunks.Chunk chunk : chunks) {
+            assertTrue(chunk.startNanos() >= previousStart, "chunks are in time order: " + chunks);
+            assertTrue(chunk.durationNanos() >= 0);
+            previousStart = chunk.startNanos();
+        }
+        assertTrue(previousStart > 0);
+    }
+
+    @Test
+    void offsetAt_interpolatesWithinTheSpanningChunk() {
+        List<JfrChunks.Chunk> chunks = List.of(
+                new JfrChunks.Chunk(0, 100, 1_000, 100),
+                new JfrChunks.Chunk(100, 300, 2_000, 300));
+
+        assertEquals(0, JfrChunks.offsetAt(chunks, 500), "before the first chunk");
+        assertEquals(50, JfrChunks.offsetAt(chunks, 1_050));
+        assertEquals(100, JfrChunks.offsetAt(chunks, 1_500), "between chunks: the first is done");
+        assertEquals(250, JfrChunks.offsetAt(chunks, 2_150));
+        assertEquals(400, JfrChunks.offsetAt(chunks, 9_999));
+        assertEquals(0, JfrChunks.offsetAt(List.of(new JfrChunks.Chunk(0, 200)), 1_000), "no span: no estimate");
+    }
+
+    @Test
+    void copy_producesReadableRecording() throws Exception {
+        Path recording = tempDir.resolve("single.jfr");
+        writeRecording(recording);
+        List<JfrChunks.Chunk> chunks = JfrChunks.split(recording);
+
+        Path copy = tempDir.resolve("chunk.jfr");
+        JfrChunks.copy(recording, chunks.get(0), copy);
+
+        assertEquals(chunks.get(0).size(), Files.size(copy));
+        assertFalse(RecordingFile.readAllEvents(copy).isEmpty());
+    }
+
+    @Test
+    void split_notARecording_returnsWholeFile() throws Exception {
+        Path bogus = tempDir.resolve("bogus.jfr");
+        Files.write(bogus, new byte[200]);
+
+        assertEquals(List.of(new JfrChunks.Chunk(0, 200)), JfrChunks.split(bogus));
+    }
+
+    @Test
+    void split_truncatedRecording_returnsWholeFile() throws Exception {
+        Path recording = tempDir.resolve("full.jfr");
+        writeRecording(recording);
+        byte[] bytes = Files.readAllBytes(recording);
+        Path truncated = tempDir.resolve("truncated.jfr");
+        Files.write(truncated, java.util.Arrays.copyOf(bytes, bytes.length - 10));
+
+        assertEquals(List.of(new JfrChunks.Chunk(0, bytes.length - 10)), JfrChunks.split(truncated));
+    }
+
+    private static void writeRecording(Path file) throws Exception {
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.JavaMonitorWait");
+            recording.enable("jdk.ThreadSleep").withoutThreshold();
+            recording.start();
+            Thread.sleep(1);
+            recording.stop();
+            recording.dump(file);
+        }
+    }
+}
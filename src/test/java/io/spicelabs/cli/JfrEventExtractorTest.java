@@ -5,14 +5,31 @@ package io.spicelabs.cli;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import javax.management.ObjectName;
+
+import com.sun.management.ThreadMXBean;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
 import org.junit.jupiter.api.io.TempDir;
 
 import jdk.jfr.Configuration;
@@ -22,6 +39,8 @@ import jdk.jfr.FlightRecorder;
 import jdk.jfr.Name;
 import jdk.jfr.Recording;
 import jdk.jfr.StackTrace;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 /**
  * Tests for JfrEventExtractor.
@@ -31,6 +50,9 @@ import jdk.jfr.StackTrace;
  */
 class JfrEventExtractorTest {
 
+    // Passes over the events per allocation measurement, all but the last to warm up.
+    private static final int ALLOCATION_ROUNDS = 50;
+
     @TempDir
     Path tempDir;
 
@@ -197,6 +219,49 @@ class JfrEventExtractorTest {
         assertNotNull(data.tlsHandshakes());
     }
 
+    @Name("test.Noise")
+    @StackTrace(true)
+    static class NoiseEvent extends Event {
+        String text;
+        int index;
+    }
+
+    @Test
+    void extract_noisyRecording_matchesRecordingFileParse() throws Exception {
+        // Mostly events the survey ignores, which subscriptions skip and RecordingFile materializes.
+        Path jfrFile = tempDir.resolve("noisy.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(NoiseEvent.class);
+            recording.enable(SpiceClassLoadedEvent.class);
+            recording.start();
+            for (int i = 0; i < 20_000; i++) {
+                NoiseEvent noise = new NoiseEvent();
+                noise.text = "noise-" + (i % 100);
+                noise.index = i;
+                noise.commit();
+                if (i % 200 == 0) {
+                    SpiceClassLoadedEvent loaded = new SpiceClassLoadedEvent();
+                    loaded.classGitoid = "gitoid:blob:sha256:" + i;
+                    loaded.className = "com.example.C" + i;
+                    loaded.commit();
+                }
+            }
+            recording.stop();
+            recording.dump(jfrFile);
+        }
+        var acc = new JfrEventExtractor.Accumulators(null);
+        try (RecordingFile rf = new RecordingFile(jfrFile)) {
+            while (rf.hasMoreEvents()) {
+                acc.accept(rf.readEvent());
+            }
+        }
+
+        var expected = JfrEventExtractor.fromAccumulators("noisy-test", List.of("noisy.jfr"), acc);
+        var actual = JfrEventExtractor.extract("noisy-test", List.of(jfrFile));
+        assertEquals(expected, actual, "subscriptions must extract what reading every event does");
+        assertEquals(100, actual.loadedClasses().size());
+    }
+
     // ── spice.ClassLoaded extraction ────────────────────────────────────
 
     /** Mirrors the event ancho emits: @Name("spice.ClassLoaded") with String fields. */
@@ -424,6 +489,783 @@ class JfrEventExtractorTest {
                 .findFirst().orElseThrow().id();
     }
 
+    @Test
+    void callSites_stackSharedByThreads_isResolvedOnce() throws Exception {
+        Path jfrFile = tempDir.resolve("shared-stack.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("spice.probe.testlink");
+            recording.start();
+            Runnable fire = () -> {
+                for (int i = 0; i < 10; i++) {
+                    new SpiceProbeEvent().commit();
+                }
+            };
+            for (int t = 0; t < 8; t++) {
+                Thread thread = new Thread(fire, "worker-" + t);
+                thread.start();
+                thread.join();
+            }
+            recording.stop();
+            recording.dump(jfrFile);
+        }
+        var acc = new JfrEventExtractor.Accumulators(null);
+        for (RecordedEvent event : RecordingFile.readAllEvents(jfrFile)) {
+            acc.accept(event);
+        }
+
+        // One call site per thread, but the stack trace is the same one: only its first event walks it.
+        assertEquals(80, acc.stackLookups());
+        assertEquals(79, acc.stackHits());
+        var data = JfrEventExtractor.fromAccumulators("stack-test", List.of("shared-stack.jfr"), acc);
+        assertEquals(8, data.probeEvents().get(0).callSites().size());
+    }
+
+    // ── Allocation and retained heap ────────────────────────────────────
+
+    @Test
+    void probeEvent_repeatEvents_allocateNothing() throws Exception {
+        Path jfrFile = tempDir.resolve("hot-probe.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("spice.probe.testlink");
+            recording.start();
+            for (int i = 0; i < 2_000; i++) {
+                SpiceProbeEvent probe = new SpiceProbeEvent();
+                probe.classGitoid = "g-decl";
+                probe.callerGitoids = "g-caller-1\ng-caller-2";
+                probe.commit();
+            }
+            recording.stop();
+            recording.dump(jfrFile);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(jfrFile);
+        var acc = new JfrEventExtractor.Accumulators(null);
+
+        // The JDK's named field accessors allocate on their own (they iterate the field list), so
+        // the budget is what the accessors a probe event needs cost by themselves: the extractor
+        // must add nothing on top. The first event of a type, stack and caller set does allocate.
+        long accessorBytes = allocatedPerRound(events, e -> {
+            e.getEventType();
+            e.getStackTrace();
+            e.getThread();
+            e.getString("classGitoid");
+            e.getString("callerGitoids");
+        });
+        long extractorBytes = allocatedPerRound(events, acc::accept);
+
+        assertTrue(extractorBytes <= accessorBytes + 1024,
+                "repeat probe events should allocate nothing beyond the JDK accessors: "
+                        + extractorBytes + " bytes vs " + accessorBytes + " for " + events.size() + " events");
+        var data = JfrEventExtractor.fromAccumulators("alloc-test", List.of("hot-probe.jfr"), acc);
+        assertEquals((long) ALLOCATION_ROUNDS * events.size(), data.probeEvents().get(0).count());
+        assertEquals(1, data.probeEvents().get(0).callSites().size());
+    }
+
+    @Test
+    void callSites_sharedNamesAreInternedOnce() throws Exception {
+        // One call site per thread: distinct sites sharing class, method and line.
+        int sites = 64;
+        Path jfrFile = tempDir.resolve("shared-names.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("spice.probe.testlink");
+            recording.start();
+            for (int i = 0; i < sites; i++) {
+                Thread worker = new Thread(() -> new SpiceProbeEvent().commit(), "worker-" + i);
+                worker.start();
+                worker.join();
+            }
+            recording.stop();
+            recording.dump(jfrFile);
+        }
+        var acc = new JfrEventExtractor.Accumulators(null);
+        RecordingFile.readAllEvents(jfrFile).forEach(acc::accept);
+
+        // A symbol per thread, and one each for the class and the method every site shares.
+        assertEquals(sites + 2, acc.symbols.size());
+        var callSites = JfrEventExtractor.fromAccumulators("names-test", List.of("shared-names.jfr"), acc)
+                .probeEvents().get(0).callSites();
+        assertEquals(sites, callSites.size());
+        for (var site : callSites) {
+            assertSame(callSites.get(0).className(), site.className());
+        }
+    }
+
+    /** The heap the interned sites save, measured: slow and GC-dependent, so run with the benchmarks. */
+    @Test
+    @EnabledIfSystemProperty(named = "spice.bench", matches = "true")
+    void callSites_sharedNamesAreStoredOnce() throws Exception {
+        // One call site per thread: thousands of distinct sites sharing class, method and line.
+        int sites = 4_000;
+        Path jfrFile = tempDir.resolve("many-sites.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("spice.probe.testlink");
+            recording.start();
+            for (int i = 0; i < sites; i++) {
+                Thread worker = new Thread(() -> new SpiceProbeEvent().commit(), "worker-" + i);
+                worker.start();
+                worker.join();
+            }
+            recording.stop();
+            recording.dump(jfrFile);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(jfrFile);
+
+        // The previous representation: a formatted CallSite plus a "location|thread" key per site.
+        long formattedBytes = retainedBytes(() -> {
+            List<JfrEventExtractor.CallSite> callSites = new ArrayList<>();
+            Set<String> seenSites = new LinkedHashSet<>();
+            for (RecordedEvent event : events) {
+                var frame = event.getStackTrace().getFrames().get(0);
+                String cn = frame.getMethod().getType().getName();
+                String location = cn + "." + frame.getMethod().getName() + "() line " + frame.getLineNumber();
+                String thread = event.getThread().getJavaName();
+                if (seenSites.add(location + "|" + thread)) {
+                    callSites.add(new JfrEventExtractor.CallSite(cn, location, thread));
+                }
+            }
+            return List.of(callSites, seenSites);
+        });
+        long internedBytes = retainedBytes(() -> {
+            var acc = new JfrEventExtractor.Accumulators(null);
+            events.forEach(acc::accept);
+            return acc;
+        });
+
+        assertTrue(internedBytes * 2 < formattedBytes,
+                "interned call sites should take under half the heap of formatted ones: "
+                        + internedBytes + " vs " + formattedBytes + " bytes for " + sites + " sites");
+        var data = JfrEventExtractor.extract("heap-test", List.of(jfrFile));
+        assertEquals(sites, data.probeEvents().get(0).callSites().size());
+    }
+
+    /** Live heap added by what {@code build} returns, from class histograms (each forces a full GC). */
+    private static long retainedBytes(Supplier<Object> build) throws Exception {
+        // JFR tidies up for a while after a recording; wait for the live heap to stop moving.
+        long before = liveHeapBytes();
+        for (int i = 0; i < 10; i++) {
+            long again = liveHeapBytes();
+            if (Math.abs(again - before) < 4096) {
+                break;
+            }
+            before = again;
+        }
+        Object retained = build.get();
+        long after = liveHeapBytes();
+        Reference.reachabilityFence(retained);
+        return after - before;
+    }
+
+    private static long liveHeapBytes() throws Exception {
+        String histogram = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+                new ObjectName("com.sun.management:type=DiagnosticCommand"),
+                "gcClassHistogram", new Object[] {null}, new String[] {String[].class.getName()});
+        String[] lines = histogram.strip().split("\n");
+        String[] total = lines[lines.length - 1].trim().split("\\s+");
+        return Long.parseLong(total[2]);
+    }
+
+    /** Bytes allocated by one pass of {@code action} over {@code events}, after warm-up passes. */
+    private static long allocatedPerRound(List<RecordedEvent> events, Consumer<RecordedEvent> action) {
+        var threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int round = 1; round < ALLOCATION_ROUNDS; round++) {
+            for (int i = 0; i < events.size(); i++) {
+                action.accept(events.get(i));
+            }
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < events.size(); i++) {
+            action.accept(events.get(i));
+        }
+        return threads.getCurrentThreadAllocatedBytes() - before;
+    }
+
+    // ── Parallel extraction ─────────────────────────────────────────────
+
+    @Test
+    void extract_parallel_matchesSerial() throws Exception {
+        // Overlapping classes + probes across recordings: the merge must keep first-seen order + ids.
+        List<Path> recordings = List.of(
+                tempDir.resolve("p1.jfr"), tempDir.resolve("p2.jfr"), tempDir.resolve("p3.jfr"));
+        for (int i = 0; i < recordings.size(); i++) {
+            try (Recording recording = new Recording()) {
+                recording.enable("spice.ClassLoaded");
+                recording.enable("spice.probe.testlink");
+                recording.start();
+                classLoaded(recording, "g-" + (3 - i), "com.example.C" + (3 - i));
+                classLoaded(recording, "g-shared", "com.example.Shared");
+                SpiceProbeEvent probe = new SpiceProbeEvent();
+                probe.classGitoid = "g-shared";
+                probe.callerGitoids = "g-" + (3 - i);
+                probe.commit();
+                recording.stop();
+                recording.dump(recordings.get(i));
+            }
+        }
+
+        var serial = JfrEventExtractor.extract("parallel-test", recordings, null, null, 1);
+        var parallel = JfrEventExtractor.extract("parallel-test", recordings, null, null, 3);
+
+        assertEquals(serial, parallel, "parallel parse must merge to exactly the serial result");
+        assertEquals(List.of("g-3", "g-shared", "g-2", "g-1"), parallel.loadedClasses().stream()
+                .map(JfrEventExtractor.LoadedClass::classGitoid).toList());
+        assertEquals(3, parallel.probeEvents().get(0).count());
+    }
+
+    @Test
+    void extract_parallel_progressIsMonotonicAndCompletes() throws Exception {
+        List<Path> recordings = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Path file = tempDir.resolve("prog" + i + ".jfr");
+            writeClassLoadedRecording(file, "gitoid:blob:sha256:p" + i, "com.example.P" + i);
+            recordings.add(file);
+        }
+
+        long bytes = 0;
+        for (Path recording : recordings) {
+            bytes += Files.size(recording);
+        }
+
+        List<JfrProgressCallback.Progress> ticks = Collections.synchronizedList(new ArrayList<>());
+        JfrEventExtractor.extract("progress-test", recordings, null, ticks::add, 4);
+
+        assertFalse(ticks.isEmpty());
+        JfrProgressCallback.Progress previous = ticks.get(0);
+        for (JfrProgressCallback.Progress tick : ticks) {
+            assertEquals(4, tick.recordings());
+            assertEquals(bytes, tick.bytes());
+            assertTrue(tick.recordingsParsed() >= previous.recordingsParsed(), "finished count must never go backwards");
+            assertTrue(tick.bytesParsed() >= previous.bytesParsed(), "bytes parsed must never go backwards");
+            previous = tick;
+        }
+        var last = ticks.get(ticks.size() - 1);
+        assertEquals(4, last.recordingsParsed(), "last tick reports every recording finished");
+        assertEquals(bytes, last.bytesParsed(), "and every byte");
+        assertEquals(1.0, last.fraction());
+    }
+
+    @Test
+    void extract_chunkedRecording_reportsBytesWithinIt() throws Exception {
+        // A recording split by chunk reports each chunk's bytes as it's parsed, before the
+        // recording as a whole is finished.
+        Path combined = tempDir.resolve("combined.jfr");
+        for (int i = 0; i < 4; i++) {
+            Path part = tempDir.resolve("part" + i + ".jfr");
+            writeClassLoadedRecording(part, "gitoid:blob:sha256:c" + i, "com.example.C" + i);
+            Files.write(combined, Files.readAllBytes(part),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            Files.delete(part);
+        }
+        List<JfrProgressCallback.Progress> ticks = Collections.synchronizedList(new ArrayList<>());
+        JfrEventExtractor.extract("progress-test", List.of(combined), null, ticks::add,
+                JfrEventExtractor.ParseOptions.builder().parseThreads(2).chunkSplitThreshold(0).build());
+
+        assertTrue(ticks.stream().anyMatch(t -> t.recordingsParsed() == 0
+                && t.bytesParsed() > 0 && t.bytesParsed() < t.bytes()), "bytes moved within the recording: " + ticks);
+        var last = ticks.get(ticks.size() - 1);
+        assertEquals(Files.size(combined), last.bytesParsed());
+        assertEquals(1, last.recordingsParsed());
+    }
+
+    @Test
+    void extract_chunkParallel_matchesSerial() throws Exception {
+        // One recording made of several chunks, as JFR writes when it rotates a long recording.
+        Path combined = tempDir.resolve("combined.jfr");
+        for (int i = 0; i < 3; i++) {
+            Path part = tempDir.resolve("part" + i + ".jfr");
+            try (Recording recording = new Recording()) {
+                recording.enable("spice.ClassLoaded");
+                recording.enable("spice.probe.testlink");
+                recording.start();
+                classLoaded(recording, "g-" + (3 - i), "com.example.C" + (3 - i));
+                classLoaded(recording, "g-shared", "com.example.Shared");
+                SpiceProbeEvent probe = new SpiceProbeEvent();
+                probe.classGitoid = "g-shared";
+                probe.callerGitoids = "g-" + (3 - i);
+                probe.commit();
+                recording.stop();
+                recording.dump(part);
+            }
+            Files.write(combined, Files.readAllBytes(part),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            Files.delete(part);
+        }
+        assertTrue(JfrChunks.split(combined).size() >= 3);
+
+        var serial = JfrEventExtractor.extract("chunk-test", List.of(combined), null, null, 1);
+        var chunked = JfrEventExtractor.extract("chunk-test", List.of(combined), null, null,
+                JfrEventExtractor.ParseOptions.builder().parseThreads(3).chunkSplitThreshold(0).build());
+
+        assertEquals(serial, chunked, "chunk-parallel parse must merge to exactly the serial result");
+        assertEquals(List.of("g-3", "g-shared", "g-2", "g-1"), chunked.loadedClasses().stream()
+                .map(JfrEventExtractor.LoadedClass::classGitoid).toList());
+        assertEquals(3, chunked.probeEvents().get(0).count());
+        try (var left = Files.list(tempDir)) {
+            assertEquals(List.of(combined), left.toList(), "chunk copies must be cleaned up");
+        }
+    }
+
+    // ── Loaded-class spill ──────────────────────────────────────────────
+
+    @Test
+    void extract_loadedClassesSpilled_matchesInHeap() throws Exception {
+        // Overlapping classes across recordings, so runs repeat gitoids the merge must drop,
+        // plus a probe linking to classes that end up on disk.
+        List<Path> recordings = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Path file = tempDir.resolve("spill" + i + ".jfr");
+            try (Recording recording = new Recording()) {
+                recording.enable("spice.ClassLoaded");
+                recording.enable("spice.probe.testlink");
+                recording.start();
+                for (int c = i * 5; c < i * 5 + 10; c++) {
+                    classLoaded(recording, "g-" + c, "com.example.C" + c);
+                }
+                SpiceProbeEvent probe = new SpiceProbeEvent();
+                probe.classGitoid = "g-" + (i * 5 + 7);
+                probe.callerGitoids = "g-0\ng-" + (i * 5 + 9);
+                probe.commit();
+                recording.stop();
+                recording.dump(file);
+            }
+            recordings.add(file);
+        }
+        Path spillDir = tempDir.resolve("spill");
+
+        var inHeap = JfrEventExtractor.extract("spill-test", recordings);
+        var spilled = JfrEventExtractor.extract("spill-test", recordings, null, null,
+                JfrEventExtractor.ParseOptions.builder().spillThreshold(4).spillDirectory(spillDir).build());
+        var spilledParallel = JfrEventExtractor.extract("spill-test", recordings, null, null,
+                JfrEventExtractor.ParseOptions.builder().parseThreads(3).spillThreshold(3).spillDirectory(spillDir).build());
+
+        assertEquals(20, inHeap.loadedClasses().size());
+        assertEquals(inHeap, spilled, "spilling must not change the survey");
+        assertEquals(inHeap, spilledParallel);
+        assertEquals(inHeap.probeEvents().get(0).callerClassIds(), spilled.probeEvents().get(0).callerClassIds());
+        assertTrue(Files.exists(spillDir), "classes were spilled");
+        try (var left = Files.list(spillDir)) {
+            assertEquals(List.of(), left.toList(), "spill files must be cleaned up");
+        }
+    }
+
+    // ── Checkpoints ─────────────────────────────────────────────────────
+
+    @Test
+    void extract_resumeAfterInterruption_matchesUninterrupted() throws Exception {
+        List<Path> recordings = checkpointRecordings();
+        Path checkpointDir = tempDir.resolve("work");
+        // Classes spill along the way, so the checkpoint has to carry spilled runs too.
+        var options = JfrEventExtractor.ParseOptions.builder()
+                .spillThreshold(4).spillDirectory(tempDir.resolve("spill")).checkpointDirectory(checkpointDir);
+        var uninterrupted = JfrEventExtractor.extract("resume-test", recordings);
+
+        // Die once the second recording is parsed, before it is checkpointed.
+        assertThrows(IllegalStateException.class, () -> JfrEventExtractor.extract("resume-test", recordings, null,
+                progress -> {
+                    if (progress.recordingsParsed() == 2) {
+                        throw new IllegalStateException("killed");
+                    }
+                }, options.build()));
+        assertTrue(Files.exists(checkpointDir.resolve(ParseCheckpoint.FILE_NAME)));
+        try (var runs = Files.list(checkpointDir.resolve(ParseCheckpoint.RUNS_DIRECTORY))) {
+            assertFalse(runs.toList().isEmpty(), "spilled runs are kept beside the checkpoint, not copied into it");
+        }
+
+        List<JfrProgressCallback.Progress> ticks = new ArrayList<>();
+        var resumed = JfrEventExtractor.extract("resume-test", recordings, null, ticks::add, options.resume(true).build());
+
+        assertEquals(uninterrupted, resumed, "resuming must give the survey an uninterrupted parse does");
+        assertEquals(1, ticks.get(0).recordingsParsed(), "the checkpointed recording is not parsed again");
+        assertEquals(Files.size(recordings.get(0)), ticks.get(0).bytesParsed());
+        assertFalse(Files.exists(checkpointDir.resolve(ParseCheckpoint.FILE_NAME)), "checkpoint removed once done");
+        assertFalse(Files.exists(checkpointDir.resolve(ParseCheckpoint.RUNS_DIRECTORY)), "its runs too");
+    }
+
+    @Test
+    void extract_resumeParallel_matchesUninterrupted() throws Exception {
+        List<Path> recordings = checkpointRecordings();
+        Path checkpointDir = tempDir.resolve("work");
+        var options = JfrEventExtractor.ParseOptions.builder().parseThreads(3).checkpointDirectory(checkpointDir);
+        var uninterrupted = JfrEventExtractor.extract("resume-test", recordings);
+
+        // Checkpoint the first two recordings, as a serial run interrupted on the third would.
+        assertThrows(IllegalStateException.class, () -> JfrEventExtractor.extract("resume-test", recordings, null,
+                progress -> {
+                    if (progress.recordingsParsed() == 3) {
+                        throw new IllegalStateException("killed");
+                    }
+                }, JfrEventExtractor.ParseOptions.builder().checkpointDirectory(checkpointDir).build()));
+
+        var resumed = JfrEventExtractor.extract("resume-test", recordings, null, null, options.resume(true).build());
+
+        assertEquals(uninterrupted, resumed);
+    }
+
+    @Test
+    void extract_resumeWithChangedRecording_parsesEverything() throws Exception {
+        List<Path> recordings = checkpointRecordings();
+        Path checkpointDir = tempDir.resolve("work");
+        var options = JfrEventExtractor.ParseOptions.builder().checkpointDirectory(checkpointDir);
+        assertThrows(IllegalStateException.class, () -> JfrEventExtractor.extract("resume-test", recordings, null,
+                progress -> {
+                    if (progress.recordingsParsed() == 2) {
+                        throw new IllegalStateException("killed");
+                    }
+                }, options.build()));
+        Files.setLastModifiedTime(recordings.get(0), FileTime.fromMillis(0));
+
+        List<JfrProgressCallback.Progress> ticks = new ArrayList<>();
+        var resumed = JfrEventExtractor.extract("resume-test", recordings, null, ticks::add, options.resume(true).build());
+
+        assertEquals(JfrEventExtractor.extract("resume-test", recordings), resumed);
+        assertEquals(0, ticks.get(0).recordingsParsed(), "a checkpoint over a changed recording is not used");
+    }
+
+    @Test
+    void extract_resumeWithoutCheckpointDirectory_throws() {
+        assertThrows(IllegalArgumentException.class, () -> JfrEventExtractor.extract("x",
+                List.of(tempDir.resolve("a.jfr")), null, null,
+                JfrEventExtractor.ParseOptions.builder().resume(true).build()));
+    }
+
+    // ── Recording cache ─────────────────────────────────────────────────
+
+    @Test
+    void extract_cachedRecordings_matchFreshParse() throws Exception {
+        List<Path> recordings = checkpointRecordings();
+        Path cacheDir = tempDir.resolve("cache");
+        var options = JfrEventExtractor.ParseOptions.builder().cacheDirectory(cacheDir);
+        var fresh = JfrEventExtractor.extract("cache-test", recordings);
+
+        var first = JfrEventExtractor.extract("cache-test", recordings, null, null, options.build());
+        try (var entries = Files.list(cacheDir)) {
+            assertEquals(3, entries.count(), "one entry per recording");
+        }
+        // Age the entries: a hit marks its entry used.
+        var epoch = FileTime.fromMillis(0);
+        try (var entries = Files.list(cacheDir)) {
+            for (Path entry : entries.toList()) {
+                Files.setLastModifiedTime(entry, epoch);
+            }
+        }
+        var serial = JfrEventExtractor.extract("cache-test", recordings, null, null, options.build());
+        try (var entries = Files.list(cacheDir)) {
+            for (Path entry : entries.toList()) {
+                assertTrue(Files.getLastModifiedTime(entry).compareTo(epoch) > 0, "every recording came from the cache");
+            }
+        }
+        var parallel = JfrEventExtractor.extract("cache-test", recordings, null, null, options.parseThreads(3).build());
+
+        assertEquals(fresh, first);
+        assertEquals(fresh, serial, "cached partials must merge to the same survey");
+        assertEquals(fresh, parallel);
+    }
+
+    @Test
+    void extract_cacheKey_coversProbeConfig() throws Exception {
+        List<Path> recordings = checkpointRecordings();
+        Path cacheDir = tempDir.resolve("cache");
+        var options = JfrEventExtractor.ParseOptions.builder().cacheDirectory(cacheDir).build();
+        var probes = Map.of("spice.probe.testlink",
+                new JfrEventExtractor.ProbeDefinition("spice.probe.testlink", "com.example.Linked", "run", "Linked"));
+
+        JfrEventExtractor.extract("cache-test", recordings, null, null, options);
+        var withProbes = JfrEventExtractor.extract("cache-test", recordings, probes, null, options);
+
+        assertEquals(JfrEventExtractor.extract("cache-test", recordings, probes), withProbes);
+        assertEquals("com.example.Linked", withProbes.probeEvents().get(0).classFqn());
+        try (var entries = Files.list(cacheDir)) {
+            assertEquals(6, entries.count(), "a different probe config is a different entry");
+        }
+    }
+
+    /** Three recordings with overlapping classes and a linked probe, as the spill test uses. */
+    private List<Path> checkpointRecordings() throws Exception {
+        List<Path> recordings = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Path file = tempDir.resolve("resume" + i + ".jfr");
+            try (Recording recording = new Recording()) {
+                recording.enable("spice.ClassLoaded");
+                recording.enable("spice.probe.testlink");
+                recording.start();
+                for (int c = i * 5; c < i * 5 + 10; c++) {
+                    classLoaded(recording, "g-" + c, "com.example.C" + c);
+                }
+                SpiceProbeEvent probe = new SpiceProbeEvent();
+                probe.classGitoid = "g-" + (i * 5 + 7);
+                probe.callerGitoids = "g-0\ng-" + (i * 5 + 9);
+                probe.commit();
+                recording.stop();
+                recording.dump(file);
+            }
+            recordings.add(file);
+        }
+        return recordings;
+    }
+
+    // ── Application frames ──────────────────────────────────────────────
+
+    /** Stands in for an in-house library between the application and the JDK's crypto. */
+    static final class CryptoWrapper {
+        static void encrypt() {
+            new SpiceProbeEvent().commit();
+        }
+    }
+
+    @Test
+    void extract_appExclude_attributesCallSiteToCaller() throws Exception {
+        Path jfrFile = tempDir.resolve("wrapped.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("spice.probe.testlink");
+            recording.start();
+            CryptoWrapper.encrypt();
+            recording.stop();
+            recording.dump(jfrFile);
+        }
+        String wrapper = CryptoWrapper.class.getName();
+
+        var plain = JfrEventExtractor.extract("wrap-test", List.of(jfrFile));
+        var filtered = JfrEventExtractor.extract("wrap-test", List.of(jfrFile), null, null,
+                JfrEventExtractor.ParseOptions.builder()
+                        .appFrames(AppFrameFilter.of(List.of(), List.of(wrapper)))
+                        .build());
+
+        assertEquals(wrapper, plain.probeEvents().get(0).callSites().get(0).className());
+        var site = filtered.probeEvents().get(0).callSites().get(0);
+        assertEquals(JfrEventExtractorTest.class.getName(), site.className());
+        assertTrue(site.location().contains("extract_appExclude_attributesCallSiteToCaller"), site.location());
+    }
+
+    @Test
+    void extract_cacheKey_coversAppFrames() throws Exception {
+        List<Path> recordings = checkpointRecordings();
+        Path cacheDir = tempDir.resolve("cache");
+        var options = JfrEventExtractor.ParseOptions.builder().cacheDirectory(cacheDir);
+
+        JfrEventExtractor.extract("cache-test", recordings, null, null, options.build());
+        JfrEventExtractor.extract("cache-test", recordings, null, null,
+                options.appFrames(AppFrameFilter.of(List.of(), List.of("io.spicelabs"))).build());
+
+        try (var entries = Files.list(cacheDir)) {
+            assertEquals(6, entries.count(), "a different package filter is a different entry");
+        }
+    }
+
+    // ── Parse statistics ────────────────────────────────────────────────
+
+    @Test
+    void extract_stats_countEventsPerTypeAndRecording() throws Exception {
+        List<Path> recordings = checkpointRecordings();
+        ParseStats serial = new ParseStats();
+        ParseStats parallel = new ParseStats();
+        JfrEventExtractor.extract("stats-test", recordings, null, null,
+                JfrEventExtractor.ParseOptions.builder().stats(serial).build());
+        JfrEventExtractor.extract("stats-test", recordings, null, null,
+                JfrEventExtractor.ParseOptions.builder().parseThreads(3).stats(parallel).build());
+
+        for (ParseStats stats : List.of(serial, parallel)) {
+            var types = stats.eventTypes().stream()
+                    .collect(Collectors.toMap(ParseStats.EventTypeStats::eventType, t -> t));
+            assertEquals(Set.of("spice.ClassLoaded", "spice.probe.testlink"), types.keySet());
+            assertEquals(30, types.get("spice.ClassLoaded").events());
+            assertEquals(3, types.get("spice.probe.testlink").events());
+            assertEquals(33, stats.events());
+            assertTrue(stats.elapsedNanos() > 0);
+
+            assertEquals(List.of("resume0.jfr", "resume1.jfr", "resume2.jfr"),
+                    stats.recordings().stream().map(ParseStats.RecordingStats::name).toList());
+            for (int i = 0; i < recordings.size(); i++) {
+                var recording = stats.recordings().get(i);
+                assertEquals(11, recording.events());
+                assertEquals(Files.size(recordings.get(i)), recording.bytes());
+                assertFalse(recording.cached());
+            }
+        }
+        // Serially, a class first seen in an earlier recording is no new key.
+        assertEquals(20, serial.eventTypes().stream()
+                .filter(t -> t.eventType().equals("spice.ClassLoaded")).findFirst().orElseThrow().keys());
+    }
+
+    @Test
+    void extract_stats_markCachedRecordings() throws Exception {
+        List<Path> recordings = checkpointRecordings();
+        var options = JfrEventExtractor.ParseOptions.builder().cacheDirectory(tempDir.resolve("cache"));
+        JfrEventExtractor.extract("stats-test", recordings, null, null, options.build());
+
+        ParseStats stats = new ParseStats();
+        JfrEventExtractor.extract("stats-test", recordings, null, null, options.stats(stats).build());
+
+        assertEquals(3, stats.recordings().size());
+        assertTrue(stats.recordings().stream().allMatch(ParseStats.RecordingStats::cached));
+        assertEquals(0, stats.events(), "nothing was parsed");
+    }
+
+    // ── Memory budget ───────────────────────────────────────────────────
+
+    /** 40 threads, each firing {@code perThread} probe events with one caller gitoid, into {@code file}. */
+    private static void writeThreadedProbeRecording(Path file, int perThread) throws Exception {
+        try (Recording recording = new Recording()) {
+            recording.enable("spice.probe.testlink");
+            recording.start();
+            for (int i = 0; i < 40; i++) {
+                Thread t = new Thread(() -> {
+                    for (int j = 0; j < perThread; j++) {
+                        SpiceProbeEvent probe = new SpiceProbeEvent();
+                        probe.callerGitoids = "g-caller";
+                        probe.commit();
+                    }
+                }, "site-" + i);
+                t.start();
+                t.join();
+            }
+            recording.stop();
+            recording.dump(file);
+        }
+    }
+
+    @Test
+    void memoryBudget_shedsCallSitesThenThreadsThenCallers_keepingCountsExact() throws Exception {
+        Path jfrFile = tempDir.resolve("budget.jfr");
+        writeThreadedProbeRecording(jfrFile, 5);
+        List<RecordedEvent> events = RecordingFile.readAllEvents(jfrFile);
+        MemoryBudget budget = new MemoryBudget(100);
+        var acc = new JfrEventExtractor.Accumulators(null,
+                JfrEventExtractor.ParseOptions.builder().memoryBudget(budget).build());
+
+        for (int i = 0; i < events.size() / 2; i++) {
+            acc.accept(events.get(i));
+        }
+        budget.observe(70);
+        for (int i = events.size() / 2; i < events.size(); i++) {
+            acc.accept(events.get(i));
+        }
+        var data = JfrEventExtractor.fromAccumulators("budget-test", List.of("budget.jfr"), acc);
+
+        var probe = data.probeEvents().get(0);
+        assertEquals(200, probe.count(), "counts are never shed");
+        assertEquals(MemoryBudget.DEGRADED_MAX_CALL_SITES, probe.callSites().size());
+        assertEquals(200L, probe.callSites().stream().mapToLong(JfrEventExtractor.CallSite::count).sum());
+        assertTrue(probe.callSites().stream().allMatch(site -> site.thread() != null));
+        assertEquals(List.of("callSites"), data.degradation().shed());
+
+        acc.shed(MemoryBudget.Level.CALLER_GITOIDS);
+        data = JfrEventExtractor.fromAccumulators("budget-test", List.of("budget.jfr"), acc);
+
+        probe = data.probeEvents().get(0);
+        assertEquals(200, probe.count());
+        assertEquals(1, probe.callSites().size(), "one line, no longer told apart by thread");
+        assertNull(probe.callSites().get(0).thread());
+        assertEquals(Long.valueOf(200), probe.callSites().get(0).count());
+        assertNull(probe.callerClassIds(), "callers shed are unknown, not none");
+        assertEquals(List.of("callSites", "threadNames", "callerGitoids"), data.degradation().shed());
+    }
+
+    @Test
+    void memoryBudget_mergeIsAsLossyAsTheLossierSide() throws Exception {
+        Path jfrFile = tempDir.resolve("budget-merge.jfr");
+        writeThreadedProbeRecording(jfrFile, 2);
+        var whole = new JfrEventExtractor.Accumulators(null);
+        var shed = new JfrEventExtractor.Accumulators(null);
+        for (RecordedEvent event : RecordingFile.readAllEvents(jfrFile)) {
+            whole.accept(event);
+            shed.accept(event);
+        }
+        shed.shed(MemoryBudget.Level.THREAD_NAMES);
+
+        whole.merge(shed);
+        var data = JfrEventExtractor.fromAccumulators("merge-test", List.of("a.jfr", "b.jfr"), whole);
+
+        var probe = data.probeEvents().get(0);
+        assertEquals(160, probe.count());
+        assertEquals(1, probe.callSites().size());
+        assertNull(probe.callSites().get(0).thread());
+        assertEquals(List.of("callSites", "threadNames"), data.degradation().shed());
+    }
+
+    @Test
+    void memoryBudget_unreached_shedsNothing() throws Exception {
+        Path jfrFile = tempDir.resolve("budget-roomy.jfr");
+        writeThreadedProbeRecording(jfrFile, 1);
+
+        JfrEventExtractor.RawSurveyData data;
+        try (MemoryBudget budget = MemoryBudget.watch(Long.MAX_VALUE / 2)) {
+            data = JfrEventExtractor.extract("roomy-test", List.of(jfrFile), null, null,
+                    JfrEventExtractor.ParseOptions.builder().memoryBudget(budget).build());
+        }
+
+        assertNull(data.degradation());
+        assertEquals(40, data.probeEvents().get(0).callSites().size());
+        assertFalse(new ObjectMapper().valueToTree(data).has("degradation"));
+    }
+
+    // ── Call-site cap ───────────────────────────────────────────────────
+
+    @Test
+    void extract_maxCallSites_keepsMostFrequentWithCounts() throws Exception {
+        // Same line, one thread per site: each thread name makes a distinct call site.
+        int[] hits = {40, 30, 20, 3, 2, 1};
+        Path jfrFile = tempDir.resolve("sites.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("spice.probe.testlink");
+            recording.start();
+            for (int i = 0; i < hits.length; i++) {
+                int n = hits[i];
+                Thread t = new Thread(() -> {
+                    for (int j = 0; j < n; j++) {
+                        new SpiceProbeEvent().commit();
+                    }
+                }, "site-" + i);
+                t.start();
+                t.join();
+            }
+            recording.stop();
+            recording.dump(jfrFile);
+        }
+
+        var capped = JfrEventExtractor.extract("cap-test", List.of(jfrFile), null, null,
+                JfrEventExtractor.ParseOptions.builder().maxCallSites(3).build());
+        var sites = capped.probeEvents().get(0).callSites();
+
+        // JFR writes each thread's buffer whenever it's flushed, so the sites arrive in no fixed order.
+        assertEquals(3, sites.size());
+        assertTrue(sites.stream().anyMatch(site -> site.thread().equals("site-0")),
+                "a site above total/capacity is always kept: " + sites);
+        assertEquals(96L, sites.stream().mapToLong(JfrEventExtractor.CallSite::count).sum(),
+                "counts always sum to the events seen");
+        for (int i = 1; i < sites.size(); i++) {
+            assertTrue(sites.get(i - 1).count() >= sites.get(i).count(), "most frequent first");
+        }
+        for (var site : sites) {
+            long actual = hits[Integer.parseInt(site.thread().substring("site-".length()))];
+            assertTrue(site.count() - site.countError() <= actual && actual <= site.count(),
+                    site + " must bound the true count " + actual);
+        }
+
+        var uncapped = JfrEventExtractor.extract("cap-test", List.of(jfrFile));
+        assertEquals(hits.length, uncapped.probeEvents().get(0).callSites().size());
+        JsonNode json = new ObjectMapper().valueToTree(uncapped.probeEvents().get(0).callSites().get(0));
+        assertFalse(json.has("count"), "uncapped call sites carry no counts: " + json);
+        assertFalse(json.has("countError"));
+    }
+
+    @Test
+    void extract_nonPositiveMaxCallSites_throws() {
+        assertThrows(IllegalArgumentException.class,
+                () -> JfrEventExtractor.extract("test", List.of(tempDir.resolve("x.jfr")), null, null,
+                        JfrEventExtractor.ParseOptions.builder().maxCallSites(0).build()));
+    }
+
+    @Test
+    void extract_nonPositiveSpillThreshold_throws() {
+        assertThrows(IllegalArgumentException.class,
+                () -> JfrEventExtractor.extract("test", List.of(tempDir.resolve("x.jfr")), null, null,
+                        JfrEventExtractor.ParseOptions.builder().spillThreshold(0).build()));
+    }
+
+    @Test
+    void extract_nonPositiveParseThreads_throws() {
+        assertThrows(IllegalArgumentException.class,
+                () -> JfrEventExtractor.extract("test", List.of(tempDir.resolve("x.jfr")), null, null, 0));
+    }
+
     @Test
     void extract_emptyRecordingList_throws() {
         assertThrows(Exception.class,
@@ -0,0 +1,122 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JfrLiveExtractorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void finish_streamedJvm_matchesPostHocParse() throws Exception {
+        Path repository = Files.createDirectories(tempDir.resolve("repository"));
+
+        Path target = tempDir.resolve("Target.java");
+        Files.writeString(target, """
+                public class Target {
+                    public static void main(String[] args) throws Exception {
+                        Thread.sleep(1500);
+                    }
+                }
+                """);
+
+        JfrEventExtractor.Accumulators streamed;
+        Path dump;
+        try (JfrLiveExtractor live = new JfrLiveExtractor(repository, null)) {
+            live.start();
+            Process process = new ProcessBuilder(
+                    Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                    "-XX:StartFlightRecording=dumponexit=true,filename=" + tempDir.resolve("recording-%p.jfr"),
+                    "-XX:FlightRecorderOptions=repository=" + repository + ",preserve-repository=true",
+                    target.toString())
+                    .redirectErrorStream(true)
+                    .redirectOutput(tempDir.resolve("target.log").toFile())
+                    .start();
+            assertTrue(process.waitFor(60, TimeUnit.SECONDS), "target JVM should exit");
+            assertEquals(0, process.exitValue(), readLog());
+
+            dump = tempDir.resolve("recording-" + process.pid() + ".jfr");
+            streamed = live.finish(Duration.ofSeconds(30), List.of(dump)).orElseThrow();
+        }
+
+        var live = JfrEventExtractor.fromAccumulators("live-test", List.of(dump.getFileName().toString()), streamed);
+        var postHoc = JfrEventExtractor.extract("live-test", List.of(dump));
+
+        assertNotNull(live.runtime().jvmVersion(), "streamed events should include JVM information");
+        assertEquals(postHoc, live, "streaming must accumulate exactly what a post-hoc parse does");
+    }
+
+    @Test
+    void finish_noRepositories_isEmpty() throws Exception {
+        try (JfrLiveExtractor live = new JfrLiveExtractor(tempDir, null)) {
+            live.start();
+            assertTrue(live.finish(Duration.ofSeconds(1), List.of()).isEmpty());
+        }
+    }
+
+    @Test
+    void finish_repositoryFirstSeenAfterExit_isEmpty() throws Exception {
+        try (JfrLiveExtractor live = new JfrLiveExtractor(tempDir, null)) {
+            // Never started watching, so the directory is only discovered once the "target" is gone.
+            Files.createDirectory(tempDir.resolve("2025_01_01_00_00_00_1234"));
+            assertTrue(live.finish(Duration.ofSeconds(1), List.of(tempDir.resolve("recording-1234.jfr"))).isEmpty());
+        }
+    }
+
+    @Test
+    void finish_streamNotDrained_isEmpty() throws Exception {
+        try (JfrLiveExtractor live = new JfrLiveExtractor(tempDir, null)) {
+            live.start();
+            // A repository that never receives a chunk: its stream waits until the timeout.
+            Files.createDirectory(tempDir.resolve("2025_01_01_00_00_00_1234"));
+            Thread.sleep(JfrLiveExtractor.POLL_INTERVAL_MS * 3);
+            assertTrue(live.finish(Duration.ofMillis(300), List.of(tempDir.resolve("recording-1234.jfr"))).isEmpty());
+        }
+    }
+
+    @Test
+    void finish_streamedJvmsDifferFromRecordedJvms_isEmpty() throws Exception {
+        try (JfrLiveExtractor live = new JfrLiveExtractor(tempDir, null)) {
+            live.start();
+            // Never receives a chunk, so only the cross-check can end finish() before the timeout.
+            Files.createDirectory(tempDir.resolve("2025_01_01_00_00_00_1234"));
+            Thread.sleep(JfrLiveExtractor.POLL_INTERVAL_MS * 3);
+            long start = System.nanoTime();
+            // A JVM that came and went between polls: recorded, never streamed.
+            assertTrue(live.finish(Duration.ofSeconds(30), List.of(
+                    tempDir.resolve("recording-1234.jfr"), tempDir.resolve("recording-5678.jfr"))).isEmpty());
+            assertTrue(System.nanoTime() - start < Duration.ofSeconds(10).toNanos(), "no wait for the stream");
+        }
+    }
+
+    @Test
+    void finish_streamedJvmWithoutRecording_isEmpty() throws Exception {
+        try (JfrLiveExtractor live = new JfrLiveExtractor(tempDir, null)) {
+            live.start();
+            Files.createDirectory(tempDir.resolve("2025_01_01_00_00_00_1234"));
+            Files.createDirectory(tempDir.resolve("2025_01_01_00_00_01_5678"));
+            Thread.sleep(JfrLiveExtractor.POLL_INTERVAL_MS * 3);
+            assertTrue(live.finish(Duration.ofSeconds(30), List.of(tempDir.resolve("recording-1234.jfr"))).isEmpty());
+        }
+    }
+
+    private String readLog() {
+        try {
+            return Files.readString(tempDir.resolve("target.log"));
+        } catch (Exception e) {
+            return e.toString();
+        }
+    }
+}
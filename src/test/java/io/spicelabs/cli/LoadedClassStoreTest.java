@@ -0,0 +1,100 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.spicelabs.cli.JfrEventExtractor.LoadedClass;
+
+class LoadedClassStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void toList_withoutSpill_keepsFirstSeenPerGitoid() {
+        LoadedClassStore store = new LoadedClassStore(100, tempDir);
+        store.add(loaded("g-b", "B"));
+        store.add(loaded("g-a", "A"));
+        store.add(loaded("g-b", "B-again"));
+
+        Map<String, Integer> ids = new HashMap<>();
+        List<LoadedClass> classes = store.toList(Set.of("g-a"), ids);
+
+        assertEquals(List.of(new LoadedClass(0, "B", "g-b", "sha-g-b", null, null, null),
+                new LoadedClass(1, "A", "g-a", "sha-g-a", null, null, null)), classes);
+        assertEquals(Map.of("g-a", 1), ids);
+        assertFalse(Files.exists(tempDir.resolve("spill")));
+    }
+
+    @Test
+    void toList_afterSpills_mergesRunsInFirstSeenOrder() throws Exception {
+        Path spillDir = tempDir.resolve("spill");
+        LoadedClassStore store = new LoadedClassStore(2, spillDir);
+        // Runs: [c, a], [b, a'], [d, c'], then e in heap; a' and c' repeat earlier gitoids.
+        List<String> gitoids = List.of("g-c", "g-a", "g-b", "g-a", "g-d", "g-c", "g-e");
+        for (int i = 0; i < gitoids.size(); i++) {
+            store.add(loaded(gitoids.get(i), "C" + i));
+        }
+        assertEquals(7, store.size());
+
+        Map<String, Integer> ids = new HashMap<>();
+        List<LoadedClass> classes = store.toList(Set.of("g-d", "g-c", "g-missing"), ids);
+
+        assertEquals(List.of("g-c", "g-a", "g-b", "g-d", "g-e"),
+                classes.stream().map(LoadedClass::classGitoid).toList());
+        assertEquals(List.of(0, 1, 2, 3, 4), classes.stream().map(LoadedClass::id).toList());
+        assertEquals(List.of("C0", "C1", "C2", "C4", "C6"),
+                classes.stream().map(LoadedClass::className).toList(), "first record of a gitoid wins");
+        assertEquals(Map.of("g-c", 0, "g-d", 3), ids);
+        try (var left = Files.list(spillDir)) {
+            assertEquals(List.of(), left.toList(), "spill runs are removed once mapped");
+        }
+    }
+
+    @Test
+    void contains_seesSpilledClasses() {
+        LoadedClassStore store = new LoadedClassStore(2, tempDir.resolve("spill"));
+        for (int i = 0; i < 100; i++) {
+            String gitoid = "g-" + i;
+            assertFalse(store.contains(gitoid));
+            store.add(loaded(gitoid, "C" + i));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertTrue(store.contains("g-" + i), "g-" + i);
+        }
+        assertFalse(store.contains("g-100"));
+        assertFalse(store.contains("g-"));
+        assertEquals(100, store.size(), "nothing is counted twice when new classes are checked first");
+    }
+
+    @Test
+    void addAll_spilledStore_keepsOursAhead() {
+        LoadedClassStore ours = new LoadedClassStore(10, tempDir);
+        ours.add(loaded("g-1", "One"));
+        LoadedClassStore theirs = new LoadedClassStore(1, tempDir);
+        theirs.add(loaded("g-2", "Two"));
+        theirs.add(loaded("g-1", "One-later"));
+        theirs.add(loaded("g-3", "Three"));
+
+        ours.addAll(theirs);
+        List<LoadedClass> classes = ours.toList(Set.of(), new HashMap<>());
+
+        assertEquals(List.of("One", "Two", "Three"), classes.stream().map(LoadedClass::className).toList());
+    }
+
+    private static LoadedClass loaded(String gitoid, String className) {
+        return new LoadedClass(0, className, gitoid, "sha-" + gitoid, null, null, null);
+    }
+}
@@ -0,0 +1,66 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.spicelabs.cli.JfrEventExtractor.LoadedClass;
+
+class LoadedClassTableTest {
+
+    @Test
+    void add_canonicalDigests_roundTripExactly() {
+        LoadedClassTable table = new LoadedClassTable();
+        List<LoadedClass> added = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            LoadedClass lc = new LoadedClass(i, "com.example.C" + i, "gitoid:blob:sha256:" + digest(i),
+                    digest(-i - 1), "file:/tmp/x" + (i % 7) + ".jar",
+                    "gitoid:blob:sha256:" + digest(1_000_000 + i % 7), digest(2_000_000 + i % 7));
+            assertTrue(table.add(lc));
+            added.add(lc);
+        }
+
+        assertEquals(added, table.asList());
+        for (int i = 0; i < added.size(); i += 97) {
+            assertEquals(i, table.find(added.get(i).classGitoid()));
+            assertFalse(table.add(added.get(i)), "a gitoid already held is not added again");
+        }
+        assertEquals(-1, table.find("gitoid:blob:sha256:" + digest(-42)));
+        assertEquals(5_000, table.size());
+    }
+
+    @Test
+    void add_nonCanonicalValues_keptAsIs() {
+        LoadedClassTable table = new LoadedClassTable();
+        String upperHex = "gitoid:blob:sha256:" + digest(7).toUpperCase();
+        LoadedClass raw = new LoadedClass(0, "A", "g-decl", "sha", null, null, null);
+        LoadedClass upper = new LoadedClass(1, "B", upperHex, null, "file:/b.jar", null, null);
+        LoadedClass lower = new LoadedClass(2, "C", upperHex.toLowerCase(), digest(8).toUpperCase(), null, null, null);
+
+        assertTrue(table.add(raw));
+        assertTrue(table.add(upper));
+        assertTrue(table.add(lower), "case differs, so it's a different gitoid string");
+        assertFalse(table.add(new LoadedClass(0, "A2", "g-decl", null, null, null, null)));
+
+        assertEquals(List.of(raw, upper, lower), table.asList());
+        assertEquals(0, table.find("g-decl"));
+        assertEquals(1, table.find(upperHex));
+        assertEquals(-1, table.find("g-other"));
+    }
+
+    private static String digest(long n) {
+        byte[] bytes = new byte[32];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (n >>> (56 - i * 8));
+            bytes[24 + i] = (byte) ((n * 0x9E3779B97F4A7C15L) >>> (56 - i * 8));
+        }
+        return HexFormat.of().formatHex(bytes);
+    }
+}
@@ -0,0 +1,66 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for MemoryBudget: the level rises with usage through each share of the budget, possibly
+ * several at once, and never falls; watching sets and then restores the heap pools' thresholds.
+ */
+class MemoryBudgetTest {
+
+    @Test
+    void observe_raisesLevelThroughEachShare() {
+        MemoryBudget budget = new MemoryBudget(1000);
+        assertEquals(MemoryBudget.Level.NONE, budget.level());
+
+        budget.observe(699);
+        assertEquals(MemoryBudget.Level.NONE, budget.level());
+        budget.observe(700);
+        assertEquals(MemoryBudget.Level.CALL_SITES, budget.level());
+        budget.observe(960);
+        assertEquals(MemoryBudget.Level.CALLER_GITOIDS, budget.level(), "levels can be skipped");
+    }
+
+    @Test
+    void observe_neverLowersLevel() {
+        MemoryBudget budget = new MemoryBudget(1000);
+        budget.observe(900);
+        budget.observe(10);
+        assertEquals(MemoryBudget.Level.THREAD_NAMES, budget.level());
+    }
+
+    @Test
+    void level_shedListsEveryDetailUpToIt() {
+        assertEquals(List.of(), MemoryBudget.Level.NONE.shed());
+        assertEquals(List.of("callSites", "threadNames"), MemoryBudget.Level.THREAD_NAMES.shed());
+        assertEquals(List.of("callSites", "threadNames", "callerGitoids"), MemoryBudget.Level.CALLER_GITOIDS.shed());
+    }
+
+    @Test
+    void watch_setsAndRestoresPoolThresholds() {
+        List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(MemoryPoolMXBean::isUsageThresholdSupported)
+                .toList();
+        List<Long> before = pools.stream().map(MemoryPoolMXBean::getUsageThreshold).toList();
+
+        try (MemoryBudget budget = MemoryBudget.watch(Long.MAX_VALUE / 2)) {
+            assertEquals(MemoryBudget.Level.NONE, budget.level(), "a budget far above the heap isn't reached");
+        }
+
+        assertEquals(before, pools.stream().map(MemoryPoolMXBean::getUsageThreshold).toList());
+    }
+
+    @Test
+    void nonPositiveBudget_throws() {
+        assertThrows(IllegalArgumentException.class, () -> new MemoryBudget(0));
+    }
+}
@@ -0,0 +1,100 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for ParseStats: per-type counters survive slot growth and merge by event type name,
+ * sampled times are scaled to the type's count, and the report carries throughput.
+ */
+class ParseStatsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void record_countsPerType_mostExpensiveFirst() {
+        ParseStats stats = new ParseStats();
+        int tls = stats.slot("jdk.TLSHandshake");
+        int probe = stats.slot("spice.probe.a");
+        assertEquals(tls, stats.slot("jdk.TLSHandshake"), "a type keeps its slot");
+
+        stats.record(tls, 500, 1);
+        stats.record(tls, 700, 0);
+        stats.record(probe, 100, 1);
+
+        assertEquals(List.of(
+                new ParseStats.EventTypeStats("jdk.TLSHandshake", 2, 1200, 1),
+                new ParseStats.EventTypeStats("spice.probe.a", 1, 100, 1)), stats.eventTypes());
+        assertEquals(600, stats.eventTypes().get(0).nanosPerEvent());
+        assertEquals(3, stats.events());
+    }
+
+    @Test
+    void sampledTimes_scaleToEveryEvent() {
+        ParseStats stats = new ParseStats();
+        int slot = stats.slot("spice.ClassLoaded");
+        for (int i = 0; i < 4 * ParseStats.TIME_SAMPLE_INTERVAL; i++) {
+            if (stats.timeNext(slot)) {
+                stats.record(slot, 100, 1);
+            } else {
+                stats.record(slot, 0);
+            }
+        }
+
+        ParseStats.EventTypeStats type = stats.eventTypes().get(0);
+        assertEquals(4 * ParseStats.TIME_SAMPLE_INTERVAL, type.events());
+        assertEquals(100L * type.events(), type.nanos(), "four timed events stand for all of them");
+        assertEquals(4, type.keys());
+    }
+
+    @Test
+    void merge_addsByTypeName_acrossManySlots() {
+        ParseStats a = new ParseStats();
+        ParseStats b = new ParseStats();
+        for (int i = 0; i < 40; i++) {
+            a.record(a.slot("spice.probe." + i), 10, 1);
+        }
+        b.record(b.slot("spice.probe.39"), 10, 0);
+        b.record(b.slot("jdk.X509Certificate"), 5, 1);
+        a.recording(new ParseStats.RecordingStats("a.jfr", 100, 40, 1000, false));
+        b.recording(new ParseStats.RecordingStats("b.jfr", 50, 2, 500, false));
+
+        a.merge(b);
+
+        assertEquals(42, a.events());
+        assertEquals(41, a.eventTypes().size());
+        assertEquals(new ParseStats.EventTypeStats("spice.probe.39", 2, 20, 1), a.eventTypes().get(0));
+        assertEquals(List.of("a.jfr", "b.jfr"), a.recordings().stream().map(ParseStats.RecordingStats::name).toList());
+    }
+
+    @Test
+    void write_reportsThroughput() throws Exception {
+        ParseStats stats = new ParseStats();
+        stats.record(stats.slot("spice.ClassLoaded"), 2_000, 1);
+        stats.recording(new ParseStats.RecordingStats("r.jfr", 4_000_000, 1, 2_000_000_000L, false));
+        stats.elapsed(1_000_000_000L);
+        Path file = tempDir.resolve(ParseStats.FILE_NAME);
+
+        stats.write(file);
+
+        JsonNode json = new ObjectMapper().readTree(file.toFile());
+        assertEquals(1, json.get("events").asLong());
+        assertEquals(4_000_000, json.get("bytesPerSecond").asLong());
+        assertEquals("spice.ClassLoaded", json.get("eventTypes").get(0).get("eventType").asText());
+        assertEquals(2_000, json.get("eventTypes").get(0).get("nanosPerEvent").asLong());
+        assertEquals(2_000_000, json.get("recordings").get(0).get("bytesPerSecond").asLong());
+        assertFalse(stats.summary().isEmpty());
+    }
+}
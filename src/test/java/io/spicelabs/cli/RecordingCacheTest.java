@@ -0,0 +1,87 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for RecordingCache: keys follow content and settings, unreadable entries are misses, and
+ * eviction drops the least recently used first.
+ */
+class RecordingCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final JfrEventExtractor.ParseOptions options = JfrEventExtractor.ParseOptions.builder().build();
+
+    @Test
+    void key_followsContentAndSettings() throws Exception {
+        Path a = Files.writeString(tempDir.resolve("a.jfr"), "same");
+        Path b = Files.writeString(tempDir.resolve("b.jfr"), "same");
+        Path c = Files.writeString(tempDir.resolve("c.jfr"), "other");
+        var cache = new RecordingCache(tempDir, 1 << 20, null, options);
+        var capped = new RecordingCache(tempDir, 1 << 20, null,
+                JfrEventExtractor.ParseOptions.builder().maxCallSites(5).build());
+        var probed = new RecordingCache(tempDir, 1 << 20,
+                Map.of("spice.probe.x", new JfrEventExtractor.ProbeDefinition("spice.probe.x", "C", "m", null)), options);
+
+        assertEquals(cache.key(a), cache.key(b), "keyed by content, not name");
+        assertNotEquals(cache.key(a), cache.key(c));
+        assertNotEquals(cache.key(a), capped.key(a));
+        assertNotEquals(cache.key(a), probed.key(a));
+    }
+
+    @Test
+    void get_missingOrCorruptEntry_isMiss() throws Exception {
+        var cache = new RecordingCache(tempDir, 1 << 20, null, options);
+        Files.writeString(tempDir.resolve("bad.partial"), "not an entry");
+
+        assertNull(cache.get("absent"));
+        assertNull(cache.get("bad"));
+    }
+
+    @Test
+    void putThenGet_roundTrips() throws Exception {
+        var cache = new RecordingCache(tempDir, 1 << 20, null, options);
+        var acc = new JfrEventExtractor.Accumulators(null, options);
+        acc.loadedClasses.add(new JfrEventExtractor.LoadedClass(0, "com.example.A", "g-a", null, null, null, null));
+        acc.os = "Linux";
+
+        cache.put("k", acc);
+        var read = cache.get("k");
+
+        assertNotNull(read);
+        assertEquals("Linux", read.os);
+        assertEquals(1, read.loadedClasses.size());
+    }
+
+    @Test
+    void evict_dropsLeastRecentlyUsedUntilUnderCap() throws Exception {
+        var cache = new RecordingCache(tempDir, 250, null, options);
+        for (String key : List.of("old", "mid", "new")) {
+            Files.write(tempDir.resolve(key + ".partial"), new byte[100]);
+        }
+        Files.setLastModifiedTime(tempDir.resolve("old.partial"), FileTime.fromMillis(1_000));
+        Files.setLastModifiedTime(tempDir.resolve("mid.partial"), FileTime.fromMillis(2_000));
+        Files.setLastModifiedTime(tempDir.resolve("new.partial"), FileTime.fromMillis(3_000));
+        Files.writeString(tempDir.resolve("unrelated.txt"), "x".repeat(1_000));
+
+        cache.evict();
+
+        assertFalse(Files.exists(tempDir.resolve("old.partial")));
+        assertTrue(Files.exists(tempDir.resolve("mid.partial")));
+        assertTrue(Files.exists(tempDir.resolve("new.partial")));
+        assertTrue(Files.exists(tempDir.resolve("unrelated.txt")), "only cache entries are evicted");
+    }
+}
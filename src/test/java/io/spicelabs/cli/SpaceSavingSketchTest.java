@@ -0,0 +1,117 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class SpaceSavingSketchTest {
+
+    @Test
+    void unbounded_countsExactlyInArrivalOrder() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(SpaceSavingSketch.UNBOUNDED);
+        for (int i = 0; i < 1000; i++) {
+            sketch.offer(i % 100, -(i % 100), 1, 0);
+        }
+
+        assertFalse(sketch.bounded());
+        int[] slots = sketch.slotsInArrivalOrder();
+        assertEquals(100, slots.length);
+        for (int slot : slots) {
+            assertEquals(-sketch.first(slot), sketch.second(slot));
+            assertEquals(10, sketch.count(slot));
+            assertEquals(0, sketch.error(slot));
+        }
+        assertEquals(0, sketch.first(slots[0]));
+        assertEquals(99, sketch.first(slots[99]));
+    }
+
+    @Test
+    void bounded_keepsHeavyHittersWithinErrorBound() {
+        int capacity = 50;
+        SpaceSavingSketch sketch = new SpaceSavingSketch(capacity);
+        Map<Long, Long> actual = new HashMap<>();
+        Random random = new Random(42);
+        int total = 200_000;
+        for (int i = 0; i < total; i++) {
+            // Skewed: a few keys dominate, a long tail churns through the sketch.
+            long key = (long) Math.floor(Math.pow(random.nextDouble(), 4) * 5_000);
+            sketch.offer(key, 0, 1, 0);
+            actual.merge(key, 1L, Long::sum);
+        }
+
+        assertEquals(capacity, sketch.size());
+        long sum = 0;
+        Map<Long, Integer> monitored = new HashMap<>();
+        for (int slot : sketch.slotsByCount()) {
+            long key = sketch.first(slot);
+            long count = sketch.count(slot);
+            long trueCount = actual.get(key);
+            assertTrue(count - sketch.error(slot) <= trueCount && trueCount <= count,
+                    "key " + key + ": " + count + " - " + sketch.error(slot) + " vs true " + trueCount);
+            sum += count;
+            monitored.put(key, slot);
+        }
+        assertEquals(total, sum, "counts always sum to the stream length");
+        actual.forEach((key, count) -> {
+            if (count > total / capacity) {
+                assertTrue(monitored.containsKey(key), "heavy hitter " + key + " (" + count + ") was evicted");
+            }
+        });
+
+        // After all the evictions, every monitored key must still be found in place.
+        monitored.forEach((key, slot) -> assertEquals((int) slot, sketch.offer(key, 0, 0, 0)));
+        assertEquals(capacity, sketch.size());
+    }
+
+    @Test
+    void offer_evictionChangesGeneration() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(1);
+        int slot = sketch.offer(1, 1, 5, 0);
+        int generation = sketch.generation(slot);
+        assertEquals(slot, sketch.offer(1, 1, 1, 0));
+        assertEquals(generation, sketch.generation(slot));
+
+        assertEquals(slot, sketch.offer(2, 2, 1, 0));
+        assertNotEquals(generation, sketch.generation(slot));
+        assertEquals(7, sketch.count(slot));
+        assertEquals(6, sketch.error(slot));
+    }
+
+    @Test
+    void offer_evictionsAfterIndexGrowth_keepEveryKeyFindable() {
+        int capacity = 64;
+        SpaceSavingSketch sketch = new SpaceSavingSketch(capacity);
+        // Filling it grows the index several times over.
+        for (long key = 0; key < capacity; key++) {
+            sketch.offer(key, key, 1, 0);
+        }
+        assertEquals(capacity, sketch.indexEntries());
+        Map<Long, Integer> slots = new HashMap<>();
+        for (long key = capacity; key < 10 * capacity; key++) {
+            int slot = sketch.offer(key, key, 1, 0);
+            slots.values().remove(slot);
+            slots.put(key, slot);
+        }
+
+        assertEquals(capacity, sketch.size());
+        assertEquals(capacity, slots.size());
+        slots.forEach((key, slot) -> {
+            assertEquals((long) key, sketch.first(slot));
+            assertEquals((int) slot, sketch.offer(key, key, 0, 0), "key " + key + " not found in its slot");
+        });
+        assertEquals(capacity, sketch.size());
+        assertEquals(capacity, sketch.indexEntries());
+    }
+
+    @Test
+    void nonPositiveCapacity_throws() {
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSavingSketch(0));
+    }
+}
@@ -0,0 +1,129 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import io.spicelabs.cli.JfrEventExtractor.CallSite;
+import io.spicelabs.cli.JfrEventExtractor.RawSurveyData;
+
+/**
+ * Tests for SurveyCbor: the binary survey must decode to the survey it was written from, and so to
+ * the same JSON document.
+ */
+class SurveyCborTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void roundTrip_everySection_decodesToSameSurvey() throws Exception {
+        var data = RawSurveyData.builder()
+                .version("1.0.0").type("runtime-pqc-survey").subject("app ü")
+                .runtime(new JfrEventExtractor.RuntimeInfo("21.0.2", "OpenJDK 64-Bit", "Eclipse", "21", "Linux",
+                        4_294_967_296L))
+                .recordings(List.of("a.jfr"))
+                .probeEvents(List.of(new JfrEventExtractor.ProbeEvent("spice.probe.Cipher", "javax.crypto.Cipher",
+                        "getInstance", null, 300, List.of(
+                                new CallSite("com.example.Svc", "encrypt:42", "main", 299L, 0L),
+                                new CallSite("com.example.Svc", "encrypt:42", null)),
+                        0, Arrays.asList(1, null))))
+                .securityProviderEvents(List.of(new JfrEventExtractor.SecurityProviderEvent("AES", "Cipher", 5,
+                        List.of())))
+                .tlsHandshakes(List.of(new JfrEventExtractor.TlsHandshake("example.com", 443, "TLSv1.3",
+                        "TLS_AES_128_GCM_SHA256", 2)))
+                .certificates(List.of(new JfrEventExtractor.CertificateRecord("CN=example.com", "CN=CA", "RSA",
+                        -1, "SHA256withRSA", "2025-01-01", null)))
+                .securityProperties(List.of(new JfrEventExtractor.SecurityProperty("jdk.tls.disabledAlgorithms",
+                        "SSLv3", true)))
+                .loadedClasses(List.of(new JfrEventExtractor.LoadedClass(0, "com.example.Svc",
+                        "gitoid:blob:sha256:aaa", null, "file:/tmp/app.jar", null, null)))
+                .anchor(new JfrEventExtractor.Anchor("app.jar", "abc-sha", "gitoid:blob:sha256:abc"))
+                .degradation(new JfrEventExtractor.Degradation(List.of("callSites", "threadNames")))
+                .build();
+
+        RawSurveyData decoded = SurveyCbor.read(new ByteArrayInputStream(encode(data)));
+
+        assertEquals(data, decoded);
+        assertEquals(mapper.valueToTree(data), mapper.valueToTree(decoded));
+    }
+
+    @Test
+    void roundTrip_nullSections_decodesToSameSurvey() throws Exception {
+        var data = RawSurveyData.builder().version("1.0.0").type("runtime-pqc-survey").subject("app").build();
+
+        assertEquals(data, SurveyCbor.read(new ByteArrayInputStream(encode(data))));
+    }
+
+    @Test
+    void write_repeatedStrings_isFractionOfJson() throws Exception {
+        List<JfrEventExtractor.ProbeEvent> events = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            events.add(new JfrEventExtractor.ProbeEvent("spice.probe.Cipher", "javax.crypto.Cipher",
+                    "getInstance", "cipher", i, List.of(
+                            new CallSite("com.example.service.CryptoService", "encrypt:" + (i % 5), "http-nio-8080-exec-1"),
+                            new CallSite("com.example.service.CryptoService", "decrypt:" + (i % 5), "http-nio-8080-exec-2")),
+                    i, List.of(i, i + 1)));
+        }
+        var data = RawSurveyData.builder().version("1.0.0").type("runtime-pqc-survey").subject("app")
+                .probeEvents(events).build();
+
+        var json = new ByteArrayOutputStream();
+        SurveyJsonWriter.write(data, json, false);
+        byte[] cbor = encode(data);
+
+        assertTrue(cbor.length * 5 < json.size(), "cbor " + cbor.length + " bytes vs json " + json.size());
+        assertEquals(data, SurveyCbor.read(new ByteArrayInputStream(cbor)));
+    }
+
+    @Test
+    void read_otherFormatVersion_throws() throws Exception {
+        byte[] cbor = encode(RawSurveyData.builder().version("1.0.0").build());
+        // The version is the unsigned int right after the "formatVersion" key.
+        byte[] key = "formatVersion".getBytes(StandardCharsets.UTF_8);
+        int at = indexOf(cbor, key) + key.length;
+        assertEquals(SurveyCbor.FORMAT_VERSION, cbor[at]);
+        cbor[at] = (byte) (SurveyCbor.FORMAT_VERSION + 1);
+
+        IOException e = assertThrows(IOException.class, () -> SurveyCbor.read(new ByteArrayInputStream(cbor)));
+        assertTrue(e.getMessage().contains("format version"), e.getMessage());
+    }
+
+    @Test
+    void read_json_throws() {
+        byte[] json = "{\"version\":\"1.0.0\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(IOException.class, () -> SurveyCbor.read(new ByteArrayInputStream(json)));
+    }
+
+    private static byte[] encode(RawSurveyData data) throws IOException {
+        var out = new ByteArrayOutputStream();
+        SurveyCbor.write(data, out);
+        return out.toByteArray();
+    }
+
+    private static int indexOf(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i + needle.length <= haystack.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        throw new AssertionError("not found");
+    }
+}
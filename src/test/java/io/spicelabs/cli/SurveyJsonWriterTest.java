@@ -0,0 +1,122 @@
+// SPDX-License-Identifier: Apache-2.0
+/* Copyright 2025 Spice Labs, Inc. & Contributors */
+
+package io.spicelabs.cli;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.spicelabs.cli.JfrEventExtractor.CallSite;
+
+/**
+ * Tests for SurveyJsonWriter: its output must be the document ObjectMapper writes for the same
+ * survey, which is what the upload consumers were built against.
+ */
+class SurveyJsonWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void write_everySection_matchesObjectMapper() throws Exception {
+        var data = fullSurvey();
+
+        JsonNode expected = mapper.readTree(mapper.writeValueAsBytes(data));
+        assertEquals(expected, mapper.readTree(write(data, false)));
+        assertEquals(expected, mapper.readTree(write(data, true)));
+    }
+
+    @Test
+    void write_nullSections_matchesObjectMapper() throws Exception {
+        var data = JfrEventExtractor.RawSurveyData.builder()
+                .version("1.0.0").type("runtime-pqc-survey").subject("app")
+                .build();
+
+        JsonNode actual = mapper.readTree(write(data, false));
+        assertEquals(mapper.readTree(mapper.writeValueAsBytes(data)), actual);
+        assertTrue(actual.get("anchor").isNull(), "absent sections are written as null, not dropped");
+        assertFalse(actual.has("degradation"), "a survey that shed nothing has no degradation");
+    }
+
+    @Test
+    void write_compactUnlessPretty() throws Exception {
+        var data = fullSurvey();
+
+        String compact = new String(write(data, false), StandardCharsets.UTF_8);
+        String pretty = new String(write(data, true), StandardCharsets.UTF_8);
+
+        assertFalse(compact.contains("\n"), "default output is a single line");
+        assertTrue(pretty.contains("\n"));
+        assertTrue(compact.length() < pretty.length());
+    }
+
+    @Test
+    void write_extractedSurvey_matchesObjectMapper() throws Exception {
+        // The extractor's lists are views; the file must hold what they read as.
+        Path jfr = tempDir.resolve("empty.jfr");
+        try (var r = new jdk.jfr.Recording()) {
+            r.start();
+            r.stop();
+            r.dump(jfr);
+        }
+        var data = JfrEventExtractor.extract("app", List.of(jfr), null, null, 1);
+        Path out = tempDir.resolve("survey-data.json");
+
+        SurveyJsonWriter.write(data, out, false);
+
+        assertEquals(mapper.readTree(mapper.writeValueAsBytes(data)), mapper.readTree(Files.readAllBytes(out)));
+    }
+
+    private static byte[] write(JfrEventExtractor.RawSurveyData data, boolean pretty) throws Exception {
+        var out = new ByteArrayOutputStream();
+        SurveyJsonWriter.write(data, out, pretty);
+        return out.toByteArray();
+    }
+
+    private static JfrEventExtractor.RawSurveyData fullSurvey() {
+        return JfrEventExtractor.RawSurveyData.builder()
+                .version("1.0.0").type("runtime-pqc-survey").subject("app \"quoted\" ü")
+                .runtime(new JfrEventExtractor.RuntimeInfo("21.0.2", "OpenJDK 64-Bit", "Eclipse", "21", "Linux", 4242))
+                .recordings(List.of("a.jfr", "b.jfr"))
+                .probeEvents(List.of(
+                        new JfrEventExtractor.ProbeEvent("spice.probe.Cipher", "javax.crypto.Cipher", "getInstance",
+                                "cipher", 12, List.of(
+                                        new CallSite("com.example.Svc", "encrypt:42", "main", 9L, 1L),
+                                        new CallSite("com.example.Svc", "decrypt:57", "worker-1", 3L, 0L)),
+                                0, Arrays.asList(1, null)),
+                        new JfrEventExtractor.ProbeEvent("spice.probe.Digest", "java.security.MessageDigest",
+                                "getInstance", null, 1, List.of(new CallSite("com.example.Hash", "sum:7", null)),
+                                null, List.of())))
+                .securityProviderEvents(List.of(
+                        new JfrEventExtractor.SecurityProviderEvent("AES/GCM/NoPadding", "Cipher", 5,
+                                List.of(new CallSite("com.example.Svc", "encrypt:42", "main")))))
+                .tlsHandshakes(List.of(new JfrEventExtractor.TlsHandshake("example.com", 443, "TLSv1.3",
+                        "TLS_AES_128_GCM_SHA256", 2)))
+                .certificates(List.of(new JfrEventExtractor.CertificateRecord("CN=example.com", "CN=CA", "RSA",
+                        2048, "SHA256withRSA", "2025-01-01", null)))
+                .securityProperties(List.of(new JfrEventExtractor.SecurityProperty("jdk.tls.disabledAlgorithms",
+                        "SSLv3", true)))
+                .loadedClasses(List.of(
+                        new JfrEventExtractor.LoadedClass(0, "com.example.Svc", "gitoid:blob:sha256:aaa", "aaa-sha",
+                                "file:/tmp/app.jar", "gitoid:blob:sha256:jjj", "jjj-sha"),
+                        new JfrEventExtractor.LoadedClass(1, "com.example.Hash", "gitoid:blob:sha256:bbb", null,
+                                null, null, null)))
+                .anchor(new JfrEventExtractor.Anchor("app.jar", "abc-sha", "gitoid:blob:sha256:abc"))
+                .degradation(new JfrEventExtractor.Degradation(List.of("callSites", "threadNames")))
+                .build();
+    }
+}
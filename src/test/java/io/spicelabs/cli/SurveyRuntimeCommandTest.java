@@ -45,6 +45,12 @@ class SurveyRuntimeCommandTest {
         assertNotEquals(0, code);
     }
 
+    @Test
+    void parseThreadsBelowOne_fails() {
+        int code = cli.execute("my-app", "--jfr", "--no-upload", "--parse-threads", "0", "--", "true");
+        assertEquals(1, code);
+    }
+
     // ── extractCommand ──────────────────────────────────────────────────
 
     @Test
@@ -173,6 +179,40 @@ class SurveyRuntimeCommandTest {
         SurveyInventoryCommand.deleteRecursively(tempDir);
     }
 
+    @Test
+    void buildJavaToolOptions_stream_jdk21_setsPreservedRepository() throws Exception {
+        var cmd = new SurveyRuntimeCommand();
+        cmd.stream = true;
+        var jdk = new JdkVersionDetector.JdkVersion(21, "21.0.2", true);
+        var tempDir = java.nio.file.Files.createTempDirectory("test-");
+        var jfcPath = tempDir.resolve("spice-jfr.jfc");
+        java.nio.file.Files.writeString(jfcPath, "<config/>");
+
+        String opts = cmd.buildJavaToolOptions(jdk, tempDir, jfcPath, null, null);
+
+        assertTrue(opts.contains("-XX:FlightRecorderOptions=repository=" + tempDir.toAbsolutePath().resolve("repository")
+                + ",preserve-repository=true"));
+        assertTrue(opts.contains("dumponexit=true"), "recordings are still dumped for the post-hoc fallback");
+
+        SurveyInventoryCommand.deleteRecursively(tempDir);
+    }
+
+    @Test
+    void buildJavaToolOptions_stream_jdk17_noRepository() throws Exception {
+        var cmd = new SurveyRuntimeCommand();
+        cmd.stream = true;
+        var jdk = new JdkVersionDetector.JdkVersion(17, "17.0.10", true);
+        var tempDir = java.nio.file.Files.createTempDirectory("test-");
+        var jfcPath = tempDir.resolve("spice-jfr.jfc");
+        java.nio.file.Files.writeString(jfcPath, "<config/>");
+
+        String opts = cmd.buildJavaToolOptions(jdk, tempDir, jfcPath, null, null);
+
+        assertFalse(opts.contains("FlightRecorderOptions"), "JDK <21 deletes its last chunks as it exits");
+
+        SurveyInventoryCommand.deleteRecursively(tempDir);
+    }
+
     // ── humanReadableSize ───────────────────────────────────────────────
 
     @Test
@@ -0,0 +1,19 @@
+#!/bin/sh
+# Mock java for the runtime survey's container phases (RuntimeCollect). Echoes its args
+# in the same format as entrypoint.sh, and writes a marker into each cache directory it
+# is given, so a test can tell the directory was mounted from the host.
+
+echo "===SPICE_TEST_BEGIN==="
+prev=""
+for arg in "$@"; do
+  echo "ARG:${arg}"
+  case "$prev" in
+    --parse-cache-dir|--anchor-cache-dir)
+      echo "OK" > "$arg/.spice-test-marker" 2>/dev/null && echo "WROTE:${arg}/.spice-test-marker"
+      ;;
+  esac
+  prev="$arg"
+done
+echo "ENV:SPICE_PASS=${SPICE_PASS:-}"
+echo "===SPICE_TEST_END==="
+exit 0
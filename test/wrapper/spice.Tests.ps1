@@ -64,8 +64,12 @@ class MockDocker {
       Console.WriteLine("done");
       return 0;
     }
-    // Phase 4: RuntimeCollect
-    if (entrypoint == "java") return 0;
+    // Phase 4: RuntimeCollect — record its args if asked, then succeed
+    if (entrypoint == "java") {
+      var cf = Environment.GetEnvironmentVariable("RT_COLLECT_ARGS_FILE");
+      if (!string.IsNullOrEmpty(cf)) File.WriteAllLines(cf, args);
+      return 0;
+    }
     // Write all args to capture file
     var af = Environment.GetEnvironmentVariable("DOCKER_ARGS_FILE");
     if (!string.IsNullOrEmpty(af)) File.WriteAllLines(af, args);
@@ -299,8 +303,9 @@ if [ "`$_entrypoint" = "sh" ] && [ -n "`$_vol_host" ] && [ -d "`$_vol_host" ]; t
   exit 0
 fi
 
-# Phase 4: RuntimeCollect (--entrypoint java) — just succeed
+# Phase 4: RuntimeCollect (--entrypoint java) — record its args if asked, then succeed
 if [ "`$_entrypoint" = "java" ]; then
+  if [ -n "`$RT_COLLECT_ARGS_FILE" ]; then printf '%s\n' "`$@" > "`$RT_COLLECT_ARGS_FILE"; fi
   exit 0
 fi
 
@@ -1052,13 +1057,18 @@ if (`$jto -match 'settings=([^,]+)') {
 
     It 'recordings kept with --keep-recording' {
       $outdir = Join-Path (Join-Path $HOME '.spicelabs') "test-rt-keep-$PID"
+      $collectArgsFile = Join-Path $script:TestDir 'collect-args.txt'
       $cmd = New-TestScript -Name 'fake-jfr-keep' -WinBody '' -UnixBody 'true'
+      $env:RT_COLLECT_ARGS_FILE = $collectArgsFile
       try {
         $r = Invoke-SpiceWrapper -Arguments @('survey', 'runtime', 'myapp', '--jfr', '--no-upload', '--keep-recording', '--output', $outdir, '--', $cmd)
         # Verify workdir was kept (not cleaned up)
         $found = Get-ChildItem -Path $outdir -Directory -Filter 'survey-*' -ErrorAction SilentlyContinue | Select-Object -First 1
         $found | Should -Not -BeNullOrEmpty
+        # RuntimeCollect only writes parse-stats.json into a workdir that is kept
+        @(Get-Content $collectArgsFile) | Should -Contain '--keep-recording'
       } finally {
+        Remove-Item env:RT_COLLECT_ARGS_FILE -ErrorAction SilentlyContinue
         Remove-Item -Recurse -Force $outdir -ErrorAction SilentlyContinue
       }
     }
@@ -1075,5 +1085,47 @@ if (`$jto -match 'settings=([^,]+)') {
         Remove-Item -Recurse -Force $outdir -ErrorAction SilentlyContinue
       }
     }
+
+    It 'parse cache mounted from the host and passed to RuntimeCollect' {
+      $outdir = Join-Path (Join-Path $HOME '.spicelabs') "test-rt-cache-$PID"
+      $collectArgsFile = Join-Path $script:TestDir 'collect-args.txt'
+      $cmd = New-TestScript -Name 'noop-cache' -WinBody '' -UnixBody 'true'
+      $env:RT_COLLECT_ARGS_FILE = $collectArgsFile
+      try {
+        $r = Invoke-SpiceWrapper -Arguments @('survey', 'runtime', 'myapp', '--jfr', '--no-upload', '--output', $outdir, '--', $cmd)
+        $collectArgs = @(Get-Content $collectArgsFile)
+        $cacheHost = (Resolve-Path (Join-Path (Join-Path $HOME '.spicelabs') 'runtime-cache')).ProviderPath
+        $cacheDocker = Convert-TestPathToDockerPath $cacheHost
+        $collectArgs | Should -Contain "${cacheHost}:${cacheDocker}"
+        $i = [array]::IndexOf($collectArgs, '--parse-cache-dir')
+        $i | Should -BeGreaterThan -1
+        $collectArgs[$i + 1] | Should -Be $cacheDocker
+      } finally {
+        Remove-Item env:RT_COLLECT_ARGS_FILE -ErrorAction SilentlyContinue
+        Remove-Item -Recurse -Force $outdir -ErrorAction SilentlyContinue
+      }
+    }
+
+    It 'anchor digest cache mounted from the host and passed to RuntimeCollect' {
+      $outdir = Join-Path (Join-Path $HOME '.spicelabs') "test-rt-digest-$PID"
+      $collectArgsFile = Join-Path $script:TestDir 'collect-args.txt'
+      $anchor = Join-Path $script:TestDir 'app.war'
+      Set-Content -Path $anchor -Value 'war bytes'
+      $cmd = New-TestScript -Name 'noop-digest' -WinBody '' -UnixBody 'true'
+      $env:RT_COLLECT_ARGS_FILE = $collectArgsFile
+      try {
+        $r = Invoke-SpiceWrapper -Arguments @('survey', 'runtime', 'myapp', '--jfr', '--no-upload', '--anchor', $anchor, '--output', $outdir, '--', $cmd)
+        $collectArgs = @(Get-Content $collectArgsFile)
+        $cacheHost = (Resolve-Path (Join-Path (Join-Path $HOME '.spicelabs') 'digest-cache')).ProviderPath
+        $cacheDocker = Convert-TestPathToDockerPath $cacheHost
+        $collectArgs | Should -Contain "${cacheHost}:${cacheDocker}"
+        $i = [array]::IndexOf($collectArgs, '--anchor-cache-dir')
+        $i | Should -BeGreaterThan -1
+        $collectArgs[$i + 1] | Should -Be $cacheDocker
+      } finally {
+        Remove-Item env:RT_COLLECT_ARGS_FILE -ErrorAction SilentlyContinue
+        Remove-Item -Recurse -Force $outdir -ErrorAction SilentlyContinue
+      }
+    }
   }
 }
@@ -614,6 +614,8 @@ SCRIPT
 
   run "$WRAPPER" survey runtime myapp --jfr --no-upload --keep-recording --output "$outdir" -- "$script"
   [[ "$output" == *"Recordings kept in:"* ]]
+  # RuntimeCollect only writes parse-stats.json into a workdir that is kept
+  assert_arg "--keep-recording"
   rm -rf "$outdir"
 }
 
@@ -626,6 +628,50 @@ SCRIPT
   rm -rf "$outdir"
 }
 
+@test "runtime survey: parse cache mounted from the host and passed to RuntimeCollect" {
+  local outdir="$HOME/.spicelabs/test-rt-cache-$$"
+  local cache="$HOME/.spicelabs/runtime-cache"
+  local script="$TEST_TMPDIR/fake-jfr-cache.sh"
+  cat > "$script" <<'SCRIPT'
+#!/bin/bash
+recpath=$(echo "$JAVA_TOOL_OPTIONS" | sed -n 's/.*filename=\([^ ,]*\).*/\1/p')
+echo "fake-jfr" > "$(dirname "$recpath")/recording-$$.jfr"
+SCRIPT
+  chmod +x "$script"
+  rm -f "$cache/.spice-test-marker"
+
+  run "$WRAPPER" survey runtime myapp --jfr --no-upload --output "$outdir" -- "$script"
+  assert_arg "--parse-cache-dir"
+  assert_arg "$cache"
+  # Written by the container: only there on the host if the cache was mounted
+  [ -f "$cache/.spice-test-marker" ]
+  rm -f "$cache/.spice-test-marker"
+  rm -rf "$outdir"
+}
+
+@test "runtime survey: anchor digest cache mounted from the host and passed to RuntimeCollect" {
+  local outdir="$HOME/.spicelabs/test-rt-digest-$$"
+  local cache="$HOME/.spicelabs/digest-cache"
+  local anchor="$TEST_TMPDIR/app.war"
+  local script="$TEST_TMPDIR/fake-jfr-digest.sh"
+  echo "war bytes" > "$anchor"
+  cat > "$script" <<'SCRIPT'
+#!/bin/bash
+recpath=$(echo "$JAVA_TOOL_OPTIONS" | sed -n 's/.*filename=\([^ ,]*\).*/\1/p')
+echo "fake-jfr" > "$(dirname "$recpath")/recording-$$.jfr"
+SCRIPT
+  chmod +x "$script"
+  rm -f "$cache/.spice-test-marker"
+
+  run "$WRAPPER" survey runtime myapp --jfr --no-upload --anchor "$anchor" --output "$outdir" -- "$script"
+  assert_arg "--anchor-cache-dir"
+  assert_arg "$cache"
+  # Written by the container: only there on the host if the cache was mounted
+  [ -f "$cache/.spice-test-marker" ]
+  rm -f "$cache/.spice-test-marker"
+  rm -rf "$outdir"
+}
+
 # ── Path edge cases ──────────────────────────────────────────────────────────
 
 @test "path with spaces: directory input" {